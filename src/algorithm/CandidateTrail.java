@@ -0,0 +1,161 @@
+package algorithm;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+
+import graph.version.TemporalGraph;
+import graph.version.TemporalNode;
+import graph.version.index.NodeBitmap;
+
+/**
+ * Search state of searchPattern: the undo log of the candidate domains and the
+ * ordinals matched so far. Domains are never changed in place, every narrowed
+ * domain replaces the previous one and the previous one is recorded, so a
+ * search level restores the domains on backtrack instead of copying them
+ * 
+ * @author ksemer
+ */
+final class CandidateTrail {
+	// =====================================
+
+	// pattern node id per entry
+	private int[] ids = new int[16];
+
+	// replaced domain per entry
+	private NodeBitmap[] domains = new NodeBitmap[16];
+
+	// ordinal assigned by the entry or -1
+	private int[] ordinals = new int[16];
+
+	// ordinals of the nodes matched to the pattern nodes of the current path
+	private BitSet assigned = new BitSet();
+
+	// number of entries
+	private int size;
+
+	// =====================================
+
+	/**
+	 * Return the current position of the trail
+	 * 
+	 * @return
+	 */
+	int mark() {
+		return size;
+	}
+
+	/**
+	 * Replace the domain of pattern node id
+	 * 
+	 * @param c
+	 * @param id
+	 * @param domain
+	 */
+	void replace(NodeBitmap[] c, int id, NodeBitmap domain) {
+		push(c, id, -1);
+		c[id] = domain;
+	}
+
+	/**
+	 * Match node with ordinal u to pattern node id, c(id) = {u}
+	 * 
+	 * @param c
+	 * @param id
+	 * @param u
+	 */
+	void assign(NodeBitmap[] c, int id, int u) {
+		NodeBitmap domain = new NodeBitmap();
+		domain.add(u);
+
+		push(c, id, u);
+		c[id] = domain;
+		assigned.set(u);
+	}
+
+	/**
+	 * Returns true if node with ordinal u is matched to a pattern node
+	 * 
+	 * @param u
+	 * @return
+	 */
+	boolean isAssigned(int u) {
+		return assigned.get(u);
+	}
+
+	/**
+	 * Undo all changes after mark
+	 * 
+	 * @param c
+	 * @param mark
+	 */
+	void undo(NodeBitmap[] c, int mark) {
+		while (size > mark) {
+			size--;
+			c[ids[size]] = domains[size];
+			domains[size] = null;
+
+			if (ordinals[size] != -1)
+				assigned.clear(ordinals[size]);
+		}
+	}
+
+	/**
+	 * Return a trail with the same assigned nodes and an empty log, used by a
+	 * search that continues on another thread
+	 * 
+	 * @return
+	 */
+	CandidateTrail copy() {
+		CandidateTrail trail = new CandidateTrail();
+		trail.assigned = (BitSet) assigned.clone();
+
+		return trail;
+	}
+
+	/**
+	 * Record the domain of pattern node id
+	 * 
+	 * @param c
+	 * @param id
+	 * @param u
+	 */
+	private void push(NodeBitmap[] c, int id, int u) {
+		if (size == ids.length) {
+			ids = Arrays.copyOf(ids, size * 2);
+			domains = Arrays.copyOf(domains, size * 2);
+			ordinals = Arrays.copyOf(ordinals, size * 2);
+		}
+
+		ids[size] = id;
+		ordinals[size] = u;
+		domains[size++] = c[id];
+	}
+
+	/**
+	 * Return the domains as pattern node id -> nodes
+	 * 
+	 * @param c
+	 * @param lvg
+	 * @return
+	 */
+	static Map<Integer, Set<TemporalNode>> snapshot(NodeBitmap[] c, TemporalGraph lvg) {
+		Map<Integer, Set<TemporalNode>> copy = new HashMap<>(c.length);
+		Set<TemporalNode> nodes;
+
+		for (int id = 0; id < c.length; id++) {
+			nodes = new HashSet<>();
+
+			for (PrimitiveIterator.OfInt it = c[id].iterator(); it.hasNext();)
+				nodes.add(lvg.getNodeByOrdinal(it.nextInt()));
+
+			copy.put(id, nodes);
+		}
+
+		return copy;
+	}
+}
@@ -1,26 +1,37 @@
 package algorithm;
 
-import java.io.FileWriter;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.BitSet;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
+import java.util.PrimitiveIterator;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 
 import graph.pattern.PatternGraph;
 import graph.pattern.PatternNode;
-import graph.version.Edge;
 import graph.version.Graph;
+import graph.version.Lifespan;
 import graph.version.Node;
+import graph.version.TemporalEdge;
+import graph.version.TemporalGraph;
+import graph.version.TemporalNode;
+import graph.version.index.LabelPostings;
+import graph.version.index.NodeBitmap;
 import graph.version.loader.LoaderDBLP;
 import system.Config;
 
@@ -32,41 +43,53 @@ import system.Config;
 public class DurableMatching {
 	// ===============================================================
 
+	// version graph
+	private TemporalGraph lvg;
+
 	// pattern graph
 	private PatternGraph pg;
 
 	// query interval
 	private BitSet iQ;
 
+	// query interval as words
+	private long[] iQWords;
+
 	// Ranking structure
-	private Map<Integer, TreeMap<Integer, Set<Node>>> Rank = new HashMap<>();
+	private Map<Integer, TreeMap<Integer, Set<TemporalNode>>> Rank = new HashMap<>();
 
-	// threshold for time duration
-	private int threshold = Integer.MAX_VALUE;
+	// threshold for time duration, read by all search workers
+	private volatile int threshold = Integer.MAX_VALUE;
 
 	// if the query is continuously
 	private boolean continuously;
 
-	// stores the matches
-	private Set<Match> topMatches = new HashSet<Match>();
+	// stores the matches, null when they are streamed to matchSpool
+	private Set<Match> topMatches;
+
+	// spool of the matches with max duration when StreamMatches is enabled
+	private MatchSpool matchSpool;
 
-	// stores all the matches
-	private Set<String> matchesFound;
+	// number of matches with max duration
+	private volatile int numberOfMatches = 0;
+
+	// signatures of the matches with max duration
+	private MatchSignatures matchesFound;
 
 	// keeps the max duration for the current matches
-	private int maxDuration = 0;
+	private volatile int maxDuration = 0;
 
 	// minimum checked threshold Max, max binary
 	private int minimumCheckedTheta;
 
 	// total recursions
-	private long totalRecursions = 0;
+	private LongAdder totalRecursions = new LongAdder();
 
 	// size of rank
 	private int sizeOfRank = 0;
 
 	// recursions per theta run
-	private int recursionsPerTheta;
+	private LongAdder recursionsPerTheta = new LongAdder();
 
 	// total time of algorithm
 	private long totalTime;
@@ -76,11 +99,18 @@ public class DurableMatching {
 	// time limit for algorithm execution
 	private long timeLimit;
 
-	// used in recursive calls to avoid duplicate writes
-	private boolean resultsHaveBeenStored = false;
+	// set once by the worker that reaches the time limit or max matches, the
+	// other workers stop on their next recursion
+	private final AtomicBoolean stopped = new AtomicBoolean();
 
 	private int maxTmpMatchDur = -1;
 
+	// search levels that are split in fork join tasks
+	private int forkDepth;
+
+	// fork join tasks per search thread at a split level
+	private static final int FORK_CHUNKS_PER_THREAD = 4;
+
 	// ===============================================================
 
 	/**
@@ -92,22 +122,31 @@ public class DurableMatching {
 	 * @param continuously
 	 * @throws Exception
 	 */
-	public DurableMatching(Graph lvg, PatternGraph pg, BitSet iQ, boolean continuously, int rankingStrategy)
+	public DurableMatching(TemporalGraph lvg, PatternGraph pg, BitSet iQ, boolean continuously, int rankingStrategy)
 			throws Exception {
 
+		this.lvg = lvg;
 		this.pg = pg;
 		this.iQ = iQ;
+		this.iQWords = iQ.toLongArray();
+		this.forkDepth = Config.SEARCH_THREADS > 1 ? Config.PARALLEL_SEARCH_DEPTH : 0;
 		this.continuously = continuously;
 		this.rankingStrategy = rankingStrategy;
 
+		if (Config.STREAM_MATCHES)
+			matchSpool = new MatchSpool();
+		else
+			topMatches = new HashSet<>();
+
 		timeLimit = System.currentTimeMillis();
 
-		// if TiPLa index is activated use the path filtering
+		// if TiPLa index is activated use the path filtering, path indexes
+		// are kept only by the heap graph
 		if (Config.TIPLA_ENABLED) {
 			if (Config.BLOOM_ENABLED)
-				filterCandidatesByPathBloom(lvg, pg, iQ);
+				filterCandidatesByPathBloom((Graph) lvg, pg, iQ);
 			else
-				filterCandidatesByPath(lvg, pg, iQ);
+				filterCandidatesByPath((Graph) lvg, pg, iQ);
 		} else
 			filterCandidates(lvg, pg, iQ);
 
@@ -115,22 +154,24 @@ public class DurableMatching {
 		initializeThreshold();
 
 		int pn_id;
-		Map<Integer, Set<Node>> initC;
-		TreeMap<Integer, Set<Node>> tree;
-		NavigableMap<Integer, Set<Node>> submap;
+		NodeBitmap[] initC;
+		TreeMap<Integer, Set<TemporalNode>> tree;
+		NavigableMap<Integer, Set<TemporalNode>> submap;
 
 		while (threshold > 1) {
-			initC = new HashMap<>();
+			initC = new NodeBitmap[pg.size()];
 
-			for (Entry<Integer, TreeMap<Integer, Set<Node>>> entry : Rank.entrySet()) {
+			for (Entry<Integer, TreeMap<Integer, Set<TemporalNode>>> entry : Rank.entrySet()) {
 				pn_id = entry.getKey();
 				tree = entry.getValue();
-				initC.put(pn_id, new HashSet<>());
+				initC[pn_id] = new NodeBitmap();
 
 				submap = tree.subMap(tree.ceilingKey(threshold), true, tree.lastKey(), true);
 
-				for (Entry<Integer, Set<Node>> entry1 : submap.entrySet())
-					initC.get(pn_id).addAll(entry1.getValue());
+				for (Entry<Integer, Set<TemporalNode>> entry1 : submap.entrySet()) {
+					for (TemporalNode n : entry1.getValue())
+						initC[pn_id].add(n.getOrdinal());
+				}
 			}
 
 			if (Config.DEBUG)
@@ -141,8 +182,12 @@ public class DurableMatching {
 			initC = DUALSIM(initC);
 
 			try {
-				recursionsPerTheta = 0;
-				searchPattern(initC, 0);
+				recursionsPerTheta.reset();
+
+				if (forkDepth > 0)
+					SearchPool.invoke(new SearchTask(initC, 0, null, 0, 0, new CandidateTrail()));
+				else
+					searchPattern(initC, 0, new CandidateTrail());
 
 				if (Config.DEBUG)
 					System.out.print("\tRecursions: " + recursionsPerTheta + "\n");
@@ -151,8 +196,8 @@ public class DurableMatching {
 					System.out.println("\nTerminated Message: " + e.getMessage());
 			}
 
-			// matches found
-			if (topMatches == null || (topMatches.size() != 0 && maxDuration >= threshold))
+			// search stopped or matches found
+			if (stopped.get() || (numberOfMatches != 0 && maxDuration >= threshold))
 				break;
 
 			// get new threshold
@@ -164,9 +209,12 @@ public class DurableMatching {
 				break;
 		}
 
-		// write matches
-		if (topMatches != null)
-			writeTopMatches();
+		// the spilled signatures are deleted
+		if (matchesFound != null)
+			matchesFound.close();
+
+		// write matches, all search workers have finished
+		writeTopMatches();
 	}
 
 	/**
@@ -176,7 +224,7 @@ public class DurableMatching {
 	 */
 	private void initializeThreshold() throws IOException {
 		int sc;
-		TreeMap<Integer, Set<Node>> ranking;
+		TreeMap<Integer, Set<TemporalNode>> ranking;
 
 		// min
 		if (rankingStrategy == Config.MIN_RANKING) {
@@ -190,10 +238,6 @@ public class DurableMatching {
 			// if ranking is empty then no matches
 			if (ranking.isEmpty()) {
 				threshold = -1;
-
-				// write no matches
-				writeTopMatches();
-
 				return;
 			}
 
@@ -203,7 +247,7 @@ public class DurableMatching {
 				threshold = sc;
 		}
 
-		matchesFound = new HashSet<>();
+		matchesFound = new MatchSignatures(pg.size());
 		minimumCheckedTheta = threshold;
 	}
 
@@ -226,7 +270,7 @@ public class DurableMatching {
 		}
 
 		// store the minimum checked threshold
-		if (!topMatches.isEmpty() && maxDuration > threshold)
+		if (numberOfMatches != 0 && maxDuration > threshold)
 			threshold = maxDuration;
 
 		minimumCheckedTheta = threshold;
@@ -241,7 +285,7 @@ public class DurableMatching {
 	 */
 	private int getMaxThreshold() {
 		int sc;
-		TreeMap<Integer, Set<Node>> ranking;
+		TreeMap<Integer, Set<TemporalNode>> ranking;
 		threshold = minimumCheckedTheta;
 
 		for (PatternNode p : pg.getNodes()) {
@@ -268,7 +312,7 @@ public class DurableMatching {
 		}
 
 		// store the minimum checked threshold
-		if (!topMatches.isEmpty() && maxDuration > threshold) {
+		if (numberOfMatches != 0 && maxDuration > threshold) {
 			threshold = maxDuration;
 		}
 
@@ -281,43 +325,139 @@ public class DurableMatching {
 	 * Dual-based isomorphism algorithm
 	 * 
 	 * @param c
+	 *            null if the domains have been pruned
 	 * @param depth
+	 * @param trail
 	 * @throws Exception
 	 */
-	private void searchPattern(Map<Integer, Set<Node>> c, int depth) throws Exception {
+	private void searchPattern(NodeBitmap[] c, int depth, CandidateTrail trail) throws Exception {
 		// increase the counters for recursions
-		totalRecursions++;
-		recursionsPerTheta++;
-
-		if (System.currentTimeMillis() > (timeLimit + Config.TIME_LIMIT * 1000)) {
-
-			if (!resultsHaveBeenStored)
-				writeTopMatches();
+		totalRecursions.increment();
+		recursionsPerTheta.increment();
 
+		if (stopped.get()) {
+			throw new Exception("Search stopped");
+		} else if (System.currentTimeMillis() > (timeLimit + Config.TIME_LIMIT * 1000)) {
+			stopped.set(true);
 			throw new Exception("Reach time limit");
-		} else if (topMatches.size() == Config.MAX_MATCHES && maxDuration >= threshold
+		} else if (numberOfMatches == Config.MAX_MATCHES && maxDuration >= threshold
 				&& rankingStrategy != Config.MIN_RANKING) {
-			writeTopMatches();
+			stopped.set(true);
 			throw new Exception("Reach maxMatches");
-		} else if (depth == pg.size() && c.size() != 0) {
+		} else if (c != null && depth == pg.size()) {
 			computeMatchTime(c);
-		} else if (!c.isEmpty()) {
+		} else if (c != null && depth < forkDepth) {
+			int[] us = new int[c[depth].cardinality()];
+			int n = 0, u;
+
+			for (PrimitiveIterator.OfInt it = c[depth].iterator(); it.hasNext();) {
+				u = it.nextInt();
+
+				if (!trail.isAssigned(u))
+					us[n++] = u;
+			}
+
+			// the candidates are split in a bounded number of chunks, each
+			// searched by a task with its own copy of the domains
+			int chunks = Math.min(n, Config.SEARCH_THREADS * FORK_CHUNKS_PER_THREAD);
+			List<SearchTask> tasks = new ArrayList<>(chunks);
+
+			for (int i = 0; i < chunks; i++)
+				tasks.add(new SearchTask(c.clone(), depth, us, (int) ((long) n * i / chunks),
+						(int) ((long) n * (i + 1) / chunks), trail.copy()));
+
+			SearchPool.invokeAll(tasks);
+		} else if (c != null) {
+			int u, mark;
+
+			for (PrimitiveIterator.OfInt it = c[depth].iterator(); it.hasNext();) {
+				u = it.nextInt();
+
+				// u must not be matched to a previous pattern node
+				if (!trail.isAssigned(u)) {
+					mark = trail.mark();
+
+					expand(c, depth, u, trail);
 
-			for (Node u : c.get(depth)) {
+					// restore c for the next u
+					trail.undo(c, mark);
+				}
+			}
+		}
+	}
 
-				if (!contains(c, u, depth)) {
-					Map<Integer, Set<Node>> cCopy = new HashMap<Integer, Set<Node>>(c.size());
+	/**
+	 * Match u to pattern node depth and search the next pattern nodes
+	 * 
+	 * @param c
+	 * @param depth
+	 * @param u
+	 * @param trail
+	 * @throws Exception
+	 */
+	private void expand(NodeBitmap[] c, int depth, int u, CandidateTrail trail) throws Exception {
+		// set c(depth) = u
+		trail.assign(c, depth, u);
 
-					// copy
-					for (Entry<Integer, Set<Node>> entry : c.entrySet())
-						cCopy.put(entry.getKey(), new HashSet<>(entry.getValue()));
+		searchPattern(refine(c, trail) ? c : null, depth + 1, trail);
+	}
 
-					// set cCopy(depth) = u
-					cCopy.get(depth).clear();
-					cCopy.get(depth).add(u);
+	/**
+	 * Fork join task of searchPattern, it matches in turn the candidates
+	 * us[from .. to - 1] to pattern node depth or searches from depth when us
+	 * is null
+	 */
+	private class SearchTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final NodeBitmap[] c;
+
+		private final int depth, from, to;
+
+		private final int[] us;
+
+		private final CandidateTrail trail;
+
+		/**
+		 * Constructor
+		 * 
+		 * @param c
+		 * @param depth
+		 * @param us
+		 * @param from
+		 * @param to
+		 * @param trail
+		 */
+		SearchTask(NodeBitmap[] c, int depth, int[] us, int from, int to, CandidateTrail trail) {
+			this.c = c;
+			this.depth = depth;
+			this.us = us;
+			this.from = from;
+			this.to = to;
+			this.trail = trail;
+		}
 
-					searchPattern(refine(cCopy), depth + 1);
+		@Override
+		protected void compute() {
+			try {
+				if (us == null) {
+					searchPattern(c, depth, trail);
+					return;
 				}
+
+				for (int i = from, mark; i < to; i++) {
+					mark = trail.mark();
+
+					expand(c, depth, us[i], trail);
+
+					// restore c for the next u
+					trail.undo(c, mark);
+				}
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new CompletionException(e);
 			}
 		}
 	}
@@ -326,75 +466,85 @@ public class DurableMatching {
 	 * Compute for each match the minimum time
 	 * 
 	 * @param match
+	 * @throws IOException
 	 */
-	private void computeMatchTime(Map<Integer, Set<Node>> match) {
+	private void computeMatchTime(NodeBitmap[] match) throws IOException {
 		BitSet inter = (BitSet) iQ.clone();
-		Node src, trg;
+		TemporalNode src, trg;
 		int[] signAr = null;
-		String matchSign = null;
 		int duration = -1;
 
 		if (rankingStrategy != Config.MIN_RANKING)
-			signAr = new int[match.size()];
+			signAr = new int[match.length];
 
 		// check the edges
 		for (PatternNode pn : pg.getNodes()) {
 
 			// get the node that have same label as pn
-			src = match.get(pn.getID()).iterator().next();
+			src = lvg.getNodeByOrdinal(match[pn.getID()].first());
 
 			if (rankingStrategy != Config.MIN_RANKING)
 				signAr[pn.getID()] = src.getID();
 
 			// intersect labels lifespan
-			inter.and(src.getLabel(pn.getLabel()));
+			src.getLabel(pn.getLabel()).andInto(inter);
 
 			// get adjacency of pn
 			for (PatternNode child : pn.getAdjacency()) {
 
 				// get the node that have the same label as child
-				trg = match.get(child.getID()).iterator().next();
-
-				inter.and(src.getEdge(trg).getLifetime());
+				trg = lvg.getNodeByOrdinal(match[child.getID()].first());
 
-				if (continuously) {
-					BitSet shifted = (BitSet) inter.clone();
-					int count = 0;
-
-					while (!shifted.isEmpty()) {
-						shifted.and(shifted.get(1, shifted.length()));
-						count++;
-					}
-
-					// duration of continuous matches
-					duration = count;
-				}
+				src.getEdge(trg).getLifetime().andInto(inter);
 			}
+
+			// duration of continuous matches after the last edge of pn
+			if (continuously && !pn.getAdjacency().isEmpty())
+				duration = Lifespan.longestRun(inter);
 		}
 
 		if (!continuously)
 			duration = inter.cardinality();
 
+		updateTopMatches(duration, inter, signAr, match);
+	}
+
+	/**
+	 * Store the match if its duration is at least the max duration, search
+	 * workers call it concurrently
+	 * 
+	 * @param duration
+	 * @param inter
+	 * @param signAr
+	 * @param match
+	 * @throws IOException
+	 */
+	private synchronized void updateTopMatches(int duration, BitSet inter, int[] signAr, NodeBitmap[] match)
+			throws IOException {
+
+		// the search has been stopped
+		if (stopped.get())
+			return;
+
 		if (rankingStrategy == Config.MAX_RANKING && maxTmpMatchDur < duration)
 			maxTmpMatchDur = duration;
 
 		// if match has already been found or duration is min
-		if (duration == 0 || (rankingStrategy != Config.MIN_RANKING
-				&& matchesFound.contains((matchSign = Arrays.toString(signAr)))))
+		if (duration == 0 || (rankingStrategy != Config.MIN_RANKING && matchesFound.contains(signAr)))
 			return;
 
 		// if duration equals to max duration
 		if (duration == maxDuration) {
 
 			// when topMatches is full, then do not store any other match
-			if (topMatches.size() == Config.MAX_MATCHES)
+			if (numberOfMatches == Config.MAX_MATCHES)
 				return;
 
 			// add the sign
 			if (rankingStrategy != Config.MIN_RANKING)
-				matchesFound.add(matchSign);
+				matchesFound.add(signAr, duration);
 
-			topMatches.add(new Match(duration, inter, match));
+			storeMatch(new Match(duration, inter, CandidateTrail.snapshot(match, lvg)));
 		} else if (duration > maxDuration) {
 
 			// update the max duration
@@ -405,40 +555,60 @@ public class DurableMatching {
 				threshold = maxDuration;
 
 			// clean the old matches
-			topMatches.clear();
+			if (matchSpool != null)
+				matchSpool.reset();
+			else
+				topMatches.clear();
+
+			numberOfMatches = 0;
 
 			if (rankingStrategy != Config.MIN_RANKING) {
 				matchesFound.clear();
 
 				// add the sign
-				matchesFound.add(matchSign);
+				matchesFound.add(signAr, duration);
 			}
 
 			// add match
-			topMatches.add(new Match(duration, inter, match));
+			storeMatch(new Match(duration, inter, CandidateTrail.snapshot(match, lvg)));
 		}
 	}
 
+	/**
+	 * Keep the match in memory or append it to the spool
+	 * 
+	 * @param m
+	 * @throws IOException
+	 */
+	private void storeMatch(Match m) throws IOException {
+		if (matchSpool == null)
+			topMatches.add(m);
+		else if (Config.BINARY_RESULTS)
+			matchSpool.append(MatchRecords.encode(m, pg.size()));
+		else
+			matchSpool.append(formatMatch(m));
+
+		numberOfMatches++;
+	}
+
 	/**
 	 * Dual Simulation Algorithm
 	 * 
 	 * @param c
-	 * @return
+	 * @return null if there is not any match
 	 */
-	private Map<Integer, Set<Node>> DUALSIM(Map<Integer, Set<Node>> c) {
+	private NodeBitmap[] DUALSIM(NodeBitmap[] c) {
 		// variables
 		boolean changed = true;
-		Node phiNode;
-		List<Node> phiTemp;
-		Set<Node> newC;
-		Set<Node> phiqNode;
+		TemporalNode phiNode;
+		NodeBitmap newC;
+		NodeBitmap phiqNode;
 
 		while (changed) {
 			changed = false;
 
 			// for each node of pattern graph
 			for (PatternNode qNode : pg.getNodes()) {
-				phiqNode = c.get(qNode.getID());
 
 				// for each node of pattern graph get the adjacency
 				for (PatternNode qChild : qNode.getAdjacency()) {
@@ -446,48 +616,47 @@ public class DurableMatching {
 					// newPhi corresponds to phi(qChild). This update
 					// will ensure that phi(qChild) will contain only
 					// nodes which have a parent in phi(qNode)
-					newC = new HashSet<Node>();
+					newC = new NodeBitmap();
 
-					// for all phi(qNode)
-					for (Iterator<Node> i = phiqNode.iterator(); i.hasNext();) {
-						// phiTemp corresponds to the children of
-						// phiNode which are contained in phi(qChild).
-						// This checks both if phiNode has children in
-						// phi(qChild) (of which it must have at least one)
-						// and also builds newPhi to contain only those
-						// nodes in phi(qChild) which also have a parent
-						// in phi(qNode)
-						phiNode = i.next();
-
-						phiTemp = timeJoin(phiNode, qNode, qChild, c);
-
-						if (phiTemp.isEmpty()) {
-							// remove phiNode from phi(qNode)
-							i.remove();
-
-							// if phi(u) is empty then return an empty set
-							if (phiqNode.isEmpty())
-								return Collections.emptyMap();
+					// nodes of phi(qNode) that have a child in phi(qChild)
+					phiqNode = new NodeBitmap();
 
+					// for all phi(qNode)
+					for (PrimitiveIterator.OfInt i = c[qNode.getID()].iterator(); i.hasNext();) {
+						// timeJoin finds the children of phiNode which
+						// are contained in phi(qChild). This checks both
+						// if phiNode has children in phi(qChild) (of
+						// which it must have at least one) and also
+						// builds newPhi to contain only those nodes in
+						// phi(qChild) which also have a parent in
+						// phi(qNode), F'(u') = F'(u') UNION F_{v}(u')
+						phiNode = lvg.getNodeByOrdinal(i.nextInt());
+
+						if (timeJoin(phiNode, qNode, qChild, c, newC))
+							phiqNode.add(phiNode.getOrdinal());
+						else
+							// phiNode is removed from phi(qNode)
 							changed = true;
-						} else
-							// F'(u') = F'(u') UNION F_{v}(u')
-							newC.addAll(phiTemp);
 					}
 
+					// if phi(u) is empty then return an empty set
+					if (phiqNode.isEmpty())
+						return null;
+
+					c[qNode.getID()] = phiqNode;
+
 					// if any phi(i) is empty, then there is no
 					// isomorphic subgraph.
 					if (newC.isEmpty())
-						return Collections.emptyMap();
+						return null;
 
 					// if F'(i') is smaller than F(u')
-					if (newC.size() < c.get(qChild.getID()).size())
+					if (newC.cardinality() < c[qChild.getID()].cardinality())
 						changed = true;
 
 					// every node in phi(qChild) must have at least one parent
 					// in phi(qNode)
-					// newPhi.retainAll(phi.get(qChild.getID()));
-					c.put(qChild.getID(), newC);
+					c[qChild.getID()] = newC;
 				}
 			}
 		}
@@ -495,152 +664,126 @@ public class DurableMatching {
 	}
 
 	/**
-	 * Refinement procedure
+	 * Refinement procedure, every change of c is recorded in the trail
 	 * 
 	 * @param c
-	 * @return
+	 * @param trail
+	 * @return false if a domain becomes empty
 	 */
-	private Map<Integer, Set<Node>> refine(Map<Integer, Set<Node>> c) {
-		Node phiNode;
-		List<Node> phiTemp;
-		Set<Node> c_;
+	private boolean refine(NodeBitmap[] c, CandidateTrail trail) {
+		TemporalNode phiNode;
+		NodeBitmap c_, phiqNode;
 
 		for (PatternNode qNode : pg.getNodes()) {
 
 			for (PatternNode qChild : qNode.getAdjacency()) {
-				c_ = new HashSet<Node>();
+				c_ = new NodeBitmap();
+				phiqNode = new NodeBitmap();
 
-				for (Iterator<Node> j = c.get(qNode.getID()).iterator(); j.hasNext();) {
-					phiNode = j.next();
-					phiTemp = timeJoin(phiNode, qNode, qChild, c);
+				for (PrimitiveIterator.OfInt j = c[qNode.getID()].iterator(); j.hasNext();) {
+					phiNode = lvg.getNodeByOrdinal(j.nextInt());
 
-					if (phiTemp.isEmpty())
-						j.remove();
-					else
-						c_.addAll(phiTemp);
+					if (timeJoin(phiNode, qNode, qChild, c, c_))
+						phiqNode.add(phiNode.getOrdinal());
 				}
 
 				if (c_.isEmpty())
-					return Collections.emptyMap();
+					return false;
+
+				// replace the domains only if they are narrowed
+				if (phiqNode.cardinality() < c[qNode.getID()].cardinality())
+					trail.replace(c, qNode.getID(), phiqNode);
 
-				// newPhi.retainAll(phi.get(qChild.getID()));
-				c.put(qChild.getID(), c_);
+				if (c_.cardinality() < c[qChild.getID()].cardinality())
+					trail.replace(c, qChild.getID(), c_);
 			}
 		}
-		return c;
+		return true;
 	}
 
 	/**
-	 * Intersection between Nodes that are live during the interval iQ
+	 * Intersection between Nodes that are live during the interval iQ, the
+	 * ordinals of the joined children are added to intersection
 	 * 
 	 * @param n
 	 * @param p
 	 * @param chil
-	 * @return
+	 * @param phi
+	 * @param intersection
+	 * @return true if n has at least one joined child
 	 */
-	private List<Node> timeJoin(Node n, PatternNode p, PatternNode chil, Map<Integer, Set<Node>> phi) {
-		List<Node> intersection = new ArrayList<Node>();
-		BitSet inter, labelLife = (BitSet) iQ.clone();
-
-		labelLife.and(n.getLabel(p.getLabel()));
-
-		if (n.getAdjacency().size() < phi.get(chil.getID()).size()) {
-			for (Edge e : n.getAdjacency()) {
-				if (phi.get(chil.getID()).contains(e.getTarget())) {
-
-					inter = (BitSet) labelLife.clone();
-
-					// intersection between edge lifespan and interval I
-					inter.and(e.getLifetime());
-
-					inter.and(e.getTarget().getLabel(chil.getLabel()));
-
-					if (continuously) {
-						BitSet shifted = (BitSet) inter.clone();
-						int count = 0;
-
-						while (!shifted.isEmpty()) {
-							shifted.and(shifted.get(1, shifted.length()));
-							count++;
-						}
-
-						if (count < threshold)
-							continue;
-
-					} else if (inter.cardinality() < threshold) {
-						// check if target is pruned or it is not alive during
-						// interval
-						continue;
-					}
-
-					intersection.add(e.getTarget());
+	private boolean timeJoin(TemporalNode n, PatternNode p, PatternNode chil, NodeBitmap[] phi, NodeBitmap intersection) {
+		int words = iQWords.length;
+		TimeJoinScratch scratch = TimeJoinScratch.get(words);
+		NodeBitmap candidates = phi[chil.getID()];
+		boolean found = false;
+
+		System.arraycopy(iQWords, 0, scratch.label, 0, words);
+		n.getLabel(p.getLabel()).andInto(scratch.label, words);
+
+		if (n.getAdjacency().size() < candidates.cardinality()) {
+			for (TemporalEdge e : n.getAdjacency()) {
+				if (candidates.contains(e.getTarget().getOrdinal())
+						&& isAlive(e, e.getTarget(), chil, scratch, words)) {
+					intersection.add(e.getTarget().getOrdinal());
+					found = true;
 				}
 			}
 		} else {
-			Edge e;
+			TemporalEdge e;
+			TemporalNode ngb;
 
-			for (Node ngb : phi.get(chil.getID())) {
+			for (PrimitiveIterator.OfInt it = candidates.iterator(); it.hasNext();) {
+				ngb = lvg.getNodeByOrdinal(it.nextInt());
 
 				// if n has neighbor ngb
-				if ((e = n.getEdge(ngb)) != null) {
-
-					inter = (BitSet) labelLife.clone();
-
-					// intersection between edge lifespan and interval I
-					inter.and(e.getLifetime());
-
-					inter.and(ngb.getLabel(chil.getLabel()));
-
-					if (continuously) {
-						BitSet shifted = (BitSet) inter.clone();
-						int count = 0;
-
-						while (!shifted.isEmpty()) {
-							shifted.and(shifted.get(1, shifted.length()));
-							count++;
-						}
-
-						if (count < threshold)
-							continue;
-
-					} else if (inter.cardinality() < threshold) {
-						// check if target is pruned or it is not alive
-						// during interval
-						continue;
-					}
-
-					intersection.add(ngb);
+				if ((e = n.getEdge(ngb)) != null && isAlive(e, ngb, chil, scratch, words)) {
+					intersection.add(ngb.getOrdinal());
+					found = true;
 				}
 			}
 		}
 
-		return intersection;
+		return found;
 	}
 
 	/**
-	 * Check if node u is contained in at least one candidate set
-	 *
-	 * @param phi
-	 * @param u
-	 * @param depth
+	 * Check if edge e to trg is alive during the label lifespan kept in
+	 * scratch for at least threshold time instants
+	 * 
+	 * @param e
+	 * @param trg
+	 * @param chil
+	 * @param scratch
+	 * @param words
 	 * @return
 	 */
-	private boolean contains(Map<Integer, Set<Node>> phi, Node u, int depth) {
-		for (int i = 0; i < depth; i++)
-			if (phi.get(i).contains(u))
-				return true;
+	private boolean isAlive(TemporalEdge e, TemporalNode trg, PatternNode chil, TimeJoinScratch scratch, int words) {
+		long[] inter = scratch.inter;
+
+		System.arraycopy(scratch.label, 0, inter, 0, words);
+
+		// intersection between edge lifespan and interval I
+		e.getLifetime().andInto(inter, words);
 
-		return false;
+		trg.getLabel(chil.getLabel()).andInto(inter, words);
+
+		if (continuously)
+			return Lifespan.longestRun(inter, words) >= threshold;
+
+		// check if target is pruned or it is not alive during interval
+		return TimeJoinScratch.cardinality(inter, words) >= threshold;
 	}
 
 	/**
-	 * Generates candidates per pattern node using TiLa or TiNLa or CTiNLa
+	 * Generates candidates per pattern node using the label postings or TiNLa or
+	 * CTiNLa
 	 * 
 	 * @param lvg
 	 * @param pg
 	 * @param iQ
 	 */
-	private void filterCandidates(Graph lvg, PatternGraph pg, BitSet iQ) {
+	private void filterCandidates(TemporalGraph lvg, PatternGraph pg, BitSet iQ) {
 
 		// create TiNLa & CTiNLa indexes
 		if (Config.TINLA_ENABLED || Config.CTINLA_ENABLED)
@@ -649,43 +792,52 @@ public class DurableMatching {
 		boolean found;
 		BitSet lifespan;
 		int label, sc;
-		Node n;
-		Set<Node> pnode_candidates, current_candidates, candidates;
-		TreeMap<Integer, Set<Node>> rankingBasedOnlifespanScore;
+		TemporalNode n;
+		Node indexed;
+		Lifespan labelLifespan;
+		LabelPostings postings;
+		Set<TemporalNode> current_candidates;
+		TreeMap<Integer, Set<TemporalNode>> rankingBasedOnlifespanScore;
 
-		// store for a label the candidate nodes
-		Map<Integer, Set<Node>> labelCandidates = new HashMap<>();
+		// store for a label its ranking when it depends only on the label
+		Map<Integer, TreeMap<Integer, Set<TemporalNode>>> labelRanking = new HashMap<>();
 
 		for (PatternNode pn : pg.getNodes()) {
 
-			pnode_candidates = new HashSet<Node>();
-			rankingBasedOnlifespanScore = new TreeMap<>();
-			Rank.put(pn.getID(), rankingBasedOnlifespanScore);
-
 			// get pattern's node label
 			label = pn.getLabel();
 
-			// if label exist then retrieve its candidates for all iQ
-			if ((candidates = labelCandidates.get(label)) != null)
-				pnode_candidates.addAll(candidates);
-			else {
-				// for each time instant get the candidates and add them in a
-				// set
-				for (Iterator<Integer> it = iQ.stream().iterator(); it.hasNext();)
-					pnode_candidates.addAll(lvg.getTiLaNodes(it.next(), label));
-
-				// candidates for label in iQ
-				labelCandidates.put(label, new HashSet<>(pnode_candidates));
+			// without TiNLa & CTiNLa pattern nodes with the same label share
+			// their ranking
+			if (!Config.TINLA_ENABLED && !Config.CTINLA_ENABLED
+					&& (rankingBasedOnlifespanScore = labelRanking.get(label)) != null) {
+				Rank.put(pn.getID(), rankingBasedOnlifespanScore);
+				continue;
 			}
 
-			for (Iterator<Node> it = pnode_candidates.iterator(); it.hasNext();) {
-				n = it.next();
+			rankingBasedOnlifespanScore = new TreeMap<>();
+			Rank.put(pn.getID(), rankingBasedOnlifespanScore);
+			labelRanking.put(label, rankingBasedOnlifespanScore);
+
+			// nodes with the label sorted by ordinal
+			postings = lvg.getLabelPostings(label);
 
-				lifespan = (BitSet) iQ.clone();
-				lifespan.and(n.getLabel(label));
+			for (int i = 0; i < postings.size(); i++) {
+				labelLifespan = postings.getLifespan(i);
+
+				// duration of the label in iQ
+				if ((sc = labelLifespan.cardinality(iQ)) == 0)
+					continue;
+
+				n = lvg.getNodeByOrdinal(postings.getOrdinal(i));
+
+				// neighbor indexes are kept only by heap nodes
+				indexed = Config.TINLA_ENABLED || Config.CTINLA_ENABLED ? (Node) n : null;
 
 				// if TiNLa is enabled
 				if (Config.TINLA_ENABLED) {
+					lifespan = (BitSet) iQ.clone();
+					labelLifespan.andInto(lifespan);
 					found = true;
 
 					// for each r
@@ -700,15 +852,13 @@ public class DurableMatching {
 
 							if (Config.BLOOM_ENABLED) {
 
-								if ((lifespan = n.getTiNLaBloom(r, l, lifespan)) == null || lifespan.isEmpty()) {
+								if ((lifespan = indexed.getTiNLaBloom(r, l, lifespan)) == null || lifespan.isEmpty()) {
 									found = false;
-									it.remove();
 									break;
 								}
 
-							} else if ((lifespan = n.getTiNLa(r, l, lifespan)) == null || lifespan.isEmpty()) {
+							} else if ((lifespan = indexed.getTiNLa(r, l, lifespan)) == null || lifespan.isEmpty()) {
 								found = false;
-								it.remove();
 								break;
 							}
 						}
@@ -719,7 +869,11 @@ public class DurableMatching {
 
 					if (!found)
 						continue;
+
+					sc = lifespan.cardinality();
 				} else if (Config.CTINLA_ENABLED) {
+					lifespan = (BitSet) iQ.clone();
+					labelLifespan.andInto(lifespan);
 					found = true;
 
 					// for each r
@@ -734,17 +888,15 @@ public class DurableMatching {
 
 							if (Config.BLOOM_ENABLED) {
 
-								if ((lifespan = n.getCTiNLaBloom(r, l.getKey(), l.getValue(), lifespan)) == null
+								if ((lifespan = indexed.getCTiNLaBloom(r, l.getKey(), l.getValue(), lifespan)) == null
 										|| lifespan.isEmpty()) {
 									found = false;
-									it.remove();
 									break;
 								}
 
-							} else if ((lifespan = n.getCTiNLa(r, l.getKey(), l.getValue(), lifespan)) == null
+							} else if ((lifespan = indexed.getCTiNLa(r, l.getKey(), l.getValue(), lifespan)) == null
 									|| lifespan.isEmpty()) {
 								found = false;
-								it.remove();
 								break;
 							}
 						}
@@ -755,16 +907,12 @@ public class DurableMatching {
 
 					if (!found)
 						continue;
-				} else if (lifespan.isEmpty()) { // check if Node n lifespan
-													// does not contain any bit
-					it.remove();
-					continue;
+
+					sc = lifespan.cardinality();
 				}
 
 				// a node must have duration >= Config.AT_LEAST
-				if ((sc = lifespan.cardinality()) < Config.AT_LEAST)
-					it.remove();
-				else {
+				if (sc >= Config.AT_LEAST) {
 					if ((current_candidates = rankingBasedOnlifespanScore.get(sc)) == null) {
 						current_candidates = new HashSet<>();
 						rankingBasedOnlifespanScore.put(sc, current_candidates);
@@ -786,7 +934,8 @@ public class DurableMatching {
 	private void filterCandidatesByPath(Graph lvg, PatternGraph pg, BitSet iQ) {
 
 		// support variables
-		Set<Node> currentCandidates = null;
+		Set<TemporalNode> currentCandidates = null;
+		Set<Node> pathNodes;
 		nodeScore sc;
 
 		// ranking for each pattern node
@@ -801,22 +950,25 @@ public class DurableMatching {
 			// initiate score structure
 			score.put(pn, new HashMap<>());
 
+			// ids of the pattern node paths, -1 for the paths of no node
+			int[] paths = pg.getTiPLa(pn.getID(), lvg.getLabelPaths());
+
 			// for each iQ true bit
 			for (Iterator<Integer> it = iQ.stream().iterator(); it.hasNext();) {
 				int t = it.next();
-				Set<Node> intersection = null;
+				Set<TemporalNode> intersection = null;
 
 				// for all pattern node pn paths
-				for (String path : pg.getTiPLa(pn.getID())) {
+				for (int path : paths) {
 
 					// get the candidates from the time path index
-					if ((currentCandidates = lvg.getTiPLa().get(t).get(path)) != null) {
+					if ((pathNodes = lvg.getTiPLa().get(t).get(path)) != null) {
 
 						if (intersection == null) {
 							intersection = new HashSet<>();
-							intersection.addAll(currentCandidates);
+							intersection.addAll(pathNodes);
 						} else
-							intersection.retainAll(currentCandidates);
+							intersection.retainAll(pathNodes);
 					} else
 						break;
 
@@ -825,7 +977,7 @@ public class DurableMatching {
 				}
 
 				if (intersection != null) {
-					for (Node n : intersection) {
+					for (TemporalNode n : intersection) {
 
 						if ((sc = score.get(pn).get(n.getID())) == null) {
 							sc = new nodeScore();
@@ -839,7 +991,7 @@ public class DurableMatching {
 
 		int durScore;
 		PatternNode pn;
-		TreeMap<Integer, Set<Node>> patternNodeRank;
+		TreeMap<Integer, Set<TemporalNode>> patternNodeRank;
 
 		for (Entry<PatternNode, Map<Integer, nodeScore>> entry : score.entrySet()) {
 			pn = entry.getKey();
@@ -874,57 +1026,46 @@ public class DurableMatching {
 	 */
 	private void filterCandidatesByPathBloom(Graph lvg, PatternGraph pg, BitSet iQ) {
 
-		TreeMap<Integer, Set<Node>> rankingBasedOnlifespanScore;
+		TreeMap<Integer, Set<TemporalNode>> rankingBasedOnlifespanScore;
 
 		// create pattern path index
 		pg.createPathIndex();
 
-		Set<Node> pnode_candidates, candidates, current_candidates;
+		LabelPostings postings;
+		Set<TemporalNode> current_candidates;
 		int label, sc;
 		Node n;
 		BitSet lifespan;
 
-		// store for a label the candidate nodes
-		Map<Integer, Set<Node>> labelCandidates = new HashMap<>();
-
 		for (PatternNode pn : pg.getNodes()) {
 
-			pnode_candidates = new HashSet<Node>();
-
 			rankingBasedOnlifespanScore = new TreeMap<>();
 			Rank.put(pn.getID(), rankingBasedOnlifespanScore);
 
 			// get pattern's node label
 			label = pn.getLabel();
 
-			// if label exist then retrieve its candidates for all iQ
-			if ((candidates = labelCandidates.get(label)) != null)
-				pnode_candidates.addAll(candidates);
-			else {
-				// for each time instant get the candidates and add them in a
-				// set
-				for (Iterator<Integer> it = iQ.stream().iterator(); it.hasNext();)
-					pnode_candidates.addAll(lvg.getTiLaNodes(it.next(), label));
-
-				// candidates for label in iQ
-				labelCandidates.put(label, new HashSet<>(pnode_candidates));
-			}
+			// nodes with the label sorted by ordinal
+			postings = lvg.getLabelPostings(label);
 
 			boolean found = true;
 
-			for (Iterator<Node> it = pnode_candidates.iterator(); it.hasNext();) {
+			for (int i = 0; i < postings.size(); i++) {
+
+				// skip nodes without the label in iQ before cloning it
+				if (postings.getLifespan(i).cardinality(iQ) == 0)
+					continue;
 
-				n = it.next();
+				n = lvg.getNodeByOrdinal(postings.getOrdinal(i));
 				found = true;
 
 				lifespan = (BitSet) iQ.clone();
-				lifespan.and(n.getLabel(label));
+				postings.getLifespan(i).andInto(lifespan);
 
 				// for all pattern node pn paths
 				for (String path : pg.getTiPLa(pn.getID())) {
 
 					if ((lifespan = n.TiPLaBloomContains(path, lifespan)) == null || lifespan.isEmpty()) {
-						it.remove();
 						found = false;
 						break;
 					}
@@ -933,9 +1074,7 @@ public class DurableMatching {
 				if (!found)
 					continue;
 
-				if ((sc = lifespan.cardinality()) < Config.AT_LEAST)
-					it.remove();
-				else {
+				if ((sc = lifespan.cardinality()) >= Config.AT_LEAST) {
 
 					if ((current_candidates = rankingBasedOnlifespanScore.get(sc)) == null) {
 						current_candidates = new HashSet<>();
@@ -953,7 +1092,7 @@ public class DurableMatching {
 	 * 
 	 * @throws IOException
 	 */
-	private void writeTopMatches() throws IOException {
+	private synchronized void writeTopMatches() throws IOException {
 		totalTime = (System.currentTimeMillis() - timeLimit);
 
 		String outputPath = Config.PATH_OUTPUT + "most_pq=" + pg.getID() + "_";
@@ -986,8 +1125,50 @@ public class DurableMatching {
 		else if (rankingStrategy == Config.MIN_RANKING)
 			outputPath += "r=z";
 
-		FileWriter w = new FileWriter(outputPath);
-		w.write("Total matches: " + topMatches.size() + "\n");
+		if (Config.BINARY_RESULTS)
+			writeBinaryMatches(outputPath + ".bin");
+		else
+			writeTextMatches(outputPath);
+
+		if (matchSpool != null)
+			matchSpool.close();
+
+		topMatches = null;
+	}
+
+	/**
+	 * Write the matches in the binary result format
+	 * 
+	 * @param outputPath
+	 * @throws IOException
+	 */
+	private void writeBinaryMatches(String outputPath) throws IOException {
+		int matches = threshold == -1 ? 0 : numberOfMatches;
+
+		try (FileChannel channel = MatchRecords.create(outputPath)) {
+			MatchRecords.writeHeader(channel, pg.getID(), pg.size(), matches);
+
+			if (matches == 0)
+				return;
+
+			// the matches are already encoded in the spool
+			if (matchSpool != null)
+				matchSpool.transferTo(channel);
+			else
+				MatchRecords.write(channel, topMatches, pg.size());
+		}
+	}
+
+	/**
+	 * Write the matches as text
+	 * 
+	 * @param outputPath
+	 * @throws IOException
+	 */
+	private void writeTextMatches(String outputPath) throws IOException {
+		FileChannel channel = MatchRecords.create(outputPath);
+		Writer w = new BufferedWriter(Channels.newWriter(channel, "UTF-8"));
+		w.write("Total matches: " + numberOfMatches + "\n");
 		w.write("Pattern Graph: " + pg.getID() + "\n");
 		w.write("Recursive Time: " + totalTime + " (ms)\n");
 		w.write("sizeOfRank: " + sizeOfRank + "\n");
@@ -995,118 +1176,116 @@ public class DurableMatching {
 		w.write("-------------------\n");
 
 		// no matches found
-		if (threshold == -1 || topMatches.isEmpty()) {
+		if (threshold == -1 || numberOfMatches == 0) {
 
 			for (PatternNode pn : pg.getNodes())
 				w.write("pg_id: " + pn.getID() + "\n");
 
 			w.write("No matches");
-			w.close();
-			resultsHaveBeenStored = true;
-			return;
+		} else if (matchSpool != null) {
+			// the matches are already formatted in the spool
+			w.flush();
+			matchSpool.transferTo(channel);
+		} else {
+			for (Match mI : topMatches)
+				w.write(formatMatch(mI));
 		}
 
-		// stores the result
-		String result = "";
+		w.close();
+	}
 
-		for (Match mI : topMatches) {
+	/**
+	 * Returns the output text of a match
+	 * 
+	 * @param mI
+	 * @return
+	 */
+	private String formatMatch(Match mI) {
+		StringBuilder result = new StringBuilder();
 
-			result += "------ Match ------\n";
+		result.append("------ Match ------\n");
 
-			if (continuously) {
-				BitSet shifted = (BitSet) mI.getLifespan().clone();
-				int count = 0;
+		if (continuously)
+			result.append("Duration : " + Lifespan.longestRun(mI.getLifespan()) + "\n");
+		else
+			result.append("Duration : " + mI.getLifespan().cardinality() + "\n");
 
-				while (!shifted.isEmpty()) {
-					shifted.and(shifted.get(1, shifted.length()));
-					count++;
-				}
+		result.append("Lifetime : " + mI.getLifespan() + "\n");
+		result.append("------ Nodes ------\n");
 
-				result += "Duration : " + count + "\n";
-			} else
-				result += "Duration : " + mI.getLifespan().cardinality() + "\n";
+		for (Entry<Integer, Set<TemporalNode>> mg : mI.getMatch().entrySet()) {
 
-			result += "Lifetime : " + mI.getLifespan() + "\n";
-			result += "------ Nodes ------\n";
+			// pattern node id
+			result.append("pg_id: " + mg.getKey() + "\n");
 
-			for (Entry<Integer, Set<Node>> mg : mI.getMatch().entrySet()) {
+			for (TemporalNode n : mg.getValue())
+				// graph node id
+				result.append("g_id: " + n.getID() + "\n");
+		}
 
-				// pattern node id
-				result += "pg_id: " + mg.getKey() + "\n";
+		TemporalNode src, trg;
 
-				for (Node n : mg.getValue())
-					// graph node id
-					result += "g_id: " + n.getID() + "\n";
-			}
+		// write the edges
+		for (PatternNode pn_src : pg.getNodes()) {
 
-			Node src, trg;
+			// graph node
+			src = mI.getMatch().get(pn_src.getID()).iterator().next();
 
-			// write the edges
-			for (PatternNode pn_src : pg.getNodes()) {
+			// for each adjacent node
+			for (PatternNode pn_trg : pn_src.getAdjacency()) {
 
 				// graph node
-				src = mI.getMatch().get(pn_src.getID()).iterator().next();
-
-				// for each adjacent node
-				for (PatternNode pn_trg : pn_src.getAdjacency()) {
-
-					// graph node
-					trg = mI.getMatch().get(pn_trg.getID()).iterator().next();
+				trg = mI.getMatch().get(pn_trg.getID()).iterator().next();
 
-					if (src.getEdge(trg) != null) {
+				if (src.getEdge(trg) != null) {
 
-						if (Config.PATH_DATASET.contains("dblp"))
-							result += LoaderDBLP.getAuthors().get(src.getID()) + ": ";
+					if (Config.PATH_DATASET.contains("dblp"))
+						result.append(LoaderDBLP.getAuthors().get(src.getID()) + ": ");
 
-						result += "(" + pn_src.getID() + ") ---> (" + pn_trg.getID() + ")";
+					result.append("(" + pn_src.getID() + ") ---> (" + pn_trg.getID() + ")");
 
-						if (Config.PATH_DATASET.contains("dblp"))
-							result += " " + LoaderDBLP.getAuthors().get(trg.getID());
+					if (Config.PATH_DATASET.contains("dblp"))
+						result.append(" " + LoaderDBLP.getAuthors().get(trg.getID()));
 
-						result += "\n";
-					}
+					result.append("\n");
 				}
 			}
+		}
 
-			if (Config.ENABLE_STAR_LABEL_PATTERNS) {
-				BitSet life;
-				String result_star = "-------------------\n------Star Label Info------\n";
+		if (Config.ENABLE_STAR_LABEL_PATTERNS) {
+			BitSet life;
+			String result_star = "-------------------\n------Star Label Info------\n";
 
-				for (PatternNode pn : pg.getNodes()) {
+			for (PatternNode pn : pg.getNodes()) {
 
-					if (pn.getLabel() == Config.STAR_LABEL) {
+				if (pn.getLabel() == Config.STAR_LABEL) {
 
-						src = mI.getMatch().get(pn.getID()).iterator().next();
+					src = mI.getMatch().get(pn.getID()).iterator().next();
 
-						result_star += src.getID() + "--> ";
+					result_star += src.getID() + "--> ";
 
-						for (Entry<Integer, BitSet> entry : src.getLabels().entrySet()) {
+					for (Entry<Integer, Lifespan> entry : src.getLabels().entrySet()) {
 
-							if (entry.getKey() == Config.STAR_LABEL)
-								continue;
+						if (entry.getKey() == Config.STAR_LABEL)
+							continue;
 
-							life = (BitSet) entry.getValue().clone();
-							life.and(mI.getLifespan());
+						life = entry.getValue().toBitSet();
+						life.and(mI.getLifespan());
 
-							if (!life.isEmpty())
-								result_star += " " + entry.getKey() + ": " + life;
-						}
-						result_star += "\n";
+						if (!life.isEmpty())
+							result_star += " " + entry.getKey() + ": " + life;
 					}
+					result_star += "\n";
 				}
-
-				if (!result_star.endsWith("-"))
-					result += result_star;
 			}
 
-			result += "-------------------\n";
+			if (!result_star.endsWith("-"))
+				result.append(result_star);
 		}
 
-		w.write(result);
-		w.flush();
-		w.close();
-		topMatches = null;
-		resultsHaveBeenStored = true;
+		result.append("-------------------\n");
+
+		return result.toString();
 	}
 
 	/**
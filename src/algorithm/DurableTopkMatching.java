@@ -3,27 +3,36 @@ package algorithm;
 import java.util.BitSet;
 
 import graph.pattern.PatternGraph;
-import graph.version.Graph;
+import graph.version.TemporalGraph;
+import graph.version.Lifespan;
 
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
+import java.util.List;
 import java.util.PriorityQueue;
+import java.util.PrimitiveIterator;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 
 import graph.pattern.PatternNode;
-import graph.version.Edge;
+import graph.version.Graph;
 import graph.version.Node;
+import graph.version.TemporalEdge;
+import graph.version.TemporalNode;
+import graph.version.index.LabelPostings;
+import graph.version.index.NodeBitmap;
 import graph.version.loader.LoaderDBLP;
 import system.Config;
 
@@ -36,26 +45,32 @@ public class DurableTopkMatching {
 
 	// ===============================================================
 
+	// version graph
+	private TemporalGraph lvg;
+
 	// pattern graph
 	private PatternGraph pg;
 
 	// query interval
 	private BitSet iQ;
 
+	// query interval as words
+	private long[] iQWords;
+
 	// Ranking structure
-	private Map<Integer, TreeMap<Integer, Set<Node>>> Rank = new HashMap<>();
+	private Map<Integer, TreeMap<Integer, Set<TemporalNode>>> Rank = new HashMap<>();
 
-	// threshold for time duration
-	private int threshold = Integer.MAX_VALUE;
+	// threshold for time duration, read by all search workers
+	private volatile int threshold = Integer.MAX_VALUE;
 
 	// if the query is continuously
 	private boolean continuously;
 
 	// stores the k matches
-	private PriorityQueue<Match> topkMatches = new PriorityQueue<Match>(11, new MatchComparator(false));
+	private TopkCollector topkMatches;
 
-	// stores all the matches
-	private Set<String> matchesFound;
+	// signatures of the matches that can still be ranked
+	private MatchSignatures matchesFound;
 
 	// stores all chosen theta
 	private Set<Integer> durationMaxRanking;
@@ -64,7 +79,7 @@ public class DurableTopkMatching {
 	private int minimumCheckedTheta;
 
 	// total recursions
-	private long totalRecursions = 0;
+	private LongAdder totalRecursions = new LongAdder();
 
 	// size of rank
 	private int sizeOfRank = 0;
@@ -76,7 +91,7 @@ public class DurableTopkMatching {
 	private int canDSize = Integer.MAX_VALUE;
 
 	// recursions per theta run
-	private int recursionsPerTheta;
+	private LongAdder recursionsPerTheta = new LongAdder();
 
 	// total time of algorithm
 	private long totalTime;
@@ -86,8 +101,18 @@ public class DurableTopkMatching {
 	// time limit for algorithm execution
 	private long timeLimit;
 
-	// used in recursive calls to avoid duplicate writes
-	private boolean resultsHaveBeenStored = false;
+	// set once by the worker that reaches the time limit or finds the top-k
+	// solution, the other workers stop on their next recursion
+	private final AtomicBoolean stopped = new AtomicBoolean();
+
+	// if the top-k solution has been found
+	private volatile boolean topkFound = false;
+
+	// search levels that are split in fork join tasks
+	private int forkDepth;
+
+	// fork join tasks per search thread at a split level
+	private static final int FORK_CHUNKS_PER_THREAD = 4;
 
 	// ===============================================================
 
@@ -102,23 +127,28 @@ public class DurableTopkMatching {
 	 * @param rankingStrategy
 	 * @throws IOException
 	 */
-	public DurableTopkMatching(Graph lvg, PatternGraph pg, BitSet iQ, boolean continuously, int k, int rankingStrategy)
+	public DurableTopkMatching(TemporalGraph lvg, PatternGraph pg, BitSet iQ, boolean continuously, int k, int rankingStrategy)
 			throws IOException {
 
 		this.k = k;
+		this.topkMatches = new TopkCollector(k);
+		this.lvg = lvg;
 		this.pg = pg;
 		this.iQ = iQ;
+		this.iQWords = iQ.toLongArray();
+		this.forkDepth = Config.SEARCH_THREADS > 1 ? Config.PARALLEL_SEARCH_DEPTH : 0;
 		this.continuously = continuously;
 		this.rankingStrategy = rankingStrategy;
 
 		timeLimit = System.currentTimeMillis();
 
-		// if TiPLa index is activated use the path filtering
+		// if TiPLa index is activated use the path filtering, path indexes
+		// are kept only by the heap graph
 		if (Config.TIPLA_ENABLED)
 			if (Config.BLOOM_ENABLED)
-				filterCandidatesByPathBloom(lvg, pg, iQ);
+				filterCandidatesByPathBloom((Graph) lvg, pg, iQ);
 			else
-				filterCandidatesByPath(lvg, pg, iQ);
+				filterCandidatesByPath((Graph) lvg, pg, iQ);
 		else
 			filterCandidates(lvg, pg, iQ);
 
@@ -126,30 +156,32 @@ public class DurableTopkMatching {
 		initializeThreshold();
 
 		int pn_id;
-		Set<Node> c;
-		Map<Integer, Set<Node>> initC;
-		TreeMap<Integer, Set<Node>> tree;
-		NavigableMap<Integer, Set<Node>> submap;
+		NodeBitmap c;
+		NodeBitmap[] initC;
+		TreeMap<Integer, Set<TemporalNode>> tree;
+		NavigableMap<Integer, Set<TemporalNode>> submap;
 
 		while (threshold > 1) {
 
-			initC = new HashMap<>();
+			initC = new NodeBitmap[pg.size()];
 
-			for (Entry<Integer, TreeMap<Integer, Set<Node>>> entry : Rank.entrySet()) {
+			for (Entry<Integer, TreeMap<Integer, Set<TemporalNode>>> entry : Rank.entrySet()) {
 				pn_id = entry.getKey();
 				tree = entry.getValue();
 
-				c = new HashSet<>();
-				initC.put(pn_id, c);
+				c = new NodeBitmap();
+				initC[pn_id] = c;
 
 				submap = tree.subMap(tree.ceilingKey(threshold), true, tree.lastKey(), true);
 
-				for (Entry<Integer, Set<Node>> en : submap.entrySet())
-					c.addAll(en.getValue());
+				for (Entry<Integer, Set<TemporalNode>> en : submap.entrySet()) {
+					for (TemporalNode n : en.getValue())
+						c.add(n.getOrdinal());
+				}
 
 				// store the smaller candidate size
-				if (canDSize > c.size())
-					canDSize = c.size();
+				if (canDSize > c.cardinality())
+					canDSize = c.cardinality();
 			}
 
 			if (Config.DEBUG)
@@ -161,8 +193,12 @@ public class DurableTopkMatching {
 
 			try {
 
-				recursionsPerTheta = 0;
-				searchPattern(initC, 0);
+				recursionsPerTheta.reset();
+
+				if (forkDepth > 0)
+					SearchPool.invoke(new SearchTask(initC, 0, null, 0, 0, new CandidateTrail()));
+				else
+					searchPattern(initC, 0, new CandidateTrail());
 
 				if (Config.DEBUG)
 					System.out.println("\tRecursions: " + recursionsPerTheta + "\n");
@@ -172,15 +208,14 @@ public class DurableTopkMatching {
 				if (Config.DEBUG)
 					System.out.println("Terminated Message: " + e.getMessage());
 
-				// in case we found the to-k solution
-				if (e.getMessage().contains("found"))
+				// in case we found the top-k solution
+				if (topkFound)
 					break;
 			}
 
-			// top-k heap is full & shortest duration >= current threshold
-			// there are two cases now
-			if (topkMatches == null
-					|| (topkMatches.size() == k && topkMatches.peek().getDuration() >= minimumCheckedTheta))
+			// search stopped or top-k heap is full & shortest duration >=
+			// current threshold, there are two cases now
+			if (stopped.get() || (topkMatches.size() == k && topkMatches.peek().getDuration() >= minimumCheckedTheta))
 				break;
 
 			// get new threshold
@@ -198,9 +233,12 @@ public class DurableTopkMatching {
 			}
 		}
 
-		// write matches
-		if (topkMatches != null)
-			writeTopMatches();
+		// the spilled signatures are deleted
+		if (matchesFound != null)
+			matchesFound.close();
+
+		// write matches, all search workers have finished
+		writeTopMatches();
 	}
 
 	/**
@@ -209,7 +247,7 @@ public class DurableTopkMatching {
 	 * @throws IOException
 	 */
 	private void initializeThreshold() throws IOException {
-		TreeMap<Integer, Set<Node>> ranking;
+		TreeMap<Integer, Set<TemporalNode>> ranking;
 		int cand;
 
 		// for each pattern node
@@ -220,9 +258,6 @@ public class DurableTopkMatching {
 			// if ranking is empty then no matches
 			if (ranking.isEmpty()) {
 				threshold = -1;
-
-				// write no matches
-				writeTopMatches();
 				return;
 			}
 
@@ -249,7 +284,7 @@ public class DurableTopkMatching {
 					threshold = ranking.firstKey();
 				}
 
-				matchesFound = new HashSet<>();
+				matchesFound = new MatchSignatures(pg.size());
 				durationMaxRanking = new HashSet<>();
 
 				// store which threshold has been chosen
@@ -301,7 +336,7 @@ public class DurableTopkMatching {
 	 */
 	private int getMaxThreshold() {
 		int sc;
-		TreeMap<Integer, Set<Node>> ranking;
+		TreeMap<Integer, Set<TemporalNode>> ranking;
 		threshold = minimumCheckedTheta;
 
 		for (PatternNode p : pg.getNodes()) {
@@ -335,174 +370,277 @@ public class DurableTopkMatching {
 	 * Dual-based isomorphism algorithm
 	 * 
 	 * @param c
+	 *            null if the domains have been pruned
 	 * @param depth
+	 * @param trail
 	 * @throws Exception
 	 */
-	private void searchPattern(Map<Integer, Set<Node>> c, int depth) throws Exception {
+	private void searchPattern(NodeBitmap[] c, int depth, CandidateTrail trail) throws Exception {
 		// increase the counters for recursions
-		totalRecursions++;
-		recursionsPerTheta++;
-
-		if (System.currentTimeMillis() > (timeLimit + Config.TIME_LIMIT * 1000)) {
-
-			if (!resultsHaveBeenStored)
-				writeTopMatches();
+		totalRecursions.increment();
+		recursionsPerTheta.increment();
 
+		if (stopped.get()) {
+			throw new Exception("Search stopped");
+		} else if (System.currentTimeMillis() > (timeLimit + Config.TIME_LIMIT * 1000)) {
+			stopped.set(true);
 			throw new Exception("Reach time limit");
-		} else if (depth == pg.size() && c.size() != 0) {
+		} else if (c != null && depth == pg.size()) {
 			computeMatchTime(c);
-		} else if (!c.isEmpty()) {
+		} else if (c != null && depth < forkDepth) {
+			int[] us = new int[c[depth].cardinality()];
+			int n = 0, u;
+
+			for (PrimitiveIterator.OfInt it = c[depth].iterator(); it.hasNext();) {
+				u = it.nextInt();
 
-			for (Node u : c.get(depth)) {
+				if (!trail.isAssigned(u))
+					us[n++] = u;
+			}
+
+			// the candidates are split in a bounded number of chunks, each
+			// searched by a task with its own copy of the domains
+			int chunks = Math.min(n, Config.SEARCH_THREADS * FORK_CHUNKS_PER_THREAD);
+			List<SearchTask> tasks = new ArrayList<>(chunks);
+
+			for (int i = 0; i < chunks; i++)
+				tasks.add(new SearchTask(c.clone(), depth, us, (int) ((long) n * i / chunks),
+						(int) ((long) n * (i + 1) / chunks), trail.copy()));
 
-				if (!contains(c, u, depth)) {
-					Map<Integer, Set<Node>> cCopy = new HashMap<Integer, Set<Node>>(c.size());
+			SearchPool.invokeAll(tasks);
+		} else if (c != null) {
+			int u, mark;
 
-					// copy
-					for (Entry<Integer, Set<Node>> entry : c.entrySet())
-						cCopy.put(entry.getKey(), new HashSet<>(entry.getValue()));
+			for (PrimitiveIterator.OfInt it = c[depth].iterator(); it.hasNext();) {
+				u = it.nextInt();
 
-					// set cCopy(depth) = u
-					cCopy.get(depth).clear();
-					cCopy.get(depth).add(u);
+				// u must not be matched to a previous pattern node
+				if (!trail.isAssigned(u)) {
+					mark = trail.mark();
 
-					searchPattern(refine(cCopy), depth + 1);
+					expand(c, depth, u, trail);
+
+					// restore c for the next u
+					trail.undo(c, mark);
 				}
 			}
 		}
 	}
 
+	/**
+	 * Match u to pattern node depth and search the next pattern nodes
+	 * 
+	 * @param c
+	 * @param depth
+	 * @param u
+	 * @param trail
+	 * @throws Exception
+	 */
+	private void expand(NodeBitmap[] c, int depth, int u, CandidateTrail trail) throws Exception {
+		// set c(depth) = u
+		trail.assign(c, depth, u);
+
+		searchPattern(refine(c, trail) ? c : null, depth + 1, trail);
+	}
+
+	/**
+	 * Fork join task of searchPattern, it matches in turn the candidates
+	 * us[from .. to - 1] to pattern node depth or searches from depth when us
+	 * is null
+	 */
+	private class SearchTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final NodeBitmap[] c;
+
+		private final int depth, from, to;
+
+		private final int[] us;
+
+		private final CandidateTrail trail;
+
+		/**
+		 * Constructor
+		 * 
+		 * @param c
+		 * @param depth
+		 * @param us
+		 * @param from
+		 * @param to
+		 * @param trail
+		 */
+		SearchTask(NodeBitmap[] c, int depth, int[] us, int from, int to, CandidateTrail trail) {
+			this.c = c;
+			this.depth = depth;
+			this.us = us;
+			this.from = from;
+			this.to = to;
+			this.trail = trail;
+		}
+
+		@Override
+		protected void compute() {
+			try {
+				if (us == null) {
+					searchPattern(c, depth, trail);
+					return;
+				}
+
+				for (int i = from, mark; i < to; i++) {
+					mark = trail.mark();
+
+					expand(c, depth, us[i], trail);
+
+					// restore c for the next u
+					trail.undo(c, mark);
+				}
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new CompletionException(e);
+			}
+		}
+	}
+
 	/**
 	 * Compute for each match the minimum time
 	 * 
 	 * @param match
 	 * @throws Exception
 	 */
-	private void computeMatchTime(Map<Integer, Set<Node>> match) throws Exception {
+	private void computeMatchTime(NodeBitmap[] match) throws Exception {
 		BitSet inter = (BitSet) iQ.clone();
-		Node src, trg;
-		String matchSign = null;
+		TemporalNode src, trg;
 		int[] signAr = null;
 		int duration = -1;
 
 		if (rankingStrategy != Config.MIN_RANKING)
-			signAr = new int[match.size()];
+			signAr = new int[match.length];
 
 		// check the edges
 		for (PatternNode pn : pg.getNodes()) {
 
 			// get the node that have same label as pn
-			src = match.get(pn.getID()).iterator().next();
+			src = lvg.getNodeByOrdinal(match[pn.getID()].first());
 
 			if (rankingStrategy != Config.MIN_RANKING)
 				signAr[pn.getID()] = src.getID();
 
 			// intersect labels lifespan
-			inter.and(src.getLabel(pn.getLabel()));
+			src.getLabel(pn.getLabel()).andInto(inter);
 
 			// get adjacency of pn
 			for (PatternNode child : pn.getAdjacency()) {
 
 				// get the node that have the same label as child
-				trg = match.get(child.getID()).iterator().next();
-
-				inter.and(src.getEdge(trg).getLifetime());
-
-				if (continuously) {
-					BitSet shifted = (BitSet) inter.clone();
-					int count = 0;
+				trg = lvg.getNodeByOrdinal(match[child.getID()].first());
 
-					while (!shifted.isEmpty()) {
-						shifted.and(shifted.get(1, shifted.length()));
-						count++;
-					}
-
-					// duration of continuous matches
-					duration = count;
-				}
+				src.getEdge(trg).getLifetime().andInto(inter);
 			}
+
+			// duration of continuous matches after the last edge of pn
+			if (continuously && !pn.getAdjacency().isEmpty())
+				duration = Lifespan.longestRun(inter);
 		}
 
 		if (!continuously)
 			duration = inter.cardinality();
 
-		// if match has already been found or duration is min
-		if (duration == 0 || (rankingStrategy != Config.MIN_RANKING
-				&& matchesFound.contains((matchSign = Arrays.toString(signAr)))))
+		// if the search has been stopped, match has already been found or
+		// duration is min
+		if (stopped.get() || duration == 0
+				|| (rankingStrategy != Config.MIN_RANKING && !matchesFound.add(signAr, duration)))
 			return;
 
-		int minDuration;
+		final int matchDuration = duration;
+		int minDuration = topkMatches.offer(duration,
+				() -> new Match(matchDuration, inter, CandidateTrail.snapshot(match, lvg)));
+
+		// less than k matches before the offer
+		if (minDuration == -1)
+			return;
 
 		// ranking strategy is min
 		if (rankingStrategy == Config.MIN_RANKING) {
 
-			if (topkMatches.size() < k) {
-
-				// add the match
-				topkMatches.offer(new Match(duration, inter, match));
-
-			} else if (topkMatches.size() == k) {
+			// update threshold
+			raiseMinThreshold(minDuration);
+		} else {
+			// a match found again below the k-th duration is rejected by the
+			// collector, so its signature is not needed
+			matchesFound.retainAtLeast(minDuration);
 
-				// if we have found k matches and the new match has higher
-				// duration
-				if (duration > (minDuration = topkMatches.peek().getDuration())) {
+			// if ranking strategy is max or maxbinary update threshold
+			if (duration >= minDuration)
+				raiseThreshold(minDuration);
+		}
+	}
 
-					// remove match with the min duration
-					topkMatches.poll();
+	/**
+	 * Raise the threshold above the shortest duration of the top-k matches.
+	 * Workers may report a stale minDuration, so the threshold only grows
+	 * 
+	 * @param minDuration
+	 */
+	private synchronized void raiseMinThreshold(int minDuration) {
+		if (threshold < minDuration + 1)
+			threshold = minDuration + 1;
+	}
 
-					// add the match
-					topkMatches.offer(new Match(duration, inter, match));
+	/**
+	 * Raise the threshold to the shortest duration of the top-k matches
+	 * 
+	 * @param minDuration
+	 * @throws Exception
+	 *             when the top-k solution has been found
+	 */
+	private synchronized void raiseThreshold(int minDuration) throws Exception {
 
-					// get shortest duration in the heap
-					minDuration = topkMatches.peek().getDuration();
-				}
+		if (threshold <= minDuration) {
 
-				// update threshold
-				threshold = minDuration + 1;
+			if (threshold == minDuration)
+				threshold++;
+			else
+				threshold = minDuration;
+
+			// if threshold minDuration + 1 has already been checked
+			if (durationMaxRanking.contains(threshold)) {
+				// top-k solution has been found
+				topkFound = true;
+				stopped.set(true);
+				throw new Exception("Top-k found");
+			} else {
+				// inform structure that this threshold has been chosen
+				durationMaxRanking.add(threshold);
 			}
-		} else { // if ranking strategy is max or maxbinary
-
-			// add the sign
-			matchesFound.add(matchSign);
-
-			if (topkMatches.size() < k) {
-
-				// add the match
-				topkMatches.offer(new Match(duration, inter, match));
-
-			} else if (topkMatches.size() == k) {
+		}
+	}
 
-				// if we have found k matches and the new match has higher
-				// duration
-				if (duration > (minDuration = topkMatches.peek().getDuration())) {
+	/**
+	 * Write the matches from the longest to the shortest in the binary result
+	 * format
+	 * 
+	 * @param outputPath
+	 * @throws IOException
+	 */
+	private void writeBinaryMatches(String outputPath) throws IOException {
+		List<Match> matches = new ArrayList<>();
 
-					// remove match with the min duration as and its sign
-					topkMatches.poll();
+		if (threshold != -1) {
+			// reverse minHeap to maxHeap in order to ouput from high to low
+			PriorityQueue<Match> topkMatchesR = new PriorityQueue<Match>(11, new MatchComparator(true));
 
-					// add the match
-					topkMatches.offer(new Match(duration, inter, match));
+			while (!topkMatches.isEmpty())
+				topkMatchesR.offer(topkMatches.poll());
 
-				} else if (duration < minDuration)
-					return;
+			while (!topkMatchesR.isEmpty())
+				matches.add(topkMatchesR.poll());
+		}
 
-				// update threshold
-				if (threshold <= (minDuration = topkMatches.peek().getDuration())) {
-
-					if (threshold == minDuration)
-						threshold++;
-					else
-						threshold = minDuration;
-
-					// if threshold minDuration + 1 has already been checked
-					if (durationMaxRanking.contains(threshold)) {
-						// top-k solution has been found
-						throw new Exception("Top-k found");
-					} else {
-						// inform structure that this threshold has been chosen
-						durationMaxRanking.add(threshold);
-					}
-				}
-			}
+		try (FileChannel channel = MatchRecords.create(outputPath)) {
+			MatchRecords.writeHeader(channel, pg.getID(), pg.size(), matches.size());
+			MatchRecords.write(channel, matches, pg.size());
 		}
 	}
 
@@ -510,22 +648,20 @@ public class DurableTopkMatching {
 	 * Dual Simulation Algorithm
 	 * 
 	 * @param c
-	 * @return
+	 * @return null if there is not any match
 	 */
-	private Map<Integer, Set<Node>> DUALSIM(Map<Integer, Set<Node>> c) {
+	private NodeBitmap[] DUALSIM(NodeBitmap[] c) {
 		// variables
 		boolean changed = true;
-		Node phiNode;
-		List<Node> phiTemp;
-		Set<Node> newC;
-		Set<Node> phiqNode;
+		TemporalNode phiNode;
+		NodeBitmap newC;
+		NodeBitmap phiqNode;
 
 		while (changed) {
 			changed = false;
 
 			// for each node of pattern graph
 			for (PatternNode qNode : pg.getNodes()) {
-				phiqNode = c.get(qNode.getID());
 
 				// for each node of pattern graph get the adjacency
 				for (PatternNode qChild : qNode.getAdjacency()) {
@@ -533,48 +669,47 @@ public class DurableTopkMatching {
 					// newPhi corresponds to phi(qChild). This update
 					// will ensure that phi(qChild) will contain only
 					// nodes which have a parent in phi(qNode)
-					newC = new HashSet<Node>();
+					newC = new NodeBitmap();
 
-					// for all phi(qNode)
-					for (Iterator<Node> i = phiqNode.iterator(); i.hasNext();) {
-						// phiTemp corresponds to the children of
-						// phiNode which are contained in phi(qChild).
-						// This checks both if phiNode has children in
-						// phi(qChild) (of which it must have at least one)
-						// and also builds newPhi to contain only those
-						// nodes in phi(qChild) which also have a parent
-						// in phi(qNode)
-						phiNode = i.next();
-
-						phiTemp = timeJoin(phiNode, qNode, qChild, c);
-
-						if (phiTemp.isEmpty()) {
-							// remove phiNode from phi(qNode)
-							i.remove();
-
-							// if phi(u) is empty then return an empty set
-							if (phiqNode.isEmpty())
-								return Collections.emptyMap();
+					// nodes of phi(qNode) that have a child in phi(qChild)
+					phiqNode = new NodeBitmap();
 
+					// for all phi(qNode)
+					for (PrimitiveIterator.OfInt i = c[qNode.getID()].iterator(); i.hasNext();) {
+						// timeJoin finds the children of phiNode which
+						// are contained in phi(qChild). This checks both
+						// if phiNode has children in phi(qChild) (of
+						// which it must have at least one) and also
+						// builds newPhi to contain only those nodes in
+						// phi(qChild) which also have a parent in
+						// phi(qNode), F'(u') = F'(u') UNION F_{v}(u')
+						phiNode = lvg.getNodeByOrdinal(i.nextInt());
+
+						if (timeJoin(phiNode, qNode, qChild, c, newC))
+							phiqNode.add(phiNode.getOrdinal());
+						else
+							// phiNode is removed from phi(qNode)
 							changed = true;
-						} else
-							// F'(u') = F'(u') UNION F_{v}(u')
-							newC.addAll(phiTemp);
 					}
 
+					// if phi(u) is empty then return an empty set
+					if (phiqNode.isEmpty())
+						return null;
+
+					c[qNode.getID()] = phiqNode;
+
 					// if any phi(i) is empty, then there is no
 					// isomorphic subgraph.
 					if (newC.isEmpty())
-						return Collections.emptyMap();
+						return null;
 
 					// if F'(i') is smaller than F(u')
-					if (newC.size() < c.get(qChild.getID()).size())
+					if (newC.cardinality() < c[qChild.getID()].cardinality())
 						changed = true;
 
 					// every node in phi(qChild) must have at least one parent
 					// in phi(qNode)
-					// newPhi.retainAll(phi.get(qChild.getID()));
-					c.put(qChild.getID(), newC);
+					c[qChild.getID()] = newC;
 				}
 			}
 		}
@@ -582,154 +717,126 @@ public class DurableTopkMatching {
 	}
 
 	/**
-	 * Refinement procedure
+	 * Refinement procedure, every change of c is recorded in the trail
 	 * 
 	 * @param c
-	 * @return
+	 * @param trail
+	 * @return false if a domain becomes empty
 	 */
-	private Map<Integer, Set<Node>> refine(Map<Integer, Set<Node>> c) {
-		Node phiNode;
-		List<Node> phiTemp;
-		Set<Node> c_;
+	private boolean refine(NodeBitmap[] c, CandidateTrail trail) {
+		TemporalNode phiNode;
+		NodeBitmap c_, phiqNode;
 
 		for (PatternNode qNode : pg.getNodes()) {
 
 			for (PatternNode qChild : qNode.getAdjacency()) {
-				c_ = new HashSet<Node>();
+				c_ = new NodeBitmap();
+				phiqNode = new NodeBitmap();
 
-				for (Iterator<Node> j = c.get(qNode.getID()).iterator(); j.hasNext();) {
-					phiNode = j.next();
-					phiTemp = timeJoin(phiNode, qNode, qChild, c);
+				for (PrimitiveIterator.OfInt j = c[qNode.getID()].iterator(); j.hasNext();) {
+					phiNode = lvg.getNodeByOrdinal(j.nextInt());
 
-					if (phiTemp.isEmpty())
-						j.remove();
-					else
-						c_.addAll(phiTemp);
+					if (timeJoin(phiNode, qNode, qChild, c, c_))
+						phiqNode.add(phiNode.getOrdinal());
 				}
 
 				if (c_.isEmpty())
-					return Collections.emptyMap();
+					return false;
 
-				// newPhi.retainAll(phi.get(qChild.getID()));
-				c.put(qChild.getID(), c_);
+				// replace the domains only if they are narrowed
+				if (phiqNode.cardinality() < c[qNode.getID()].cardinality())
+					trail.replace(c, qNode.getID(), phiqNode);
+
+				if (c_.cardinality() < c[qChild.getID()].cardinality())
+					trail.replace(c, qChild.getID(), c_);
 			}
 		}
-		return c;
+		return true;
 	}
 
 	/**
-	 * Intersection between Nodes that are live during the interval iQ
+	 * Intersection between Nodes that are live during the interval iQ, the
+	 * ordinals of the joined children are added to intersection
 	 * 
 	 * @param n
 	 * @param p
 	 * @param chil
-	 * @return
+	 * @param phi
+	 * @param intersection
+	 * @return true if n has at least one joined child
 	 */
-	private List<Node> timeJoin(Node n, PatternNode p, PatternNode chil, Map<Integer, Set<Node>> phi) {
-		List<Node> intersection = new ArrayList<Node>();
-		BitSet inter, labelLife = (BitSet) iQ.clone();
-
-		labelLife.and(n.getLabel(p.getLabel()));
-
-		if (n.getAdjacency().size() < phi.get(chil.getID()).size()) {
-
-			for (Edge e : n.getAdjacency()) {
-
-				if (phi.get(chil.getID()).contains(e.getTarget())) {
-
-					inter = (BitSet) labelLife.clone();
-
-					// intersection between edge lifespan and interval I
-					inter.and(e.getLifetime());
-
-					inter.and(e.getTarget().getLabel(chil.getLabel()));
-
-					if (continuously) {
-						BitSet shifted = (BitSet) inter.clone();
-						int count = 0;
-
-						while (!shifted.isEmpty()) {
-							shifted.and(shifted.get(1, shifted.length()));
-							count++;
-						}
-
-						if (count < threshold)
-							continue;
-
-					} else if (inter.cardinality() < threshold) {
-						// check if target is pruned or it is not alive during
-						// interval
-						continue;
-					}
-
-					intersection.add(e.getTarget());
+	private boolean timeJoin(TemporalNode n, PatternNode p, PatternNode chil, NodeBitmap[] phi, NodeBitmap intersection) {
+		int words = iQWords.length;
+		TimeJoinScratch scratch = TimeJoinScratch.get(words);
+		NodeBitmap candidates = phi[chil.getID()];
+		boolean found = false;
+
+		System.arraycopy(iQWords, 0, scratch.label, 0, words);
+		n.getLabel(p.getLabel()).andInto(scratch.label, words);
+
+		if (n.getAdjacency().size() < candidates.cardinality()) {
+			for (TemporalEdge e : n.getAdjacency()) {
+				if (candidates.contains(e.getTarget().getOrdinal())
+						&& isAlive(e, e.getTarget(), chil, scratch, words)) {
+					intersection.add(e.getTarget().getOrdinal());
+					found = true;
 				}
 			}
 		} else {
-			Edge e;
+			TemporalEdge e;
+			TemporalNode ngb;
 
-			for (Node ngb : phi.get(chil.getID())) {
+			for (PrimitiveIterator.OfInt it = candidates.iterator(); it.hasNext();) {
+				ngb = lvg.getNodeByOrdinal(it.nextInt());
 
 				// if n has neighbor ngb
-				if ((e = n.getEdge(ngb)) != null) {
-
-					inter = (BitSet) labelLife.clone();
-
-					// intersection between edge lifespan and interval I
-					inter.and(e.getLifetime());
-
-					inter.and(ngb.getLabel(chil.getLabel()));
-
-					if (continuously) {
-						BitSet shifted = (BitSet) inter.clone();
-						int count = 0;
-
-						while (!shifted.isEmpty()) {
-							shifted.and(shifted.get(1, shifted.length()));
-							count++;
-						}
-
-						if (count < threshold)
-							continue;
-
-					} else if (inter.cardinality() < threshold) {
-						// check if target is pruned or it is not alive
-						// during interval
-						continue;
-					}
-
-					intersection.add(ngb);
+				if ((e = n.getEdge(ngb)) != null && isAlive(e, ngb, chil, scratch, words)) {
+					intersection.add(ngb.getOrdinal());
+					found = true;
 				}
 			}
 		}
 
-		return intersection;
+		return found;
 	}
 
 	/**
-	 * Check if node u is contained in at least one candidate set
-	 *
-	 * @param phi
-	 * @param u
-	 * @param depth
+	 * Check if edge e to trg is alive during the label lifespan kept in
+	 * scratch for at least threshold time instants
+	 * 
+	 * @param e
+	 * @param trg
+	 * @param chil
+	 * @param scratch
+	 * @param words
 	 * @return
 	 */
-	private boolean contains(Map<Integer, Set<Node>> phi, Node u, int depth) {
-		for (int i = 0; i < depth; i++)
-			if (phi.get(i).contains(u))
-				return true;
+	private boolean isAlive(TemporalEdge e, TemporalNode trg, PatternNode chil, TimeJoinScratch scratch, int words) {
+		long[] inter = scratch.inter;
+
+		System.arraycopy(scratch.label, 0, inter, 0, words);
+
+		// intersection between edge lifespan and interval I
+		e.getLifetime().andInto(inter, words);
+
+		trg.getLabel(chil.getLabel()).andInto(inter, words);
+
+		if (continuously)
+			return Lifespan.longestRun(inter, words) >= threshold;
 
-		return false;
+		// check if target is pruned or it is not alive during interval
+		return TimeJoinScratch.cardinality(inter, words) >= threshold;
 	}
 
 	/**
-	 * Generates candidates per pattern node using TiLa or TiNLa or CTiNLa
+	 * Generates candidates per pattern node using the label postings or TiNLa or
+	 * CTiNLa
 	 * 
 	 * @param lvg
 	 * @param pg
 	 * @param iQ
 	 */
-	private void filterCandidates(Graph lvg, PatternGraph pg, BitSet iQ) {
+	private void filterCandidates(TemporalGraph lvg, PatternGraph pg, BitSet iQ) {
 
 		// create TiNLa & CTiNLa indexes
 		if (Config.TINLA_ENABLED || Config.CTINLA_ENABLED)
@@ -738,43 +845,52 @@ public class DurableTopkMatching {
 		boolean found;
 		BitSet lifespan;
 		int label, sc;
-		Node n;
-		Set<Node> pnode_candidates, current_candidates, candidates;
-		TreeMap<Integer, Set<Node>> rankingBasedOnlifespanScore;
+		TemporalNode n;
+		Node indexed;
+		Lifespan labelLifespan;
+		LabelPostings postings;
+		Set<TemporalNode> current_candidates;
+		TreeMap<Integer, Set<TemporalNode>> rankingBasedOnlifespanScore;
 
-		// store for a label the candidate nodes
-		Map<Integer, Set<Node>> labelCandidates = new HashMap<>();
+		// store for a label its ranking when it depends only on the label
+		Map<Integer, TreeMap<Integer, Set<TemporalNode>>> labelRanking = new HashMap<>();
 
 		for (PatternNode pn : pg.getNodes()) {
 
-			pnode_candidates = new HashSet<Node>();
-			rankingBasedOnlifespanScore = new TreeMap<>();
-			Rank.put(pn.getID(), rankingBasedOnlifespanScore);
-
 			// get pattern's node label
 			label = pn.getLabel();
 
-			// if label exist then retrieve its candidates for all iQ
-			if ((candidates = labelCandidates.get(label)) != null)
-				pnode_candidates.addAll(candidates);
-			else {
-				// for each time instant get the candidates and add them in a
-				// set
-				for (Iterator<Integer> it = iQ.stream().iterator(); it.hasNext();)
-					pnode_candidates.addAll(lvg.getTiLaNodes(it.next(), label));
-
-				// candidates for label in iQ
-				labelCandidates.put(label, new HashSet<>(pnode_candidates));
+			// without TiNLa & CTiNLa pattern nodes with the same label share
+			// their ranking
+			if (!Config.TINLA_ENABLED && !Config.CTINLA_ENABLED
+					&& (rankingBasedOnlifespanScore = labelRanking.get(label)) != null) {
+				Rank.put(pn.getID(), rankingBasedOnlifespanScore);
+				continue;
 			}
 
-			for (Iterator<Node> it = pnode_candidates.iterator(); it.hasNext();) {
-				n = it.next();
+			rankingBasedOnlifespanScore = new TreeMap<>();
+			Rank.put(pn.getID(), rankingBasedOnlifespanScore);
+			labelRanking.put(label, rankingBasedOnlifespanScore);
 
-				lifespan = (BitSet) iQ.clone();
-				lifespan.and(n.getLabel(label));
+			// nodes with the label sorted by ordinal
+			postings = lvg.getLabelPostings(label);
+
+			for (int i = 0; i < postings.size(); i++) {
+				labelLifespan = postings.getLifespan(i);
+
+				// duration of the label in iQ
+				if ((sc = labelLifespan.cardinality(iQ)) == 0)
+					continue;
+
+				n = lvg.getNodeByOrdinal(postings.getOrdinal(i));
+
+				// neighbor indexes are kept only by heap nodes
+				indexed = Config.TINLA_ENABLED || Config.CTINLA_ENABLED ? (Node) n : null;
 
 				// if TiNLa is enabled
 				if (Config.TINLA_ENABLED) {
+					lifespan = (BitSet) iQ.clone();
+					labelLifespan.andInto(lifespan);
 					found = true;
 
 					// for each r
@@ -789,15 +905,13 @@ public class DurableTopkMatching {
 
 							if (Config.BLOOM_ENABLED) {
 
-								if ((lifespan = n.getTiNLaBloom(r, l, lifespan)) == null || lifespan.isEmpty()) {
+								if ((lifespan = indexed.getTiNLaBloom(r, l, lifespan)) == null || lifespan.isEmpty()) {
 									found = false;
-									it.remove();
 									break;
 								}
 
-							} else if ((lifespan = n.getTiNLa(r, l, lifespan)) == null || lifespan.isEmpty()) {
+							} else if ((lifespan = indexed.getTiNLa(r, l, lifespan)) == null || lifespan.isEmpty()) {
 								found = false;
-								it.remove();
 								break;
 							}
 						}
@@ -808,7 +922,11 @@ public class DurableTopkMatching {
 
 					if (!found)
 						continue;
+
+					sc = lifespan.cardinality();
 				} else if (Config.CTINLA_ENABLED) {
+					lifespan = (BitSet) iQ.clone();
+					labelLifespan.andInto(lifespan);
 					found = true;
 
 					// for each r
@@ -823,17 +941,15 @@ public class DurableTopkMatching {
 
 							if (Config.BLOOM_ENABLED) {
 
-								if ((lifespan = n.getCTiNLaBloom(r, l.getKey(), l.getValue(), lifespan)) == null
+								if ((lifespan = indexed.getCTiNLaBloom(r, l.getKey(), l.getValue(), lifespan)) == null
 										|| lifespan.isEmpty()) {
 									found = false;
-									it.remove();
 									break;
 								}
 
-							} else if ((lifespan = n.getCTiNLa(r, l.getKey(), l.getValue(), lifespan)) == null
+							} else if ((lifespan = indexed.getCTiNLa(r, l.getKey(), l.getValue(), lifespan)) == null
 									|| lifespan.isEmpty()) {
 								found = false;
-								it.remove();
 								break;
 							}
 						}
@@ -844,16 +960,12 @@ public class DurableTopkMatching {
 
 					if (!found)
 						continue;
-				} else if (lifespan.isEmpty()) { // check if Node n lifespan
-													// does not contain any bit
-					it.remove();
-					continue;
+
+					sc = lifespan.cardinality();
 				}
 
 				// a node must have duration >= Config.AT_LEAST
-				if ((sc = lifespan.cardinality()) < Config.AT_LEAST)
-					it.remove();
-				else {
+				if (sc >= Config.AT_LEAST) {
 					if ((current_candidates = rankingBasedOnlifespanScore.get(sc)) == null) {
 						current_candidates = new HashSet<>();
 						rankingBasedOnlifespanScore.put(sc, current_candidates);
@@ -875,7 +987,8 @@ public class DurableTopkMatching {
 	private void filterCandidatesByPath(Graph lvg, PatternGraph pg, BitSet iQ) {
 
 		// support variables
-		Set<Node> currentCandidates = null;
+		Set<TemporalNode> currentCandidates = null;
+		Set<Node> pathNodes;
 		nodeScore sc;
 
 		// ranking for each pattern node
@@ -890,22 +1003,25 @@ public class DurableTopkMatching {
 			// initiate score structure
 			score.put(pn, new HashMap<>());
 
+			// ids of the pattern node paths, -1 for the paths of no node
+			int[] paths = pg.getTiPLa(pn.getID(), lvg.getLabelPaths());
+
 			// for each iQ true bit
 			for (Iterator<Integer> it = iQ.stream().iterator(); it.hasNext();) {
 				int t = it.next();
-				Set<Node> intersection = null;
+				Set<TemporalNode> intersection = null;
 
 				// for all pattern node pn paths
-				for (String path : pg.getTiPLa(pn.getID())) {
+				for (int path : paths) {
 
 					// get the candidates from the time path index
-					if ((currentCandidates = lvg.getTiPLa().get(t).get(path)) != null) {
+					if ((pathNodes = lvg.getTiPLa().get(t).get(path)) != null) {
 
 						if (intersection == null) {
 							intersection = new HashSet<>();
-							intersection.addAll(currentCandidates);
+							intersection.addAll(pathNodes);
 						} else
-							intersection.retainAll(currentCandidates);
+							intersection.retainAll(pathNodes);
 					} else
 						break;
 
@@ -914,7 +1030,7 @@ public class DurableTopkMatching {
 				}
 
 				if (intersection != null) {
-					for (Node n : intersection) {
+					for (TemporalNode n : intersection) {
 
 						if ((sc = score.get(pn).get(n.getID())) == null) {
 							sc = new nodeScore();
@@ -928,7 +1044,7 @@ public class DurableTopkMatching {
 
 		int durScore;
 		PatternNode pn;
-		TreeMap<Integer, Set<Node>> patternNodeRank;
+		TreeMap<Integer, Set<TemporalNode>> patternNodeRank;
 
 		for (Entry<PatternNode, Map<Integer, nodeScore>> entry : score.entrySet()) {
 			pn = entry.getKey();
@@ -963,57 +1079,46 @@ public class DurableTopkMatching {
 	 */
 	private void filterCandidatesByPathBloom(Graph lvg, PatternGraph pg, BitSet iQ) {
 
-		TreeMap<Integer, Set<Node>> rankingBasedOnlifespanScore;
+		TreeMap<Integer, Set<TemporalNode>> rankingBasedOnlifespanScore;
 
 		// create pattern path index
 		pg.createPathIndex();
 
-		Set<Node> pnode_candidates, candidates, current_candidates;
+		LabelPostings postings;
+		Set<TemporalNode> current_candidates;
 		int label, sc;
 		Node n;
 		BitSet lifespan;
 
-		// store for a label the candidate nodes
-		Map<Integer, Set<Node>> labelCandidates = new HashMap<>();
-
 		for (PatternNode pn : pg.getNodes()) {
 
-			pnode_candidates = new HashSet<Node>();
-
 			rankingBasedOnlifespanScore = new TreeMap<>();
 			Rank.put(pn.getID(), rankingBasedOnlifespanScore);
 
 			// get pattern's node label
 			label = pn.getLabel();
 
-			// if label exist then retrieve its candidates for all iQ
-			if ((candidates = labelCandidates.get(label)) != null)
-				pnode_candidates.addAll(candidates);
-			else {
-				// for each time instant get the candidates and add them in a
-				// set
-				for (Iterator<Integer> it = iQ.stream().iterator(); it.hasNext();)
-					pnode_candidates.addAll(lvg.getTiLaNodes(it.next(), label));
-
-				// candidates for label in iQ
-				labelCandidates.put(label, new HashSet<>(pnode_candidates));
-			}
+			// nodes with the label sorted by ordinal
+			postings = lvg.getLabelPostings(label);
 
 			boolean found = true;
 
-			for (Iterator<Node> it = pnode_candidates.iterator(); it.hasNext();) {
+			for (int i = 0; i < postings.size(); i++) {
+
+				// skip nodes without the label in iQ before cloning it
+				if (postings.getLifespan(i).cardinality(iQ) == 0)
+					continue;
 
-				n = it.next();
+				n = lvg.getNodeByOrdinal(postings.getOrdinal(i));
 				found = true;
 
 				lifespan = (BitSet) iQ.clone();
-				lifespan.and(n.getLabel(label));
+				postings.getLifespan(i).andInto(lifespan);
 
 				// for all pattern node pn paths
 				for (String path : pg.getTiPLa(pn.getID())) {
 
 					if ((lifespan = n.TiPLaBloomContains(path, lifespan)) == null || lifespan.isEmpty()) {
-						it.remove();
 						found = false;
 						break;
 					}
@@ -1022,9 +1127,7 @@ public class DurableTopkMatching {
 				if (!found)
 					continue;
 
-				if ((sc = lifespan.cardinality()) < Config.AT_LEAST)
-					it.remove();
-				else {
+				if ((sc = lifespan.cardinality()) >= Config.AT_LEAST) {
 
 					if ((current_candidates = rankingBasedOnlifespanScore.get(sc)) == null) {
 						current_candidates = new HashSet<>();
@@ -1042,7 +1145,7 @@ public class DurableTopkMatching {
 	 * 
 	 * @throws IOException
 	 */
-	private void writeTopMatches() throws IOException {
+	private synchronized void writeTopMatches() throws IOException {
 		totalTime = (System.currentTimeMillis() - timeLimit);
 
 		String outputPath = Config.PATH_OUTPUT + "topk=" + Config.K + "_pq=" + pg.getID() + "_";
@@ -1075,6 +1178,12 @@ public class DurableTopkMatching {
 		else if (rankingStrategy == Config.MIN_RANKING)
 			outputPath += "r=z";
 
+		if (Config.BINARY_RESULTS) {
+			writeBinaryMatches(outputPath + ".bin");
+			topkMatches = null;
+			return;
+		}
+
 		FileWriter w = new FileWriter(outputPath);
 		w.write("Top-" + k + " matches\n");
 		w.write("Pattern Graph: " + pg.getID() + "\n");
@@ -1093,14 +1202,11 @@ public class DurableTopkMatching {
 
 			w.write("No matches");
 			w.close();
-			resultsHaveBeenStored = true;
 			return;
 		}
 
 		// stores the result
 		String result = "";
-		BitSet shifted;
-		int count;
 
 		// reverse minHeap to maxHeap in order to ouput from high to low
 		PriorityQueue<Match> topkMatchesR = new PriorityQueue<Match>(11, new MatchComparator(true));
@@ -1113,32 +1219,24 @@ public class DurableTopkMatching {
 
 			result += "------ Match ------\n";
 
-			if (continuously) {
-				shifted = (BitSet) mI.getLifespan().clone();
-				count = 0;
-
-				while (!shifted.isEmpty()) {
-					shifted.and(shifted.get(1, shifted.length()));
-					count++;
-				}
-
-				result += "Duration : " + count + "\n";
-			} else
+			if (continuously)
+				result += "Duration : " + Lifespan.longestRun(mI.getLifespan()) + "\n";
+			else
 				result += "Duration : " + mI.getLifespan().cardinality() + "\n";
 
 			result += "Lifetime : " + mI.getLifespan() + "\n";
 			result += "------ Nodes ------\n";
 
-			for (Entry<Integer, Set<Node>> mg : mI.getMatch().entrySet()) {
+			for (Entry<Integer, Set<TemporalNode>> mg : mI.getMatch().entrySet()) {
 				// pattern node id
 				result += "pg_id: " + mg.getKey() + "\n";
 
-				for (Node n : mg.getValue())
+				for (TemporalNode n : mg.getValue())
 					// graph node id
 					result += "g_id: " + n.getID() + "\n";
 			}
 
-			Node src, trg;
+			TemporalNode src, trg;
 
 			// write the edges
 			for (PatternNode pn_src : pg.getNodes()) {
@@ -1178,12 +1276,12 @@ public class DurableTopkMatching {
 
 						result_star += src.getID() + "--> ";
 
-						for (Entry<Integer, BitSet> entry : src.getLabels().entrySet()) {
+						for (Entry<Integer, Lifespan> entry : src.getLabels().entrySet()) {
 
 							if (entry.getKey() == Config.STAR_LABEL)
 								continue;
 
-							life = (BitSet) entry.getValue().clone();
+							life = entry.getValue().toBitSet();
 							life.and(mI.getLifespan());
 
 							if (!life.isEmpty())
@@ -1203,7 +1301,6 @@ public class DurableTopkMatching {
 		w.write(result);
 		w.close();
 		topkMatches = null;
-		resultsHaveBeenStored = true;
 	}
 
 	/**
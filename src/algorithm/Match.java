@@ -1,6 +1,6 @@
 package algorithm;
 
-import graph.version.Node;
+import graph.version.TemporalNode;
 
 import java.util.BitSet;
 import java.util.Map;
@@ -20,7 +20,7 @@ public class Match {
 	private BitSet lifespan;
 
 	// match pattern id --> node object
-	private Map<Integer, Set<Node>> match;
+	private Map<Integer, Set<TemporalNode>> match;
 	// =====================================
 
 	/**
@@ -30,7 +30,7 @@ public class Match {
 	 * @param lifespan
 	 * @param match
 	 */
-	public Match(int duration, BitSet lifespan, Map<Integer, Set<Node>> match) {
+	public Match(int duration, BitSet lifespan, Map<Integer, Set<TemporalNode>> match) {
 		this.duration = duration;
 		this.lifespan = lifespan;
 		this.match = match;
@@ -59,7 +59,7 @@ public class Match {
 	 * 
 	 * @return
 	 */
-	public Map<Integer, Set<Node>> getMatch() {
+	public Map<Integer, Set<TemporalNode>> getMatch() {
 		return match;
 	}
 }
\ No newline at end of file
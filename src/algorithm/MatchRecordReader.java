@@ -0,0 +1,153 @@
+package algorithm;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.BitSet;
+
+/**
+ * Sequential reader of a binary result file written with BinaryResults
+ * enabled. The header is read by the constructor and each call of next loads
+ * one match
+ *
+ * @author ksemer
+ */
+public class MatchRecordReader implements Closeable {
+	// =====================================
+
+	private DataInputStream in;
+
+	private int patternId;
+
+	// number of pattern nodes
+	private int width;
+
+	private int matches;
+
+	// number of matches read
+	private int read;
+
+	// current match
+	private int duration;
+
+	private BitSet lifespan;
+
+	private int[] nodes;
+
+	// =====================================
+
+	/**
+	 * Constructor
+	 *
+	 * @param path
+	 * @throws IOException
+	 *             if the file is not a binary result file
+	 */
+	public MatchRecordReader(String path) throws IOException {
+		in = new DataInputStream(new BufferedInputStream(Files.newInputStream(Paths.get(path)), 1 << 16));
+
+		if (in.readInt() != MatchRecords.MAGIC) {
+			in.close();
+			throw new IOException(path + " is not a binary result file");
+		}
+
+		int version = in.readInt();
+
+		if (version != MatchRecords.VERSION) {
+			in.close();
+			throw new IOException("Unsupported result file version " + version);
+		}
+
+		patternId = in.readInt();
+		width = in.readInt();
+		matches = in.readInt();
+	}
+
+	/**
+	 * Load the next match
+	 *
+	 * @return false if all matches have been read
+	 * @throws IOException
+	 */
+	public boolean next() throws IOException {
+		if (read == matches)
+			return false;
+
+		duration = in.readInt();
+		lifespan = new BitSet();
+
+		for (int r = in.readInt(); r > 0; r--)
+			lifespan.set(in.readInt(), in.readInt());
+
+		nodes = new int[width];
+
+		for (int id = 0; id < width; id++)
+			nodes[id] = in.readInt();
+
+		read++;
+
+		return true;
+	}
+
+	/**
+	 * Return the pattern graph id
+	 *
+	 * @return
+	 */
+	public int getPatternId() {
+		return patternId;
+	}
+
+	/**
+	 * Return the number of pattern nodes
+	 *
+	 * @return
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Return the number of matches in the file
+	 *
+	 * @return
+	 */
+	public int getNumberOfMatches() {
+		return matches;
+	}
+
+	/**
+	 * Return the duration of the current match
+	 *
+	 * @return
+	 */
+	public int getDuration() {
+		return duration;
+	}
+
+	/**
+	 * Return the lifespan of the current match
+	 *
+	 * @return
+	 */
+	public BitSet getLifespan() {
+		return lifespan;
+	}
+
+	/**
+	 * Return the graph node id of each pattern node of the current match
+	 *
+	 * @return
+	 */
+	public int[] getNodes() {
+		return nodes;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
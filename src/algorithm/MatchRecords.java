@@ -0,0 +1,162 @@
+package algorithm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.Collection;
+
+/**
+ * Binary result format, all values are big endian ints
+ *
+ * <pre>
+ * header: MAGIC VERSION pattern_id pattern_nodes matches
+ * match:  duration runs start0 end0 ... start_runs-1 end_runs-1 g_id(pg_id 0) ... g_id(pg_id pattern_nodes-1)
+ * </pre>
+ *
+ * Matches are read back with MatchRecordReader
+ *
+ * @author ksemer
+ */
+public final class MatchRecords {
+	// =====================================
+
+	// "DGPR"
+	public static final int MAGIC = 0x44475052;
+
+	public static final int VERSION = 1;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	// =====================================
+
+	private MatchRecords() {
+	}
+
+	/**
+	 * Create or truncate the result file
+	 *
+	 * @param path
+	 * @return
+	 * @throws IOException
+	 */
+	static FileChannel create(String path) throws IOException {
+		return FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+	}
+
+	/**
+	 * Write the file header
+	 *
+	 * @param out
+	 * @param patternId
+	 * @param width
+	 *            number of pattern nodes
+	 * @param matches
+	 * @throws IOException
+	 */
+	static void writeHeader(WritableByteChannel out, int patternId, int width, int matches) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(5 * Integer.BYTES);
+		header.putInt(MAGIC).putInt(VERSION).putInt(patternId).putInt(width).putInt(matches);
+		header.flip();
+
+		MatchSpool.write(out, header);
+	}
+
+	/**
+	 * Write the given matches in iteration order
+	 *
+	 * @param out
+	 * @param matches
+	 * @param width
+	 * @throws IOException
+	 */
+	static void write(WritableByteChannel out, Collection<Match> matches, int width) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		int size;
+
+		for (Match m : matches) {
+			size = size(m, width);
+
+			if (size > buffer.remaining()) {
+				buffer.flip();
+				MatchSpool.write(out, buffer);
+				buffer.clear();
+			}
+
+			if (size > buffer.capacity())
+				MatchSpool.write(out, encode(m, width));
+			else
+				put(buffer, m, width);
+		}
+
+		buffer.flip();
+		MatchSpool.write(out, buffer);
+	}
+
+	/**
+	 * Returns the record of a match in a buffer of the exact size
+	 *
+	 * @param m
+	 * @param width
+	 * @return
+	 */
+	static ByteBuffer encode(Match m, int width) {
+		ByteBuffer record = ByteBuffer.allocate(size(m, width));
+		put(record, m, width);
+		record.flip();
+
+		return record;
+	}
+
+	/**
+	 * Returns the number of bytes of the record of a match
+	 *
+	 * @param m
+	 * @param width
+	 * @return
+	 */
+	private static int size(Match m, int width) {
+		return Integer.BYTES * (2 + 2 * runs(m.getLifespan()) + width);
+	}
+
+	/**
+	 * Append the record of a match
+	 *
+	 * @param buffer
+	 * @param m
+	 * @param width
+	 */
+	private static void put(ByteBuffer buffer, Match m, int width) {
+		BitSet lifespan = m.getLifespan();
+
+		buffer.putInt(m.getDuration());
+		buffer.putInt(runs(lifespan));
+
+		for (int s = lifespan.nextSetBit(0), e; s != -1; s = lifespan.nextSetBit(e)) {
+			e = lifespan.nextClearBit(s);
+			buffer.putInt(s).putInt(e);
+		}
+
+		for (int id = 0; id < width; id++)
+			buffer.putInt(m.getMatch().get(id).iterator().next().getID());
+	}
+
+	/**
+	 * Returns the number of contiguous runs of bits
+	 *
+	 * @param bits
+	 * @return
+	 */
+	private static int runs(BitSet bits) {
+		int runs = 0;
+
+		for (int s = bits.nextSetBit(0); s != -1; s = bits.nextSetBit(bits.nextClearBit(s)))
+			runs++;
+
+		return runs;
+	}
+}
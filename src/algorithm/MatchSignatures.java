@@ -0,0 +1,567 @@
+package algorithm;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+
+import system.Config;
+
+/**
+ * Set of match signatures, a signature is the node id assigned to every
+ * pattern node. Signatures are packed in an int array and hashed with open
+ * addressing, so no string or boxed key is created per match. Every signature
+ * keeps the duration of its match and signatures below the lower bound are
+ * dropped when the table is rebuilt, so the set only grows with the matches
+ * that can still be ranked. At most Config.SIGNATURE_LIMIT signatures stay in
+ * the table, when more remain after a rebuild they are sorted and spilled to a
+ * run file in the output directory. Only a bloom filter of each run is kept in
+ * memory and a bloom filter hit is verified with a binary search of the mapped
+ * run. Runs are merged like a binary counter, so there are logarithmically
+ * many of them, and the merge and the lower bound drop the signatures that can
+ * not be ranked any more. Search workers call it concurrently
+ *
+ * @author ksemer
+ */
+final class MatchSignatures implements Closeable {
+	// =====================================
+
+	private static final int MIN_CAPACITY = 16;
+
+	// the capacity of the table is less than 8 times the limit, so limit *
+	// width is kept below 1 << 28 for capacity and key offsets to fit an int
+	private static final int MAX_LIMIT = 1 << 28;
+
+	// false positive probability of the bloom filter of a run
+	private static final double RUN_FPP = 0.01;
+
+	private static final Funnel<int[]> FUNNEL = (sign, into) -> {
+		for (int v : sign)
+			into.putInt(v);
+	};
+
+	// number of pattern nodes
+	private final int width;
+
+	// slot i -> keys[i * width .. (i + 1) * width - 1]
+	private int[] keys;
+
+	// slot i -> duration of the match, 0 for a free slot
+	private int[] durations;
+
+	// capacity - 1
+	private int mask;
+
+	// used slots
+	private int size;
+
+	// signatures with shorter duration can be dropped
+	private int lowerBound;
+
+	// maximum signatures of the table
+	private final int limit;
+
+	// maximum signatures of a run
+	private final int runLimit;
+
+	// spilled signatures from the oldest to the newest run
+	private final List<Run> runs = new ArrayList<>();
+
+	// =====================================
+
+	/**
+	 * Constructor
+	 *
+	 * @param width
+	 *            number of pattern nodes
+	 */
+	MatchSignatures(int width) {
+		this.width = width;
+
+		// a run keeps a signature and its duration in a single mapped buffer
+		runLimit = Integer.MAX_VALUE / Integer.BYTES / (width + 1);
+		limit = Math.max(MIN_CAPACITY, Math.min(Config.SIGNATURE_LIMIT, Math.min(MAX_LIMIT / width, runLimit)));
+		allocate(MIN_CAPACITY);
+	}
+
+	/**
+	 * Returns true if the signature has been added
+	 *
+	 * @param sign
+	 * @return
+	 * @throws IOException
+	 */
+	synchronized boolean contains(int[] sign) throws IOException {
+		return find(sign, 0) >= 0 || spilled(sign);
+	}
+
+	/**
+	 * Add the signature of a match with the given duration (> 0)
+	 *
+	 * @param sign
+	 * @param duration
+	 * @return false if the signature has already been added
+	 * @throws IOException
+	 */
+	synchronized boolean add(int[] sign, int duration) throws IOException {
+		int slot = find(sign, 0);
+
+		if (slot >= 0 || spilled(sign))
+			return false;
+
+		if ((size + 1) << 1 > mask + 1) {
+			rehash();
+			slot = find(sign, 0);
+		}
+
+		slot = -slot - 1;
+		System.arraycopy(sign, 0, keys, slot * width, width);
+		durations[slot] = duration;
+		size++;
+
+		return true;
+	}
+
+	/**
+	 * Signatures of matches shorter than duration are not needed any more, they
+	 * are dropped the next time the table is rebuilt or the runs are merged.
+	 * Runs without a signature of duration or longer are deleted
+	 *
+	 * @param duration
+	 * @throws IOException
+	 */
+	synchronized void retainAtLeast(int duration) throws IOException {
+		if (lowerBound >= duration)
+			return;
+
+		lowerBound = duration;
+
+		for (Iterator<Run> it = runs.iterator(); it.hasNext();) {
+			Run run = it.next();
+
+			if (run.maxDuration < lowerBound) {
+				run.channel.close();
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Remove all signatures
+	 *
+	 * @throws IOException
+	 */
+	synchronized void clear() throws IOException {
+		close();
+		allocate(MIN_CAPACITY);
+		size = 0;
+		lowerBound = 0;
+	}
+
+	/**
+	 * Returns the number of signatures
+	 *
+	 * @return
+	 */
+	synchronized long size() {
+		long spilled = 0;
+
+		for (Run run : runs)
+			spilled += run.size;
+
+		return size + spilled;
+	}
+
+	/**
+	 * Delete the spilled signatures
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		for (Run run : runs)
+			run.channel.close();
+
+		runs.clear();
+	}
+
+	/**
+	 * Allocate an empty table
+	 *
+	 * @param capacity
+	 *            power of two
+	 */
+	private void allocate(int capacity) {
+		keys = new int[capacity * width];
+		durations = new int[capacity];
+		mask = capacity - 1;
+	}
+
+	/**
+	 * Rebuild the table without the signatures below the lower bound, it grows
+	 * only when the remaining signatures fill more than a quarter of it. The
+	 * remaining signatures are spilled instead when they reach the limit
+	 *
+	 * @throws IOException
+	 */
+	private void rehash() throws IOException {
+		int[] oldKeys = keys, oldDurations = durations;
+		int live = 0, capacity = MIN_CAPACITY, slot;
+
+		for (int d : oldDurations) {
+			if (d != 0 && d >= lowerBound)
+				live++;
+		}
+
+		if (live >= limit) {
+			spill(live);
+			allocate(MIN_CAPACITY);
+			size = 0;
+			return;
+		}
+
+		while (capacity < live << 2)
+			capacity <<= 1;
+
+		allocate(capacity);
+		size = 0;
+
+		for (int i = 0; i < oldDurations.length; i++) {
+			if (oldDurations[i] == 0 || oldDurations[i] < lowerBound)
+				continue;
+
+			slot = -find(oldKeys, i * width) - 1;
+			System.arraycopy(oldKeys, i * width, keys, slot * width, width);
+			durations[slot] = oldDurations[i];
+			size++;
+		}
+	}
+
+	/**
+	 * Write the signatures of the table that are not below the lower bound to a
+	 * new run sorted in lexicographic order, then merge the newest runs while
+	 * the previous run is at most twice as large as the newest
+	 *
+	 * @param live
+	 *            number of signatures that are not below the lower bound
+	 * @throws IOException
+	 */
+	private void spill(int live) throws IOException {
+		int[] order = new int[live];
+		int n = 0;
+
+		for (int i = 0; i < durations.length; i++) {
+			if (durations[i] != 0 && durations[i] >= lowerBound)
+				order[n++] = i;
+		}
+
+		sort(order, new int[live], 0, live);
+
+		Run run = createRun(live);
+		int[] sign = new int[width];
+
+		for (int i : order) {
+			System.arraycopy(keys, i * width, sign, 0, width);
+			run.append(sign, durations[i]);
+		}
+
+		runs.add(run);
+
+		Run prev, last;
+
+		while (runs.size() > 1) {
+			prev = runs.get(runs.size() - 2);
+			last = runs.get(runs.size() - 1);
+
+			if (prev.size > last.size << 1 || (long) prev.size + last.size > runLimit)
+				break;
+
+			runs.remove(runs.size() - 1);
+			runs.set(runs.size() - 1, merge(prev, last));
+		}
+	}
+
+	/**
+	 * Merge two runs into a new run without the signatures below the lower
+	 * bound, the two runs are deleted
+	 *
+	 * @param a
+	 * @param b
+	 * @return
+	 * @throws IOException
+	 */
+	private Run merge(Run a, Run b) throws IOException {
+		Run run = createRun(a.size + b.size), from;
+		int[] sign = new int[width];
+		int i = 0, j = 0, at;
+
+		while (i < a.size || j < b.size) {
+			// a signature is never in two runs
+			if (j == b.size || (i < a.size && a.compare(i, b, j, width) < 0)) {
+				from = a;
+				at = i++;
+			} else {
+				from = b;
+				at = j++;
+			}
+
+			if (from.duration(at, width) < lowerBound)
+				continue;
+
+			from.signature(at, sign);
+			run.append(sign, from.duration(at, width));
+		}
+
+		a.channel.close();
+		b.channel.close();
+
+		return run;
+	}
+
+	/**
+	 * Create an empty run file in the output directory for at most n
+	 * signatures
+	 *
+	 * @param n
+	 * @return
+	 * @throws IOException
+	 */
+	private Run createRun(int n) throws IOException {
+		Path dir = Paths.get(Config.PATH_OUTPUT.isEmpty() ? "." : Config.PATH_OUTPUT);
+		FileChannel channel = FileChannel.open(Files.createTempFile(dir, "signatures", ".run"),
+				StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+				(long) n * (width + 1) * Integer.BYTES);
+
+		return new Run(channel, buffer.asIntBuffer(), BloomFilter.create(FUNNEL, n, RUN_FPP));
+	}
+
+	/**
+	 * Merge sort of the slots in order[lo .. hi - 1] by their signatures in
+	 * lexicographic order
+	 *
+	 * @param order
+	 * @param tmp
+	 *            buffer of the same length as order
+	 * @param lo
+	 * @param hi
+	 */
+	private void sort(int[] order, int[] tmp, int lo, int hi) {
+		if (hi - lo < 2)
+			return;
+
+		int mid = (lo + hi) >>> 1;
+
+		sort(order, tmp, lo, mid);
+		sort(order, tmp, mid, hi);
+
+		// already in order
+		if (compare(keys, order[mid - 1] * width, keys, order[mid] * width) <= 0)
+			return;
+
+		System.arraycopy(order, lo, tmp, lo, hi - lo);
+
+		for (int i = lo, j = mid, k = lo; k < hi; k++) {
+			if (j == hi || (i < mid && compare(keys, tmp[i] * width, keys, tmp[j] * width) <= 0))
+				order[k] = tmp[i++];
+			else
+				order[k] = tmp[j++];
+		}
+	}
+
+	/**
+	 * Returns true if the signature is in a run
+	 *
+	 * @param sign
+	 * @return
+	 */
+	private boolean spilled(int[] sign) {
+		for (Run run : runs) {
+			if (run.bloom.mightContain(sign) && run.contains(sign, width))
+				return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Compare the signatures a[i .. i + width - 1] and b[j .. j + width - 1] in
+	 * lexicographic order
+	 *
+	 * @param a
+	 * @param i
+	 * @param b
+	 * @param j
+	 * @return
+	 */
+	private int compare(int[] a, int i, int[] b, int j) {
+		for (int k = 0; k < width; k++) {
+			if (a[i + k] != b[j + k])
+				return Integer.compare(a[i + k], b[j + k]);
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Returns the slot of the signature src[from .. from + width - 1] or
+	 * -(free slot + 1) if it is not in the table
+	 *
+	 * @param src
+	 * @param from
+	 * @return
+	 */
+	private int find(int[] src, int from) {
+		int h = 1, slot, k;
+
+		for (int i = from; i < from + width; i++)
+			h = 31 * h + src[i];
+
+		// spread the bits before masking
+		h *= 0x9E3779B9;
+		slot = (h ^ (h >>> 16)) & mask;
+
+		while (durations[slot] != 0) {
+			k = slot * width;
+
+			for (int i = 0; i < width; i++) {
+				if (keys[k + i] != src[from + i])
+					break;
+
+				if (i == width - 1)
+					return slot;
+			}
+
+			slot = (slot + 1) & mask;
+		}
+
+		return -slot - 1;
+	}
+
+	/**
+	 * Sorted signatures spilled to a file, each followed by the duration of its
+	 * match
+	 */
+	private static final class Run {
+		private final FileChannel channel;
+
+		// signature i -> signs[i * (width + 1) .. i * (width + 1) + width - 1],
+		// its duration at i * (width + 1) + width
+		private final IntBuffer signs;
+
+		private final BloomFilter<int[]> bloom;
+
+		private int size;
+
+		// longest duration of the signatures
+		private int maxDuration;
+
+		/**
+		 * Constructor
+		 *
+		 * @param channel
+		 * @param signs
+		 * @param bloom
+		 */
+		private Run(FileChannel channel, IntBuffer signs, BloomFilter<int[]> bloom) {
+			this.channel = channel;
+			this.signs = signs;
+			this.bloom = bloom;
+		}
+
+		/**
+		 * Append a signature greater than the last one
+		 *
+		 * @param sign
+		 * @param duration
+		 */
+		private void append(int[] sign, int duration) {
+			signs.put(sign);
+			signs.put(duration);
+			bloom.put(sign);
+			size++;
+
+			if (maxDuration < duration)
+				maxDuration = duration;
+		}
+
+		/**
+		 * Copy signature i to sign
+		 *
+		 * @param i
+		 * @param sign
+		 */
+		private void signature(int i, int[] sign) {
+			int k = i * (sign.length + 1);
+
+			for (int j = 0; j < sign.length; j++)
+				sign[j] = signs.get(k + j);
+		}
+
+		/**
+		 * Returns the duration of signature i
+		 *
+		 * @param i
+		 * @param width
+		 * @return
+		 */
+		private int duration(int i, int width) {
+			return signs.get(i * (width + 1) + width);
+		}
+
+		/**
+		 * Compare signature i with signature j of other in lexicographic order
+		 *
+		 * @param i
+		 * @param other
+		 * @param j
+		 * @param width
+		 * @return
+		 */
+		private int compare(int i, Run other, int j, int width) {
+			int a = i * (width + 1), b = j * (width + 1), c = 0;
+
+			for (int k = 0; k < width && c == 0; k++)
+				c = Integer.compare(signs.get(a + k), other.signs.get(b + k));
+
+			return c;
+		}
+
+		/**
+		 * Binary search of the signature
+		 *
+		 * @param sign
+		 * @param width
+		 * @return
+		 */
+		private boolean contains(int[] sign, int width) {
+			int lo = 0, hi = size - 1, mid, c;
+
+			while (lo <= hi) {
+				mid = (lo + hi) >>> 1;
+				c = 0;
+
+				for (int k = 0; k < width && c == 0; k++)
+					c = Integer.compare(signs.get(mid * (width + 1) + k), sign[k]);
+
+				if (c < 0)
+					lo = mid + 1;
+				else if (c > 0)
+					hi = mid - 1;
+				else
+					return true;
+			}
+
+			return false;
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package algorithm;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import system.Config;
+
+/**
+ * Temporary file that receives the encoded matches while the search runs, so
+ * only the number of matches is kept in memory. The spool is truncated when a
+ * longer duration makes the written matches obsolete and it is deleted when it
+ * is closed
+ *
+ * @author ksemer
+ */
+final class MatchSpool implements Closeable {
+	// =====================================
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final FileChannel channel;
+
+	private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+	// number of matches in the spool
+	private int size;
+
+	// =====================================
+
+	/**
+	 * Constructor creates the spool file in the output directory
+	 *
+	 * @throws IOException
+	 */
+	MatchSpool() throws IOException {
+		Path dir = Paths.get(Config.PATH_OUTPUT.isEmpty() ? "." : Config.PATH_OUTPUT);
+		Path path = Files.createTempFile(dir, "matches", ".spool");
+
+		channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+				StandardOpenOption.DELETE_ON_CLOSE);
+	}
+
+	/**
+	 * Append a formatted match
+	 *
+	 * @param match
+	 * @throws IOException
+	 */
+	void append(String match) throws IOException {
+		append(ByteBuffer.wrap(match.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * Append an encoded match
+	 *
+	 * @param match
+	 * @throws IOException
+	 */
+	void append(ByteBuffer match) throws IOException {
+		if (match.remaining() > buffer.remaining())
+			flush();
+
+		if (match.remaining() > buffer.capacity())
+			write(channel, match);
+		else
+			buffer.put(match);
+
+		size++;
+	}
+
+	/**
+	 * Drop all matches
+	 *
+	 * @throws IOException
+	 */
+	void reset() throws IOException {
+		buffer.clear();
+		channel.truncate(0);
+		channel.position(0);
+		size = 0;
+	}
+
+	/**
+	 * Return the number of matches
+	 *
+	 * @return
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Copy all matches to target
+	 *
+	 * @param target
+	 * @throws IOException
+	 */
+	void transferTo(WritableByteChannel target) throws IOException {
+		flush();
+
+		long pos = 0, end = channel.size();
+
+		while (pos < end)
+			pos += channel.transferTo(pos, end - pos, target);
+	}
+
+	/**
+	 * Write the buffered bytes to the file
+	 *
+	 * @throws IOException
+	 */
+	private void flush() throws IOException {
+		buffer.flip();
+		write(channel, buffer);
+		buffer.clear();
+	}
+
+	/**
+	 * Write all remaining bytes of src
+	 *
+	 * @param target
+	 * @param src
+	 * @throws IOException
+	 */
+	static void write(WritableByteChannel target, ByteBuffer src) throws IOException {
+		while (src.hasRemaining())
+			target.write(src);
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
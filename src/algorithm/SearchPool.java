@@ -0,0 +1,92 @@
+package algorithm;
+
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import system.Config;
+
+/**
+ * Fork join pool shared by the parallel searches of all queries
+ * 
+ * @author ksemer
+ */
+final class SearchPool {
+	// =====================================
+
+	private static ForkJoinPool pool;
+
+	// =====================================
+
+	/**
+	 * Return the pool, it is created on the first call with Config.SEARCH_THREADS
+	 * workers
+	 * 
+	 * @return
+	 */
+	static synchronized ForkJoinPool get() {
+		if (pool == null)
+			pool = new ForkJoinPool(Config.SEARCH_THREADS);
+
+		return pool;
+	}
+
+	/**
+	 * Run task in the pool and rethrow the exception that terminated the search
+	 * 
+	 * @param task
+	 * @throws Exception
+	 */
+	static void invoke(ForkJoinTask<?> task) throws Exception {
+		try {
+			get().invoke(task);
+		} catch (CompletionException e) {
+			Throwable t = e;
+
+			// tasks wrap the checked exceptions of searchPattern
+			while (t instanceof CompletionException && t.getCause() != null)
+				t = t.getCause();
+
+			if (t instanceof Exception)
+				throw (Exception) t;
+
+			throw e;
+		}
+	}
+
+	/**
+	 * Run tasks in parallel and wait for all of them, even when one of them
+	 * fails, so that no task of a search is still running when its root task
+	 * returns. The first exception is rethrown
+	 * 
+	 * @param tasks
+	 */
+	static void invokeAll(List<? extends ForkJoinTask<?>> tasks) {
+		Throwable error = null;
+
+		if (tasks.isEmpty())
+			return;
+
+		for (int i = tasks.size() - 1; i > 0; i--)
+			tasks.get(i).fork();
+
+		tasks.get(0).quietlyInvoke();
+
+		for (ForkJoinTask<?> task : tasks) {
+			task.quietlyJoin();
+
+			if (error == null)
+				error = task.getException();
+		}
+
+		if (error instanceof RuntimeException)
+			throw (RuntimeException) error;
+
+		if (error instanceof Error)
+			throw (Error) error;
+
+		if (error != null)
+			throw new CompletionException(error);
+	}
+}
@@ -0,0 +1,54 @@
+package algorithm;
+
+/**
+ * Per thread word arrays used by timeJoin, so the lifespan intersections of a
+ * join do not allocate bitsets
+ * 
+ * @author ksemer
+ */
+final class TimeJoinScratch {
+	// =====================================
+
+	private static final ThreadLocal<TimeJoinScratch> SCRATCH = ThreadLocal.withInitial(TimeJoinScratch::new);
+
+	// iQ AND label lifespan of the joined node
+	long[] label = new long[0];
+
+	// label AND edge lifespan AND label lifespan of the neighbor
+	long[] inter = new long[0];
+
+	// =====================================
+
+	/**
+	 * Return the scratch of the current thread with room for the given words
+	 * 
+	 * @param words
+	 * @return
+	 */
+	static TimeJoinScratch get(int words) {
+		TimeJoinScratch scratch = SCRATCH.get();
+
+		if (scratch.label.length < words) {
+			scratch.label = new long[words];
+			scratch.inter = new long[words];
+		}
+
+		return scratch;
+	}
+
+	/**
+	 * Return the number of set bits in the first n words
+	 * 
+	 * @param words
+	 * @param n
+	 * @return
+	 */
+	static int cardinality(long[] words, int n) {
+		int card = 0;
+
+		for (int i = 0; i < n; i++)
+			card += Long.bitCount(words[i]);
+
+		return card;
+	}
+}
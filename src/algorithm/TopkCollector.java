@@ -0,0 +1,142 @@
+package algorithm;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Bounded min heap of the k most durable matches that search workers offer to
+ * concurrently. The duration of the k-th match is published in a volatile
+ * field so workers can read the current bound without locking
+ * 
+ * @author ksemer
+ */
+final class TopkCollector {
+	// =====================================
+
+	private final int k;
+
+	// min heap on duration
+	private final PriorityQueue<Match> heap = new PriorityQueue<Match>(11, new MatchComparator(false));
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	// duration of the k-th match or -1 while less than k matches are kept
+	private volatile int lowerBound = -1;
+
+	// =====================================
+
+	/**
+	 * Constructor
+	 * 
+	 * @param k
+	 */
+	TopkCollector(int k) {
+		this.k = k;
+	}
+
+	/**
+	 * Offer a match with the given duration, the match is created only if it
+	 * is kept. A match replaces the k-th match only if it has a higher
+	 * duration
+	 * 
+	 * @param duration
+	 * @param match
+	 * @return the duration of the k-th match after the offer if k matches were
+	 *         already kept, -1 otherwise
+	 */
+	int offer(int duration, Supplier<Match> match) {
+		lock.lock();
+
+		try {
+			if (heap.size() < k) {
+				heap.offer(match.get());
+
+				if (heap.size() == k)
+					lowerBound = heap.peek().getDuration();
+
+				return -1;
+			}
+
+			if (duration > heap.peek().getDuration()) {
+				// remove match with the min duration
+				heap.poll();
+				heap.offer(match.get());
+
+				lowerBound = heap.peek().getDuration();
+			}
+
+			return lowerBound;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Return the duration of the k-th match or -1 while less than k matches
+	 * are kept
+	 * 
+	 * @return
+	 */
+	int lowerBound() {
+		return lowerBound;
+	}
+
+	/**
+	 * Return the number of kept matches
+	 * 
+	 * @return
+	 */
+	int size() {
+		lock.lock();
+
+		try {
+			return heap.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns true if there is not any match
+	 * 
+	 * @return
+	 */
+	boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Return the match with the min duration without removing it
+	 * 
+	 * @return
+	 */
+	Match peek() {
+		lock.lock();
+
+		try {
+			return heap.peek();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Remove and return the match with the min duration
+	 * 
+	 * @return
+	 */
+	Match poll() {
+		lock.lock();
+
+		try {
+			Match m = heap.poll();
+
+			lowerBound = heap.size() == k ? heap.peek().getDuration() : -1;
+
+			return m;
+		} finally {
+			lock.unlock();
+		}
+	}
+}
@@ -12,6 +12,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.Map.Entry;
 
+import graph.version.index.LabelPathDictionary;
 import system.Config;
 
 /**
@@ -316,6 +317,18 @@ public class PatternGraph implements Serializable {
 		return TiPLa.get(id);
 	}
 
+	/**
+	 * Return the ids of the TiPLa paths of pattern node id in the label paths of
+	 * the graph, -1 for the paths that do not exist in the graph
+	 * 
+	 * @param id
+	 * @param labelPaths
+	 * @return
+	 */
+	public int[] getTiPLa(int id, LabelPathDictionary labelPaths) {
+		return labelPaths.find(TiPLa.get(id));
+	}
+
 	class n_info {
 		PatternNode n;
 		n_info father;
@@ -0,0 +1,189 @@
+package graph.version;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Lifespan kept as a bitset, used when a lifespan consists of many short runs.
+ * The bits are kept in words as in java.util.BitSet, so that they can be
+ * combined word by word with the words of the matching algorithms
+ *
+ * @author ksemer
+ */
+public class BitSetLifespan extends Lifespan {
+
+	// =================================================================
+
+	private static final long serialVersionUID = 1L;
+
+	private long[] words;
+
+	// =================================================================
+
+	/**
+	 * Constructor
+	 *
+	 * @param nbits
+	 *            expected number of time instants
+	 */
+	public BitSetLifespan(int nbits) {
+		words = new long[Math.max(1, (nbits + 63) >>> 6)];
+	}
+
+	@Override
+	public boolean get(int t) {
+		int u = t >>> 6;
+
+		return u < words.length && (words[u] & (1L << t)) != 0;
+	}
+
+	@Override
+	public void set(int t) {
+		int u = t >>> 6;
+
+		ensure(u + 1);
+		words[u] |= 1L << t;
+	}
+
+	@Override
+	public void set(int start, int end) {
+		if (start >= end)
+			return;
+
+		int first = start >>> 6, last = (end - 1) >>> 6;
+		long firstMask = -1L << start, lastMask = -1L >>> -end;
+
+		ensure(last + 1);
+
+		if (first == last) {
+			words[first] |= firstMask & lastMask;
+			return;
+		}
+
+		words[first] |= firstMask;
+
+		for (int i = first + 1; i < last; i++)
+			words[i] = -1L;
+
+		words[last] |= lastMask;
+	}
+
+	@Override
+	public int nextSetBit(int from) {
+		int u = from >>> 6;
+
+		if (u >= words.length)
+			return -1;
+
+		long w = words[u] & (-1L << from);
+
+		while (w == 0) {
+			if (++u == words.length)
+				return -1;
+
+			w = words[u];
+		}
+
+		return (u << 6) + Long.numberOfTrailingZeros(w);
+	}
+
+	@Override
+	public int nextClearBit(int from) {
+		int u = from >>> 6;
+
+		if (u >= words.length)
+			return from;
+
+		long w = ~words[u] & (-1L << from);
+
+		while (w == 0) {
+			if (++u == words.length)
+				return u << 6;
+
+			w = ~words[u];
+		}
+
+		return (u << 6) + Long.numberOfTrailingZeros(w);
+	}
+
+	@Override
+	public int cardinality() {
+		int card = 0;
+
+		for (long w : words)
+			card += Long.bitCount(w);
+
+		return card;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		for (long w : words)
+			if (w != 0)
+				return false;
+
+		return true;
+	}
+
+	@Override
+	public int length() {
+		for (int u = words.length - 1; u >= 0; u--)
+			if (words[u] != 0)
+				return (u << 6) + 64 - Long.numberOfLeadingZeros(words[u]);
+
+		return 0;
+	}
+
+	@Override
+	public int longestRun() {
+		return longestRun(words, words.length);
+	}
+
+	@Override
+	public void or(Lifespan other) {
+		if (other instanceof BitSetLifespan) {
+			long[] o = ((BitSetLifespan) other).words;
+
+			ensure(o.length);
+
+			for (int i = 0; i < o.length; i++)
+				words[i] |= o[i];
+		} else
+			super.or(other);
+	}
+
+	@Override
+	public void andInto(BitSet target) {
+		target.and(BitSet.valueOf(words));
+	}
+
+	@Override
+	public void andInto(long[] target, int n) {
+		int m = Math.min(n, words.length);
+
+		for (int i = 0; i < m; i++)
+			target[i] &= words[i];
+
+		Arrays.fill(target, m, n, 0L);
+	}
+
+	@Override
+	public void orInto(BitSet target) {
+		target.or(BitSet.valueOf(words));
+	}
+
+	@Override
+	public BitSet toBitSet() {
+		return BitSet.valueOf(words);
+	}
+
+	/**
+	 * Grow the words to hold at least n words
+	 *
+	 * @param n
+	 */
+	private void ensure(int n) {
+		if (words.length < n)
+			words = Arrays.copyOf(words, Math.max(n, words.length << 1));
+	}
+}
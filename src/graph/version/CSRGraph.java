@@ -0,0 +1,601 @@
+package graph.version;
+
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import system.Config;
+
+/**
+ * Immutable compressed sparse row (CSR) representation of the version graph
+ * adjacency. The adjacency of node with ordinal v is stored in targets[offsets[v]
+ * .. offsets[v + 1] - 1] sorted by target ordinal and the lifespan of edge e is
+ * stored in arena[lifeOffsets[e] .. lifeOffsets[e + 1] - 1], either as packed
+ * words or as runs start0 end0 start1 end1 ... for interval lifespans. Edge
+ * lifespans are returned as read only views over the arena, so an edge access
+ * does not copy its lifespan
+ *
+ * @author ksemer
+ */
+public class CSRGraph implements Serializable {
+
+	// =================================================================
+
+	private static final long serialVersionUID = 1L;
+
+	// ordinal -> node object
+	private Node[] nodes;
+
+	// ordinal -> first edge position
+	private int[] offsets;
+
+	// edge position -> target ordinal
+	private int[] targets;
+
+	// edge position -> first position of the lifespan in arena
+	private int[] lifeOffsets;
+
+	// packed edge lifespans as words
+	private long[] arena;
+
+	// packed edge lifespans as runs
+	private int[] runArena;
+
+	// =================================================================
+
+	/**
+	 * Constructor freezes the adjacency of the given nodes
+	 *
+	 * @param nodes
+	 *            nodes indexed by their ordinal
+	 */
+	public CSRGraph(Node[] nodes) {
+		int edges = 0, words = 0;
+
+		// count edges and arena positions
+		for (Node n : nodes) {
+			for (Edge e : n.getAdjacency()) {
+				edges++;
+				words += size(e.getLifetime());
+			}
+		}
+
+		Builder builder = new Builder(nodes.length, edges, words);
+		Edge[] row;
+
+		for (int v = 0; v < nodes.length; v++) {
+			row = nodes[v].getAdjacency().toArray(new Edge[0]);
+
+			// sort row by target ordinal so getEdge can use binary search
+			Arrays.sort(row, (e1, e2) -> Integer.compare(e1.getTarget().getOrdinal(), e2.getTarget().getOrdinal()));
+
+			for (Edge e : row)
+				builder.add(v, e.getTarget().getOrdinal(), e.getLifetime());
+		}
+
+		builder.fill(this, nodes);
+	}
+
+	/**
+	 * Constructor for the arrays of a builder
+	 */
+	private CSRGraph() {
+	}
+
+	/**
+	 * Return the number of arena positions of the given lifespan
+	 *
+	 * @param lifespan
+	 * @return
+	 */
+	private static int size(Lifespan lifespan) {
+		int runs = 0;
+
+		if (!Config.INTERVAL_LIFESPANS)
+			return (lifespan.length() + 63) >>> 6;
+
+		for (int s = lifespan.nextSetBit(0); s != -1; s = lifespan.nextSetBit(lifespan.nextClearBit(s)))
+			runs++;
+
+		return 2 * runs;
+	}
+
+	/**
+	 * Return the degree of node with ordinal v
+	 *
+	 * @param v
+	 * @return
+	 */
+	public int degree(int v) {
+		return offsets[v + 1] - offsets[v];
+	}
+
+	/**
+	 * Return the position of edge v -> trg or -1 if it does not exist
+	 *
+	 * @param v
+	 * @param trg
+	 * @return
+	 */
+	public int find(int v, int trg) {
+		int pos = Arrays.binarySearch(targets, offsets[v], offsets[v + 1], trg);
+
+		return pos < 0 ? -1 : pos;
+	}
+
+	/**
+	 * Return the target node of edge in position pos
+	 *
+	 * @param pos
+	 * @return
+	 */
+	public Node getTarget(int pos) {
+		return nodes[targets[pos]];
+	}
+
+	/**
+	 * Return a read only view of the lifespan of edge in position pos
+	 *
+	 * @param pos
+	 * @return
+	 */
+	public Lifespan getLifetime(int pos) {
+		if (runArena != null)
+			return new RunView(lifeOffsets[pos], lifeOffsets[pos + 1]);
+
+		return new WordView(lifeOffsets[pos], lifeOffsets[pos + 1]);
+	}
+
+	/**
+	 * Return edge object for v -> trg or null if it does not exist
+	 *
+	 * @param v
+	 * @param trg
+	 * @return
+	 */
+	public Edge getEdge(int v, int trg) {
+		int pos;
+
+		if ((pos = find(v, trg)) == -1)
+			return null;
+
+		return new Edge(getTarget(pos), getLifetime(pos));
+	}
+
+	/**
+	 * Return a read only view of the adjacency of node with ordinal v
+	 *
+	 * @param v
+	 * @return
+	 */
+	public Collection<Edge> getAdjacency(int v) {
+		final int begin = offsets[v], end = offsets[v + 1];
+
+		return new AbstractCollection<Edge>() {
+
+			@Override
+			public Iterator<Edge> iterator() {
+				return new Iterator<Edge>() {
+					int pos = begin;
+
+					@Override
+					public boolean hasNext() {
+						return pos < end;
+					}
+
+					@Override
+					public Edge next() {
+						if (pos >= end)
+							throw new NoSuchElementException();
+
+						Edge e = new Edge(getTarget(pos), getLifetime(pos));
+						pos++;
+
+						return e;
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return end - begin;
+			}
+		};
+	}
+
+	/**
+	 * Return the number of edges
+	 *
+	 * @return
+	 */
+	public int numberOfEdges() {
+		return targets.length;
+	}
+
+	/**
+	 * Appends the adjacency of the nodes in ordinal order, so a CSR graph can
+	 * be built from sorted edge rows without creating the adjacency maps
+	 */
+	static final class Builder {
+
+		private int[] offsets, targets, lifeOffsets, runArena;
+
+		private long[] arena;
+
+		// nodes with closed adjacency, edge and arena position
+		private int closed, edges, words;
+
+		/**
+		 * Constructor, the capacities are grown when they are exceeded
+		 *
+		 * @param nodes
+		 * @param edges
+		 *            expected number of edges
+		 * @param words
+		 *            expected number of arena positions
+		 */
+		Builder(int nodes, int edges, int words) {
+			offsets = new int[nodes + 1];
+			targets = new int[Math.max(edges, 1)];
+			lifeOffsets = new int[Math.max(edges, 1) + 1];
+
+			if (Config.INTERVAL_LIFESPANS)
+				runArena = new int[Math.max(words, 2)];
+			else
+				arena = new long[Math.max(words, 1)];
+		}
+
+		/**
+		 * Append edge src -> trg, the edges are appended in ascending order of
+		 * src and then of trg
+		 *
+		 * @param src
+		 * @param trg
+		 * @param lifespan
+		 */
+		void add(int src, int trg, Lifespan lifespan) {
+			close(src);
+
+			if (edges == targets.length) {
+				targets = Arrays.copyOf(targets, 2 * edges);
+				lifeOffsets = Arrays.copyOf(lifeOffsets, 2 * edges + 1);
+			}
+
+			targets[edges] = trg;
+			lifeOffsets[edges++] = words;
+
+			if (runArena != null) {
+				for (int st = lifespan.nextSetBit(0), en; st != -1; st = lifespan.nextSetBit(en)) {
+					en = lifespan.nextClearBit(st);
+
+					if (words + 2 > runArena.length)
+						runArena = Arrays.copyOf(runArena, 2 * runArena.length);
+
+					runArena[words++] = st;
+					runArena[words++] = en;
+				}
+			} else {
+				long[] life = lifespan.toBitSet().toLongArray();
+
+				if (words + life.length > arena.length)
+					arena = Arrays.copyOf(arena, Math.max(words + life.length, 2 * arena.length));
+
+				System.arraycopy(life, 0, arena, words, life.length);
+				words += life.length;
+			}
+		}
+
+		/**
+		 * Close the adjacency of the nodes with ordinal less than v
+		 *
+		 * @param v
+		 */
+		private void close(int v) {
+			while (closed < v)
+				offsets[++closed] = edges;
+		}
+
+		/**
+		 * Build the CSR graph of the given nodes
+		 *
+		 * @param nodes
+		 *            nodes indexed by their ordinal
+		 * @return
+		 */
+		CSRGraph build(Node[] nodes) {
+			CSRGraph csr = new CSRGraph();
+
+			fill(csr, nodes);
+
+			return csr;
+		}
+
+		/**
+		 * Move the arrays to csr, trimmed to their used length
+		 *
+		 * @param csr
+		 * @param nodes
+		 */
+		private void fill(CSRGraph csr, Node[] nodes) {
+			close(nodes.length);
+			lifeOffsets[edges] = words;
+
+			csr.nodes = nodes;
+			csr.offsets = offsets;
+			csr.targets = trim(targets, edges);
+			csr.lifeOffsets = trim(lifeOffsets, edges + 1);
+
+			if (runArena != null)
+				csr.runArena = trim(runArena, words);
+			else
+				csr.arena = arena.length == words ? arena : Arrays.copyOf(arena, words);
+
+			offsets = targets = lifeOffsets = runArena = null;
+			arena = null;
+		}
+
+		/**
+		 * Return the first length values of a
+		 *
+		 * @param a
+		 * @param length
+		 * @return
+		 */
+		private static int[] trim(int[] a, int length) {
+			return a.length == length ? a : Arrays.copyOf(a, length);
+		}
+	}
+
+	/**
+	 * Read only lifespan kept as words arena[from .. to - 1]
+	 */
+	private final class WordView extends Lifespan {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from, to;
+
+		/**
+		 * Constructor
+		 *
+		 * @param from
+		 * @param to
+		 */
+		private WordView(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public boolean get(int t) {
+			int w = t >>> 6;
+
+			return w < to - from && (arena[from + w] & (1L << t)) != 0;
+		}
+
+		@Override
+		public void set(int t) {
+			throw new UnsupportedOperationException("The lifespan of a frozen edge can not be changed");
+		}
+
+		@Override
+		public void set(int start, int end) {
+			throw new UnsupportedOperationException("The lifespan of a frozen edge can not be changed");
+		}
+
+		@Override
+		public int nextSetBit(int t) {
+			int w = t >>> 6;
+
+			if (w >= to - from)
+				return -1;
+
+			long word = arena[from + w] & (-1L << t);
+
+			while (true) {
+				if (word != 0)
+					return (w << 6) + Long.numberOfTrailingZeros(word);
+
+				if (++w == to - from)
+					return -1;
+
+				word = arena[from + w];
+			}
+		}
+
+		@Override
+		public int nextClearBit(int t) {
+			int w = t >>> 6;
+
+			if (w >= to - from)
+				return t;
+
+			long word = ~arena[from + w] & (-1L << t);
+
+			while (true) {
+				if (word != 0)
+					return (w << 6) + Long.numberOfTrailingZeros(word);
+
+				if (++w == to - from)
+					return w << 6;
+
+				word = ~arena[from + w];
+			}
+		}
+
+		@Override
+		public int cardinality() {
+			int card = 0;
+
+			for (int i = from; i < to; i++)
+				card += Long.bitCount(arena[i]);
+
+			return card;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			for (int i = from; i < to; i++) {
+				if (arena[i] != 0)
+					return false;
+			}
+
+			return true;
+		}
+
+		@Override
+		public int length() {
+			for (int i = to - 1; i >= from; i--) {
+				if (arena[i] != 0)
+					return ((i - from) << 6) + 64 - Long.numberOfLeadingZeros(arena[i]);
+			}
+
+			return 0;
+		}
+
+		@Override
+		public void andInto(long[] words, int n) {
+			int m = Math.min(n, to - from);
+
+			for (int i = 0; i < m; i++)
+				words[i] &= arena[from + i];
+
+			for (int i = m; i < n; i++)
+				words[i] = 0;
+		}
+	}
+
+	/**
+	 * Read only lifespan kept as runs runArena[from .. to - 1]
+	 */
+	private final class RunView extends Lifespan {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from, to;
+
+		/**
+		 * Constructor
+		 *
+		 * @param from
+		 * @param to
+		 */
+		private RunView(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * Returns the position of the first run with end > t
+		 *
+		 * @param t
+		 * @return
+		 */
+		private int search(int t) {
+			int lo = 0, hi = (to - from) >>> 1, mid;
+
+			while (lo < hi) {
+				mid = (lo + hi) >>> 1;
+
+				if (runArena[from + 2 * mid + 1] > t)
+					hi = mid;
+				else
+					lo = mid + 1;
+			}
+
+			return from + 2 * lo;
+		}
+
+		@Override
+		public boolean get(int t) {
+			int i = search(t);
+
+			return i < to && runArena[i] <= t;
+		}
+
+		@Override
+		public void set(int t) {
+			throw new UnsupportedOperationException("The lifespan of a frozen edge can not be changed");
+		}
+
+		@Override
+		public void set(int start, int end) {
+			throw new UnsupportedOperationException("The lifespan of a frozen edge can not be changed");
+		}
+
+		@Override
+		public int nextSetBit(int t) {
+			int i = search(t);
+
+			return i == to ? -1 : Math.max(t, runArena[i]);
+		}
+
+		@Override
+		public int nextClearBit(int t) {
+			int i = search(t);
+
+			return i < to && runArena[i] <= t ? runArena[i + 1] : t;
+		}
+
+		@Override
+		public int cardinality() {
+			int card = 0;
+
+			for (int i = from; i < to; i += 2)
+				card += runArena[i + 1] - runArena[i];
+
+			return card;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return from == to;
+		}
+
+		@Override
+		public int length() {
+			return from == to ? 0 : runArena[to - 1];
+		}
+
+		@Override
+		public int longestRun() {
+			int max = 0;
+
+			for (int i = from; i < to; i += 2) {
+				if (max < runArena[i + 1] - runArena[i])
+					max = runArena[i + 1] - runArena[i];
+			}
+
+			return max;
+		}
+
+		@Override
+		public void andInto(BitSet target) {
+			int prev = 0;
+
+			for (int i = from; i < to; i += 2) {
+				target.clear(prev, runArena[i]);
+				prev = runArena[i + 1];
+			}
+
+			if (prev < target.length())
+				target.clear(prev, target.length());
+		}
+
+		@Override
+		public void andInto(long[] words, int n) {
+			int prev = 0, limit = n << 6;
+
+			for (int i = from; i < to && prev < limit; i += 2) {
+				clear(words, prev, Math.min(runArena[i], limit));
+				prev = runArena[i + 1];
+			}
+
+			clear(words, prev, limit);
+		}
+	}
+}
@@ -1,14 +1,13 @@
 package graph.version;
 
 import java.io.Serializable;
-import java.util.BitSet;
 
 /**
  * This class represents the Edges
  * 
  * @author ksemer
  */
-public class Edge implements Serializable {
+public class Edge implements TemporalEdge, Serializable {
 
 	// =================================================================
 
@@ -18,7 +17,7 @@ public class Edge implements Serializable {
 	private Node trg_node;
 
 	// keeps the edge lifespan
-	private BitSet lifespan;
+	private Lifespan lifespan;
 
 	// =================================================================
 
@@ -28,7 +27,7 @@ public class Edge implements Serializable {
 	 * @param trg_node
 	 * @param lifespan
 	 */
-	public Edge(Node trg_node, BitSet lifespan) {
+	public Edge(Node trg_node, Lifespan lifespan) {
 		this.trg_node = trg_node;
 		this.lifespan = lifespan;
 	}
@@ -38,6 +37,7 @@ public class Edge implements Serializable {
 	 * 
 	 * @return
 	 */
+	@Override
 	public Node getTarget() {
 		return trg_node;
 	}
@@ -47,7 +47,8 @@ public class Edge implements Serializable {
 	 * 
 	 * @return
 	 */
-	public BitSet getLifetime() {
+	@Override
+	public Lifespan getLifetime() {
 		return lifespan;
 	}
 
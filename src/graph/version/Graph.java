@@ -3,16 +3,19 @@ package graph.version;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
+import graph.version.index.LabelPathDictionary;
+import graph.version.index.LabelPostings;
 import graph.version.index.TimePathIndex;
 
 import java.util.Set;
+import java.util.stream.IntStream;
 import java.util.Map.Entry;
 
 import system.Config;
@@ -23,14 +26,31 @@ import utils.Storage;
  * 
  * @author ksemer
  */
-public class Graph implements Serializable {
+public class Graph implements TemporalGraph, Serializable {
 
 	// =================================================================
 
 	private static final long serialVersionUID = 1L;
 	private Map<Integer, Node> nodes;
-	private List<Map<Integer, Set<Node>>> TiLa;
-	private Map<Integer, Map<String, Set<Node>>> TiPLa;
+	private List<Node> ordinals;
+	private CSRGraph csr;
+
+	// label -> (node ordinal, label lifespan) postings
+	private Map<Integer, LabelPostings> labelPostings;
+
+	// time instant -> label path id -> nodes
+	private Map<Integer, Map<Integer, Set<Node>>> TiPLa;
+
+	// ids of the label paths of TiPLa
+	private LabelPathDictionary labelPaths;
+
+	// node -> (time instant, label path id) keys of TiPLa, created on the first
+	// append
+	private transient Map<Node, Set<Long>> TiPLaKeys;
+
+	// ordinal -> nodes with an edge to it in directed graphs, created on the first
+	// append
+	private transient List<List<Node>> inNeighbors;
 	
 	// =================================================================
 
@@ -41,14 +61,7 @@ public class Graph implements Serializable {
 	 */
 	public Graph() {
 		nodes = new HashMap<Integer, Node>();
-		TiLa = new ArrayList<>(Config.MAXIMUM_INTERVAL);
-
-		Map<Integer, Set<Node>> map;
-
-		for (int i = 0; i < Config.MAXIMUM_INTERVAL; i++) {
-			map = new HashMap<>();
-			TiLa.add(map);
-		}
+		ordinals = new ArrayList<>();
 	}
 
 	/**
@@ -57,8 +70,13 @@ public class Graph implements Serializable {
 	 * @param node
 	 */
 	public void addNode(int node) {
-		if (nodes.get(node) == null)
-			nodes.put(node, new Node(node));
+		Node n;
+
+		if (nodes.get(node) == null) {
+			n = new Node(node, ordinals.size());
+			nodes.put(node, n);
+			ordinals.add(n);
+		}
 	}
 
 	/**
@@ -84,66 +102,6 @@ public class Graph implements Serializable {
 		nodes.get(src).addEdge(nodes.get(trg), start, end);
 	}
 
-	/**
-	 * Update TiLa add node in label set at time instant t
-	 * 
-	 * @param t
-	 * @param label
-	 * @param n
-	 */
-	public void udpateTiLa(int t, int label, Node n) {
-		Set<Node> nodes;
-
-		if ((nodes = TiLa.get(t).get(label)) == null) {
-			nodes = new HashSet<>();
-			TiLa.get(t).put(label, nodes);
-		}
-
-		nodes.add(n);
-
-		if (Config.ENABLE_STAR_LABEL_PATTERNS) {
-
-			if ((nodes = TiLa.get(t).get(Config.STAR_LABEL)) == null) {
-				nodes = new HashSet<>();
-				TiLa.get(t).put(Config.STAR_LABEL, nodes);
-			}
-
-			nodes.add(n);
-		}
-	}
-
-	/**
-	 * Update TiLa add node in label set for range start to end
-	 * 
-	 * @param start
-	 * @param end
-	 * @param label
-	 * @param n
-	 */
-	public void udpateTiLa(int start, int end, int label, Node n) {
-		Set<Node> nodes;
-
-		for (int t = start; t < end; t++) {
-
-			if ((nodes = TiLa.get(t).get(label)) == null) {
-				nodes = new HashSet<>();
-				TiLa.get(t).put(label, nodes);
-			}
-
-			nodes.add(n);
-
-			if (Config.ENABLE_STAR_LABEL_PATTERNS) {
-
-				if ((nodes = TiLa.get(t).get(Config.STAR_LABEL)) == null) {
-					nodes = new HashSet<>();
-					TiLa.get(t).put(Config.STAR_LABEL, nodes);
-				}
-
-				nodes.add(n);
-			}
-		}
-	}
-
 	/**
 	 * Create TiPLa index
 	 * 
@@ -155,15 +113,18 @@ public class Graph implements Serializable {
 		if (Config.BLOOM_ENABLED) {
 			new TimePathIndex().createPathIndex(this);
 		} else {
-			TiPLa = new TimePathIndex().createPathIndex(this);
+			TimePathIndex index = new TimePathIndex();
+
+			TiPLa = index.createPathIndex(this);
+			labelPaths = index.getLabelPaths();
 
 			if (Config.DEBUG) {
-				for (Entry<Integer, Map<String, Set<Node>>> entry : TiPLa.entrySet()) {
+				for (Entry<Integer, Map<Integer, Set<Node>>> entry : TiPLa.entrySet()) {
 
 					System.out.println("Time instance: " + entry.getKey());
 
-					for (String p : entry.getValue().keySet())
-						System.out.println(p);
+					for (int p : entry.getValue().keySet())
+						System.out.println(labelPaths.toString(p));
 
 					System.out.println("------------------------");
 				}
@@ -181,6 +142,9 @@ public class Graph implements Serializable {
 		if (Config.BLOOM_ENABLED) {
 			createBloomTimeNeighborIndex();
 			return;
+		} else if (Config.TINLA_ENABLED && Config.TINLA_DELTA) {
+			createDeltaTimeNeighborIndex();
+			return;
 		}
 
 		String in = "";
@@ -210,35 +174,130 @@ public class Graph implements Serializable {
 				else if (Config.CTINLA_ENABLED)
 					n.initializeCTiNLa(r_);
 
-				Node trg;
+				indexNeighbors(n, r_);
+			});
+
+			if (Config.SHOW_MEMORY)
+				System.out.println(in + "(" + (r + 1) + ") memory: " + Storage.bytesToMegabytes(getMemory()));
+
+			System.out.println(in + "(" + (r + 1) + ") time: " + (System.currentTimeMillis() - time) + " (ms)");
+		}
+	}
+
+	/**
+	 * Fill TiNLa or CTiNLa of radius r of n from its adjacent nodes
+	 * 
+	 * @param n
+	 * @param r
+	 */
+	private static void indexNeighbors(Node n, int r) {
+		Node trg;
+
+		// for each adjacent node
+		for (Edge e : n.getAdjacency()) {
+			trg = e.getTarget();
+
+			// update TiNLa and CTiNLa in radius = 1
+			if (r == 0) {
+
+				if (Config.TINLA_ENABLED && Config.TINLA_EDGES)
+					n.updateTiNLa(r, trg.getLabels(), e.getLifetime());
+				else if (Config.TINLA_ENABLED)
+					n.updateTiNLa(r, trg.getLabels());
+				else if (Config.CTINLA_ENABLED)
+					n.updateCTiNLa(r, trg.getLabels());
+
+			} else {
+
+				// update TiNLa and CTiNLa in radius > 1
+				if (Config.TINLA_ENABLED && Config.TINLA_EDGES)
+					n.updateTiNLa(r, trg.getTiNLa().get(r - 1), e.getLifetime());
+				else if (Config.TINLA_ENABLED)
+					n.updateTiNLa(r, trg.getTiNLa().get(r - 1));
+				else if (Config.CTINLA_ENABLED)
+					n.updateCTiNLaR(r, trg.getCTiNLa().get(r - 1));
+			}
+		}
+
+		if (Config.TINLA_ENABLED && Config.TINLA_DELTA && r > 0)
+			n.subtractTiNLa(r);
+
+		// the bloom replaces the counts
+		if (Config.CTINLA_ENABLED && Config.CTINLA_THRESHOLDS > 0 && !Config.BLOOM_ENABLED)
+			n.createCTiNLaThresholds(r);
+	}
+
+	/**
+	 * Create TiNLa as deltas, radius r keeps for each label the time instants
+	 * that are reached in radius r and in no smaller radius. The deltas of
+	 * radius r of a node are the deltas of radius r - 1 of its neighbors minus
+	 * its own smaller radiuses, so each radius is a parallel sweep over the
+	 * adjacency ordinals that reads only the neighbors with a delta in radius
+	 * r - 1
+	 */
+	private void createDeltaTimeNeighborIndex() {
+
+		int n = ordinals.size(), R = Config.TINLA_R;
+		int[] offsets = new int[n + 1], targets;
+
+		System.out.println("TiNLa(" + R + ") delta construction is starting...");
+
+		long time = System.currentTimeMillis();
 
-				// for each adjacent node
-				for (Edge e : n.getAdjacency()) {
-					trg = e.getTarget();
+		for (int v = 0; v < n; v++)
+			offsets[v + 1] = offsets[v] + ordinals.get(v).getAdjacency().size();
 
-					// update TiNLa and CTiNLa in radius = 1
-					if (r_ == 0) {
+		targets = new int[offsets[n]];
 
-						if (Config.TINLA_ENABLED)
-							n.updateTiNLa(r_, trg.getLabels());
-						else if (Config.CTINLA_ENABLED)
-							n.updateCTiNLa(r_, trg.getLabels());
+		for (int v = 0, i = 0; v < n; v++) {
+			for (Edge e : ordinals.get(v).getAdjacency())
+				targets[i++] = e.getTarget().getOrdinal();
+		}
 
-					} else {
+		// nodes with a delta in the previous radius
+		boolean[] frontier = new boolean[n];
 
-						// update TiNLa and CTiNLa in radius > 1
-						if (Config.TINLA_ENABLED)
-							n.updateTiNLa(r_, trg.getTiNLa().get(r_ - 1));
-						else if (Config.CTINLA_ENABLED)
-							n.updateCTiNLaR(r_, trg.getCTiNLa().get(r_ - 1));
-					}
+		// for each r
+		for (int r = 0; r < R; r++) {
+
+			final int r_ = r;
+			final boolean[] previous = frontier, reached = new boolean[n];
+
+			IntStream.range(0, n).parallel().forEach(v -> {
+				Node node = ordinals.get(v);
+
+				node.initializeTiNLa(r_);
+
+				if (r_ == 0) {
+					indexNeighbors(node, r_);
+					reached[v] = !node.getTiNLa().get(r_).isEmpty();
+					return;
 				}
+
+				Node trg;
+
+				for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+
+					if (!previous[targets[i]])
+						continue;
+
+					trg = ordinals.get(targets[i]);
+
+					if (Config.TINLA_EDGES)
+						node.updateTiNLa(r_, trg.getTiNLa().get(r_ - 1), node.getEdge(trg).getLifetime());
+					else
+						node.updateTiNLa(r_, trg.getTiNLa().get(r_ - 1));
+				}
+
+				reached[v] = node.subtractTiNLa(r_);
 			});
 
+			frontier = reached;
+
 			if (Config.SHOW_MEMORY)
-				System.out.println(in + "(" + (r + 1) + ") memory: " + Storage.bytesToMegabytes(getMemory()));
+				System.out.println("TiNLa(" + (r + 1) + ") memory: " + Storage.bytesToMegabytes(getMemory()));
 
-			System.out.println(in + "(" + (r + 1) + ") time: " + (System.currentTimeMillis() - time) + " (ms)");
+			System.out.println("TiNLa(" + (r + 1) + ") time: " + (System.currentTimeMillis() - time) + " (ms)");
 		}
 	}
 
@@ -278,26 +337,7 @@ public class Graph implements Serializable {
 				else if (Config.CTINLA_ENABLED)
 					n.initializeCTiNLa(r_);
 
-				Node trg;
-
-				// for each adjacent node
-				for (Edge e : n.getAdjacency()) {
-					trg = e.getTarget();
-
-					// update TiNLa and CTiNLa in radius = 1
-					if (r_ == 0) {
-						if (Config.TINLA_ENABLED)
-							n.updateTiNLa(r_, trg.getLabels());
-						else if (Config.CTINLA_ENABLED)
-							n.updateCTiNLa(r_, trg.getLabels());
-					} else {
-						// update TiNLa and CTiNLa in radius > 1
-						if (Config.TINLA_ENABLED)
-							n.updateTiNLa(r_, trg.getTiNLa().get(r_ - 1));
-						else if (Config.CTINLA_ENABLED)
-							n.updateCTiNLaR(r_, trg.getCTiNLa().get(r_ - 1));
-					}
-				}
+				indexNeighbors(n, r_);
 			});
 
 			if (Config.SHOW_MEMORY)
@@ -349,16 +389,266 @@ public class Graph implements Serializable {
 				.println(in + "(" + ") memory without auxiliary structures: " + Storage.bytesToMegabytes(getMemory()));
 	}
 
+	/**
+	 * Append a new time instant to the graph without a reload. edges holds the
+	 * (src, trg) pairs and labels the (node, label) pairs alive at the new time
+	 * instant, so an undirected graph needs both directions of each edge as in
+	 * the loaders. Unknown nodes are added and the enabled index is updated only
+	 * for the nodes it can change: TiNLa and CTiNLa of radius r for the nodes
+	 * with a new neighbor, or a new edge time instant when TiNLa uses edge
+	 * lifespans, and the in-neighbors of the nodes changed in radius r - 1, TiPLa
+	 * for the nodes within its maximum depth of a node of the new time instant.
+	 * TiNLaBloom and CTiNLaBloom keep no auxiliary index, so they are created
+	 * again
+	 * 
+	 * @param edges
+	 * @param labels
+	 * @return the new time instant
+	 * @throws InterruptedException
+	 * @throws IOException
+	 */
+	public int appendSnapshot(int[] edges, int[] labels) throws IOException, InterruptedException {
+
+		if (csr != null)
+			throw new IllegalStateException("A frozen graph can not be extended");
+
+		int t = Config.MAXIMUM_INTERVAL, size = ordinals.size();
+		Set<Node> touched = new HashSet<>(), relabeled = new HashSet<>(), rewired = new HashSet<>();
+		Node src, trg, n;
+
+		Config.MAXIMUM_INTERVAL = t + 1;
+
+		for (int i = 0; i + 1 < edges.length; i += 2) {
+			addNode(edges[i]);
+			addNode(edges[i + 1]);
+
+			src = nodes.get(edges[i]);
+			trg = nodes.get(edges[i + 1]);
+
+			// TiNLa and CTiNLa without edge lifespans change only for new pairs
+			if (src.getEdge(trg) == null) {
+				rewired.add(src);
+
+				if (inNeighbors != null)
+					addInNeighbor(src, trg);
+			} else if (Config.TINLA_ENABLED && Config.TINLA_EDGES)
+				rewired.add(src);
+
+			src.addEdge(trg, t);
+			touched.add(src);
+			touched.add(trg);
+		}
+
+		for (int i = 0; i + 1 < labels.length; i += 2) {
+			addNode(labels[i]);
+
+			n = nodes.get(labels[i]);
+			n.updateLabelLifespan(labels[i + 1], t);
+
+			relabeled.add(n);
+			touched.add(n);
+		}
+
+		// new nodes have no index yet
+		rewired.addAll(ordinals.subList(size, ordinals.size()));
+
+		synchronized (this) {
+			labelPostings = null;
+		}
+
+		long time = System.currentTimeMillis();
+
+		if (Config.TINLA_ENABLED || Config.CTINLA_ENABLED) {
+
+			if (Config.BLOOM_ENABLED) {
+				for (Node v : ordinals)
+					v.clearTimeNeighborIndex();
+
+				createBloomTimeNeighborIndex();
+			} else
+				updateTimeNeighborIndex(relabeled, rewired);
+
+		} else if (Config.TIPLA_ENABLED) {
+			Set<Node> affected = new HashSet<>(touched), frontier = touched;
+
+			// a path of depth d from v reaches the nodes within d hops of v
+			for (int d = 0; d < Config.TIPLA_MAX_DEPTH && !frontier.isEmpty(); d++) {
+				frontier = predecessors(frontier);
+				frontier.removeAll(affected);
+				affected.addAll(frontier);
+			}
+
+			if (TiPLaKeys == null)
+				TiPLaKeys = new HashMap<>();
+
+			TiPLa = new TimePathIndex(TiPLa, labelPaths, TiPLaKeys).updatePathIndex(affected);
+
+			System.out.println("TiPLa update nodes: " + affected.size());
+		}
+
+		System.out.println("Append time: " + (System.currentTimeMillis() - time) + " (ms)");
+
+		return t;
+	}
+
+	/**
+	 * Compute again TiNLa or CTiNLa of the nodes it can change after an append.
+	 * Radius r changes for the rewired nodes and the in-neighbors of the nodes
+	 * changed in radius r - 1, where the relabeled nodes are changed before
+	 * radius 0
+	 * 
+	 * @param relabeled
+	 * @param rewired
+	 */
+	private void updateTimeNeighborIndex(Set<Node> relabeled, Set<Node> rewired) {
+		int R = Config.TINLA_ENABLED ? Config.TINLA_R : Config.CTINLA_R;
+		Set<Node> changed = relabeled;
+
+		for (int r = 0; r < R; r++) {
+
+			final int r_ = r;
+			Set<Node> previous = changed;
+
+			changed = predecessors(changed);
+			changed.addAll(rewired);
+
+			// a delta also depends on the smaller radiuses of the node itself
+			if (Config.TINLA_ENABLED && Config.TINLA_DELTA && r > 0)
+				changed.addAll(previous);
+
+			changed.parallelStream().forEach(n -> {
+
+				if (Config.TINLA_ENABLED)
+					n.resetTiNLa(r_);
+				else
+					n.resetCTiNLa(r_);
+
+				indexNeighbors(n, r_);
+			});
+
+			System.out.println((Config.TINLA_ENABLED ? "TiNLa" : "CTiNLa") + "(" + (r + 1) + ") update nodes: "
+					+ changed.size());
+		}
+	}
+
+	/**
+	 * Return the nodes with an edge to any of the given nodes
+	 * 
+	 * @param targets
+	 * @return
+	 */
+	private Set<Node> predecessors(Set<Node> targets) {
+		Set<Node> predecessors = new HashSet<>();
+
+		if (!Config.ISDIRECTED) {
+
+			// the adjacency holds both directions of an edge
+			for (Node n : targets) {
+				for (Edge e : n.getAdjacency())
+					predecessors.add(e.getTarget());
+			}
+
+			return predecessors;
+		}
+
+		if (inNeighbors == null) {
+			inNeighbors = new ArrayList<>();
+
+			for (Node n : ordinals) {
+				for (Edge e : n.getAdjacency())
+					addInNeighbor(n, e.getTarget());
+			}
+		}
+
+		for (Node n : targets) {
+			if (n.getOrdinal() < inNeighbors.size())
+				predecessors.addAll(inNeighbors.get(n.getOrdinal()));
+		}
+
+		return predecessors;
+	}
+
+	/**
+	 * Add src in the in-neighbors of trg
+	 * 
+	 * @param src
+	 * @param trg
+	 */
+	private void addInNeighbor(Node src, Node trg) {
+
+		while (inNeighbors.size() <= trg.getOrdinal())
+			inNeighbors.add(new ArrayList<>());
+
+		inNeighbors.get(trg.getOrdinal()).add(src);
+	}
+
+	/**
+	 * Freeze the adjacency of all nodes in CSR arrays. After this call no edges
+	 * can be added to the graph
+	 */
+	public void freeze() {
+
+		if (csr != null)
+			return;
+
+		System.out.println("CSR construction is starting...");
+
+		long time = System.currentTimeMillis();
+
+		freeze(new CSRGraph(ordinals.toArray(new Node[0])));
+
+		System.out.println("CSR edges: " + csr.numberOfEdges());
+
+		if (Config.SHOW_MEMORY)
+			System.out.println("CSR memory: " + Storage.bytesToMegabytes(getMemory()));
+
+		System.out.println("CSR time: " + (System.currentTimeMillis() - time) + " (ms)");
+	}
+
+	/**
+	 * Use csr as the adjacency of all nodes, used when the CSR arrays are
+	 * built directly from the edge rows of a dataset
+	 * 
+	 * @param csr
+	 */
+	void freeze(CSRGraph csr) {
+		this.csr = csr;
+
+		for (Node n : ordinals)
+			n.freeze(csr);
+	}
+
+	/**
+	 * Return true if the adjacency has been frozen in CSR arrays
+	 * 
+	 * @return
+	 */
+	public boolean isFrozen() {
+		return csr != null;
+	}
+
 	/**
 	 * Get node object with id = nodeID
 	 * 
 	 * @param nodeID
 	 * @return
 	 */
+	@Override
 	public Node getNode(int nodeID) {
 		return nodes.get(nodeID);
 	}
 
+	/**
+	 * Get node object with the given dense ordinal
+	 * 
+	 * @param ordinal
+	 * @return
+	 */
+	@Override
+	public Node getNodeByOrdinal(int ordinal) {
+		return ordinals.get(ordinal);
+	}
+
 	/**
 	 * Return the version graph nodes
 	 * 
@@ -373,42 +663,83 @@ public class Graph implements Serializable {
 	 * 
 	 * @return
 	 */
+	@Override
 	public int size() {
 		return nodes.size();
 	}
 
 	/**
-	 * Return nodes labeled with label at time instant t
+	 * Return the postings of label, the index is created on the first call
 	 * 
-	 * @param t
 	 * @param label
 	 * @return
 	 */
-	public Set<Node> getTiLaNodes(int t, int label) {
-		Set<Node> set;
+	@Override
+	public synchronized LabelPostings getLabelPostings(int label) {
+		LabelPostings postings;
 
-		if ((set = TiLa.get(t).get(label)) != null)
-			return set;
+		if (labelPostings == null)
+			createLabelPostings();
 
-		return Collections.emptySet();
+		if ((postings = labelPostings.get(label)) == null)
+			return new LabelPostings();
+
+		return postings;
 	}
 
 	/**
-	 * Return TiLa
+	 * Create the label -> (node, lifespan) postings from the labels of the nodes
+	 */
+	private void createLabelPostings() {
+		LabelPostings postings;
+
+		labelPostings = new HashMap<>();
+
+		// nodes are visited by ordinal so the postings are sorted
+		for (Node n : ordinals) {
+
+			for (Entry<Integer, Lifespan> entry : n.getLabels().entrySet()) {
+
+				if ((postings = labelPostings.get(entry.getKey())) == null) {
+					postings = new LabelPostings();
+					labelPostings.put(entry.getKey(), postings);
+				}
+
+				postings.add(n.getOrdinal(), entry.getValue());
+			}
+		}
+
+		for (LabelPostings p : labelPostings.values())
+			p.trim();
+	}
+
+	/**
+	 * Return TiPLa index, time instant -> label path id -> nodes
 	 * 
 	 * @return
 	 */
-	public List<Map<Integer, Set<Node>>> getTiLa() {
-		return TiLa;
+	public Map<Integer, Map<Integer, Set<Node>>> getTiPLa() {
+		return TiPLa;
 	}
 
 	/**
-	 * Return TiPLa index
+	 * Return the dictionary of the label path ids of TiPLa
 	 * 
 	 * @return
 	 */
-	public Map<Integer, Map<String, Set<Node>>> getTiPLa() {
-		return TiPLa;
+	public LabelPathDictionary getLabelPaths() {
+		return labelPaths;
+	}
+
+	/**
+	 * Set TiPLa index, used when a snapshot is loaded
+	 * 
+	 * @param TiPLa
+	 * @param labelPaths
+	 */
+	void setTiPLa(Map<Integer, Map<Integer, Set<Node>>> TiPLa, LabelPathDictionary labelPaths) {
+		this.TiPLa = TiPLa;
+		this.labelPaths = labelPaths;
 	}
 
 	/**
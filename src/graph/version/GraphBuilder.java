@@ -0,0 +1,332 @@
+package graph.version;
+
+import java.util.Arrays;
+
+import system.Config;
+
+/**
+ * Collects the edges and labels of a dataset as (src, trg, start, end) and
+ * (node, label, start, end) rows and builds the graph with one sort and group
+ * pass. Each edge and each node label receives a single lifespan with all its
+ * ranges, so the loaders avoid the map lookups of Graph.addEdge and
+ * Node.updateLabelLifespan for every time instant.
+ * Nodes take their ordinals in order of first appearance, as with Graph.addNode.
+ * When the graph is frozen the grouped edges are appended to the CSR arrays
+ * directly and the adjacency maps are never created
+ *
+ * @author ksemer
+ */
+public class GraphBuilder {
+
+	// =================================================================
+
+	// node ids in order of appearance
+	private int[] nodes = new int[16];
+	private int numberOfNodes;
+
+	// src trg start end
+	private int[] edges = new int[16];
+	private int numberOfEdges;
+
+	// node label start end
+	private int[] labels = new int[16];
+	private int numberOfLabels;
+
+	// =================================================================
+
+	/**
+	 * Add node
+	 *
+	 * @param node
+	 */
+	public void addNode(int node) {
+		if (numberOfNodes == nodes.length)
+			nodes = Arrays.copyOf(nodes, nodes.length * 2);
+
+		nodes[numberOfNodes++] = node;
+	}
+
+	/**
+	 * Add edge src -> trg with lifespan ranging from start to end - 1, src and
+	 * trg are added as nodes
+	 *
+	 * @param src
+	 * @param trg
+	 * @param start
+	 * @param end
+	 */
+	public void addEdge(int src, int trg, int start, int end) {
+		addNode(src);
+		addNode(trg);
+
+		if (numberOfEdges + 4 > edges.length)
+			edges = Arrays.copyOf(edges, edges.length * 2);
+
+		edges[numberOfEdges++] = src;
+		edges[numberOfEdges++] = trg;
+		edges[numberOfEdges++] = start;
+		edges[numberOfEdges++] = end;
+	}
+
+	/**
+	 * Add label to node with lifespan ranging from start to end - 1. Labels of
+	 * nodes without any edge or addNode call are ignored
+	 *
+	 * @param node
+	 * @param label
+	 * @param start
+	 * @param end
+	 */
+	public void addLabel(int node, int label, int start, int end) {
+		if (numberOfLabels + 4 > labels.length)
+			labels = Arrays.copyOf(labels, labels.length * 2);
+
+		labels[numberOfLabels++] = node;
+		labels[numberOfLabels++] = label;
+		labels[numberOfLabels++] = start;
+		labels[numberOfLabels++] = end;
+	}
+
+	/**
+	 * Build the graph with its adjacency and label lifespans. The builder
+	 * must not be used afterwards
+	 *
+	 * @return
+	 */
+	public Graph build() {
+		Graph lvg = new Graph();
+		long[] keys = new long[numberOfNodes];
+		int size = 0, id;
+
+		// first position of each id
+		for (int i = 0; i < numberOfNodes; i++)
+			keys[i] = ((long) nodes[i] << 32) | i;
+
+		Arrays.sort(keys);
+
+		for (int i = 0; i < numberOfNodes; i++) {
+			id = (int) (keys[i] >> 32);
+
+			if (size == 0 || id != (int) keys[size - 1])
+				keys[size++] = (keys[i] << 32) | (id & 0xFFFFFFFFL);
+		}
+
+		nodes = null;
+
+		// ids by first position
+		Arrays.sort(keys, 0, size);
+
+		int[] ids = new int[size], ordinals = new int[size];
+
+		for (int v = 0; v < size; v++) {
+			lvg.addNode((int) keys[v]);
+			ids[v] = (int) keys[v];
+			ordinals[v] = v;
+		}
+
+		keys = null;
+
+		sortByID(ids, ordinals);
+
+		buildAdjacency(lvg, ids, ordinals);
+		buildLabels(lvg, ids, ordinals);
+
+		return lvg;
+	}
+
+	/**
+	 * Create an edge for each (src, trg) with all its ranges, in the CSR arrays
+	 * when the graph is frozen
+	 *
+	 * @param lvg
+	 * @param ids
+	 * @param ordinals
+	 */
+	private void buildAdjacency(Graph lvg, int[] ids, int[] ordinals) {
+		int rows = numberOfEdges / 4, len, trg, row;
+		int[] offsets = new int[lvg.size() + 1], order = new int[rows], src = new int[rows];
+		long[] group;
+		Lifespan lifespan;
+		Node n;
+
+		// bucket rows by src ordinal
+		for (int r = 0; r < rows; r++) {
+			src[r] = ordinal(ids, ordinals, edges[4 * r]);
+			offsets[src[r] + 1]++;
+		}
+
+		for (int v = 0; v < lvg.size(); v++)
+			offsets[v + 1] += offsets[v];
+
+		int[] cursor = Arrays.copyOf(offsets, lvg.size());
+
+		for (int r = 0; r < rows; r++)
+			order[cursor[src[r]]++] = r;
+
+		cursor = src = null;
+		group = new long[16];
+
+		CSRGraph.Builder csr = Config.FREEZE_GRAPH ? new CSRGraph.Builder(lvg.size(), rows, 0) : null;
+
+		for (int v = 0; v < lvg.size(); v++) {
+			len = offsets[v + 1] - offsets[v];
+
+			if (len == 0)
+				continue;
+
+			if (len > group.length)
+				group = new long[Math.max(len, group.length * 2)];
+
+			// group the rows of v by target ordinal
+			for (int i = 0; i < len; i++) {
+				row = order[offsets[v] + i];
+				group[i] = ((long) ordinal(ids, ordinals, edges[4 * row + 1]) << 32) | row;
+			}
+
+			Arrays.sort(group, 0, len);
+
+			n = lvg.getNodeByOrdinal(v);
+			lifespan = null;
+
+			for (int i = 0; i < len; i++) {
+				row = (int) group[i];
+				trg = (int) (group[i] >>> 32);
+
+				if (edges[4 * row + 2] < edges[4 * row + 3]) {
+					if (lifespan == null)
+						lifespan = Lifespan.create();
+
+					lifespan.set(edges[4 * row + 2], edges[4 * row + 3]);
+				}
+
+				if ((i + 1 == len || (int) (group[i + 1] >>> 32) != trg) && lifespan != null) {
+					if (csr != null)
+						csr.add(v, trg, lifespan);
+					else
+						n.putEdge(lvg.getNodeByOrdinal(trg), lifespan);
+
+					lifespan = null;
+				}
+			}
+		}
+
+		edges = null;
+
+		if (csr != null) {
+			Node[] nodes = new Node[lvg.size()];
+
+			for (int v = 0; v < nodes.length; v++)
+				nodes[v] = lvg.getNodeByOrdinal(v);
+
+			lvg.freeze(csr.build(nodes));
+		}
+	}
+
+	/**
+	 * Create the label lifespans of each node
+	 *
+	 * @param lvg
+	 * @param ids
+	 * @param ordinals
+	 */
+	private void buildLabels(Graph lvg, int[] ids, int[] ordinals) {
+		int rows = numberOfLabels / 4, len, label, row;
+		int[] offsets = new int[lvg.size() + 1], order = new int[rows], node = new int[rows];
+		long[] group;
+		Lifespan lifespan;
+		Node n;
+
+		// bucket rows by node ordinal, rows of unknown nodes are dropped
+		for (int r = 0; r < rows; r++) {
+			if ((node[r] = ordinal(ids, ordinals, labels[4 * r])) != -1)
+				offsets[node[r] + 1]++;
+		}
+
+		for (int v = 0; v < lvg.size(); v++)
+			offsets[v + 1] += offsets[v];
+
+		int[] cursor = Arrays.copyOf(offsets, lvg.size());
+
+		for (int r = 0; r < rows; r++) {
+			if (node[r] != -1)
+				order[cursor[node[r]]++] = r;
+		}
+
+		cursor = node = null;
+		group = new long[16];
+
+		for (int v = 0; v < lvg.size(); v++) {
+			len = offsets[v + 1] - offsets[v];
+
+			if (len == 0)
+				continue;
+
+			if (len > group.length)
+				group = new long[Math.max(len, group.length * 2)];
+
+			// group the rows of v by label
+			for (int i = 0; i < len; i++) {
+				row = order[offsets[v] + i];
+				group[i] = ((long) labels[4 * row + 1] << 32) | row;
+			}
+
+			Arrays.sort(group, 0, len);
+
+			n = lvg.getNodeByOrdinal(v);
+			lifespan = Lifespan.create();
+
+			for (int i = 0; i < len; i++) {
+				row = (int) group[i];
+				label = (int) (group[i] >> 32);
+
+				lifespan.set(labels[4 * row + 2], labels[4 * row + 3]);
+
+				if (i + 1 < len && (int) (group[i + 1] >> 32) == label)
+					continue;
+
+				n.putLabel(label, lifespan);
+
+				if (Config.ENABLE_STAR_LABEL_PATTERNS)
+					n.getLabel(Config.STAR_LABEL).or(lifespan);
+
+				lifespan = Lifespan.create();
+			}
+		}
+
+		labels = null;
+	}
+
+	/**
+	 * Sort ids and the parallel ordinals by id
+	 *
+	 * @param ids
+	 * @param ordinals
+	 */
+	private static void sortByID(int[] ids, int[] ordinals) {
+		long[] keys = new long[ids.length];
+
+		for (int v = 0; v < ids.length; v++)
+			keys[v] = ((long) ids[v] << 32) | ordinals[v];
+
+		Arrays.sort(keys);
+
+		for (int v = 0; v < ids.length; v++) {
+			ids[v] = (int) (keys[v] >> 32);
+			ordinals[v] = (int) keys[v];
+		}
+	}
+
+	/**
+	 * Return the ordinal of id or -1
+	 *
+	 * @param ids
+	 * @param ordinals
+	 * @param id
+	 * @return
+	 */
+	private static int ordinal(int[] ids, int[] ordinals, int id) {
+		int i = Arrays.binarySearch(ids, id);
+
+		return i < 0 ? -1 : ordinals[i];
+	}
+}
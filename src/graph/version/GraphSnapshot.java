@@ -0,0 +1,515 @@
+package graph.version;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+import graph.version.index.LabelPathDictionary;
+import graph.version.index.TimeCounts;
+import orestes.bloomfilter.memory.CountingBloomFilterMemory;
+import system.Config;
+
+/**
+ * Binary snapshot of a loaded graph with the enabled index (TiNLa, CTiNLa or
+ * TiPLa, plain or bloom). Lifespans are stored as runs and node
+ * references as ordinals, so a snapshot is written and loaded with a linear
+ * scan of a memory mapped file instead of the recursive object serialization
+ * of utils.Storage. A snapshot keeps the settings it was built with and it is
+ * ignored when they differ from the current ones. The interval of the loaded
+ * graph is kept as data, since the proteins and columnar loaders change it
+ *
+ * @author ksemer
+ */
+public final class GraphSnapshot {
+	// =====================================
+
+	// "DGPS"
+	private static final int MAGIC = 0x44475053;
+
+	private static final int VERSION = 3;
+
+	// =====================================
+
+	private GraphSnapshot() {
+	}
+
+	/**
+	 * Write the graph and the enabled index to path
+	 *
+	 * @param lvg
+	 * @param path
+	 * @throws IOException
+	 */
+	public static void write(Graph lvg, String path) throws IOException {
+		long time = System.currentTimeMillis();
+		Node n;
+
+		try (SnapshotOutput out = new SnapshotOutput(path)) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeString(settings());
+			out.writeInt(Config.MAXIMUM_INTERVAL);
+
+			// nodes in ordinal order
+			out.writeInt(lvg.size());
+
+			for (int v = 0; v < lvg.size(); v++)
+				out.writeInt(lvg.getNodeByOrdinal(v).getID());
+
+			for (int v = 0; v < lvg.size(); v++) {
+				n = lvg.getNodeByOrdinal(v);
+
+				writeLifespans(out, n.getLabels());
+
+				out.writeInt(n.getAdjacency().size());
+
+				for (Edge e : n.getAdjacency()) {
+					out.writeInt(e.getTarget().getOrdinal());
+					writeLifespan(out, e.getLifetime());
+				}
+
+				writeNodeIndex(out, n);
+			}
+
+			if (Config.TIPLA_ENABLED && !Config.BLOOM_ENABLED)
+				writeTiPLa(out, lvg.getTiPLa(), lvg.getLabelPaths());
+
+			out.commit();
+		}
+
+		System.out.println("Snapshot write time: " + (System.currentTimeMillis() - time) + " (ms)");
+	}
+
+	/**
+	 * Load the graph and the enabled index from path
+	 *
+	 * @param path
+	 * @return null if there is not any snapshot or it was built with other
+	 *         settings
+	 * @throws IOException
+	 */
+	public static Graph load(String path) throws IOException {
+
+		if (!new File(path).isFile())
+			return null;
+
+		long time = System.currentTimeMillis();
+		Graph lvg = new Graph();
+		int size, ordinal;
+		Node n;
+
+		try (SnapshotInput in = new SnapshotInput(path)) {
+
+			if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readString().equals(settings())) {
+				System.out.println("Snapshot " + path + " was built with other settings");
+				return null;
+			}
+
+			System.out.println("Loading snapshot " + path + "...");
+
+			// lifespans are created with the interval of the snapshot
+			Config.MAXIMUM_INTERVAL = in.readInt();
+
+			size = in.readInt();
+
+			for (int v = 0; v < size; v++)
+				lvg.addNode(in.readInt());
+
+			for (int v = 0; v < size; v++) {
+				n = lvg.getNodeByOrdinal(v);
+
+				for (Entry<Integer, Lifespan> entry : readLifespans(in).entrySet())
+					n.putLabel(entry.getKey(), entry.getValue());
+
+				for (int e = in.readInt(); e > 0; e--) {
+					ordinal = in.readInt();
+					n.putEdge(lvg.getNodeByOrdinal(ordinal), readLifespan(in));
+				}
+
+				readNodeIndex(in, n);
+			}
+
+			if (Config.TIPLA_ENABLED && !Config.BLOOM_ENABLED) {
+				LabelPathDictionary labelPaths = new LabelPathDictionary();
+
+				lvg.setTiPLa(readTiPLa(in, lvg, labelPaths), labelPaths);
+			}
+		}
+
+		System.out.println("Snapshot load time: " + (System.currentTimeMillis() - time) + " (ms)");
+
+		return lvg;
+	}
+
+	/**
+	 * Returns the settings that change the content of a snapshot. The interval
+	 * is the configured one, the loaders that change it run only before a
+	 * snapshot is written
+	 *
+	 * @return
+	 */
+	static String settings() {
+		File data = new File(Config.PATH_DATASET), labels = new File(Config.PATH_LABELS);
+
+		return "data=" + Config.PATH_DATASET + ":" + data.length() + ":" + data.lastModified() + ";labels="
+				+ Config.PATH_LABELS + ":" + labels.length() + ":" + labels.lastModified() + ";interval="
+				+ Config.CONFIGURED_INTERVAL + ";directed=" + Config.ISDIRECTED + ";star="
+				+ Config.ENABLE_STAR_LABEL_PATTERNS + ":" + Config.STAR_LABEL + ";tinla=" + Config.TINLA_ENABLED + ":"
+				+ Config.TINLA_R + (Config.TINLA_DELTA ? ":delta" : "")
+				+ (Config.TINLA_EDGES ? ":edges" : "") + ";ctinla=" + Config.CTINLA_ENABLED + ":" + Config.CTINLA_R + ";tipla="
+				+ Config.TIPLA_ENABLED + ":" + Config.TIPLA_MAX_DEPTH + ";bloom=" + Config.BLOOM_ENABLED;
+	}
+
+	/**
+	 * Write the TiNLa/CTiNLa index of n, plain or bloom
+	 *
+	 * @param out
+	 * @param n
+	 * @throws IOException
+	 */
+	private static void writeNodeIndex(SnapshotOutput out, Node n) throws IOException {
+
+		if (Config.BLOOM_ENABLED) {
+			if (Config.TINLA_ENABLED) {
+				out.writeInt(n.getTiNLaBloom() == null ? -1 : n.getTiNLaBloom().size());
+
+				if (n.getTiNLaBloom() != null) {
+					for (BloomFilter<String> bloom : n.getTiNLaBloom())
+						writeBloom(out, bloom);
+				}
+			} else if (Config.CTINLA_ENABLED) {
+				out.writeInt(n.getCTiNLaBloom() == null ? -1 : n.getCTiNLaBloom().size());
+
+				if (n.getCTiNLaBloom() != null) {
+					for (CountingBloomFilterMemory<String> bloom : n.getCTiNLaBloom())
+						out.writeBytes(serialize(bloom));
+				}
+			} else if (Config.TIPLA_ENABLED) {
+				out.writeInt(n.getTiPLaBloom() == null ? 0 : 1);
+
+				if (n.getTiPLaBloom() != null)
+					writeBloom(out, n.getTiPLaBloom());
+			}
+		} else if (Config.TINLA_ENABLED) {
+			out.writeInt(n.getTiNLa() == null ? -1 : n.getTiNLa().size());
+
+			if (n.getTiNLa() != null) {
+				for (Map<Integer, Lifespan> TiNLaR : n.getTiNLa())
+					writeLifespans(out, TiNLaR);
+			}
+		} else if (Config.CTINLA_ENABLED) {
+			out.writeInt(n.getCTiNLa() == null ? -1 : n.getCTiNLa().size());
+
+			if (n.getCTiNLa() == null)
+				return;
+
+			TimeCounts counts;
+
+			for (Map<Integer, TimeCounts> CTiNLaR : n.getCTiNLa()) {
+				out.writeInt(CTiNLaR.size());
+
+				for (Entry<Integer, TimeCounts> entry : CTiNLaR.entrySet()) {
+					counts = entry.getValue();
+
+					out.writeInt(entry.getKey());
+					out.writeInt(counts.size());
+
+					// t c
+					for (int t = counts.next(0); t != -1; t = counts.next(t + 1)) {
+						out.writeInt(t);
+						out.writeInt(counts.get(t));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Read the index of n written by writeNodeIndex
+	 *
+	 * @param in
+	 * @param n
+	 * @throws IOException
+	 */
+	private static void readNodeIndex(SnapshotInput in, Node n) throws IOException {
+		int size;
+
+		if (Config.BLOOM_ENABLED) {
+			if (Config.TINLA_ENABLED) {
+				if ((size = in.readInt()) == -1)
+					return;
+
+				List<BloomFilter<String>> TiNLaBloom = new ArrayList<>(size);
+
+				for (int r = 0; r < size; r++)
+					TiNLaBloom.add(readBloom(in));
+
+				n.setTiNLaBloom(TiNLaBloom);
+			} else if (Config.CTINLA_ENABLED) {
+				if ((size = in.readInt()) == -1)
+					return;
+
+				List<CountingBloomFilterMemory<String>> CTiNLaBloom = new ArrayList<>(size);
+
+				for (int r = 0; r < size; r++)
+					CTiNLaBloom.add(deserialize(in.readBytes()));
+
+				n.setCTiNLaBloom(CTiNLaBloom);
+			} else if (Config.TIPLA_ENABLED) {
+				if (in.readInt() == 1)
+					n.setTiPLaBloom(readBloom(in));
+			}
+		} else if (Config.TINLA_ENABLED) {
+			if ((size = in.readInt()) == -1)
+				return;
+
+			List<Map<Integer, Lifespan>> TiNLa = new ArrayList<>(size);
+
+			for (int r = 0; r < size; r++)
+				TiNLa.add(readLifespans(in));
+
+			n.setTiNLa(TiNLa);
+		} else if (Config.CTINLA_ENABLED) {
+			if ((size = in.readInt()) == -1)
+				return;
+
+			List<Map<Integer, TimeCounts>> CTiNLa = new ArrayList<>(size);
+			Map<Integer, TimeCounts> CTiNLaR;
+			TimeCounts counters;
+
+			for (int r = 0; r < size; r++) {
+				CTiNLaR = new HashMap<>();
+
+				for (int l = in.readInt(), label; l > 0; l--) {
+					label = in.readInt();
+					counters = new TimeCounts(Config.MAXIMUM_INTERVAL);
+
+					for (int c = in.readInt(); c > 0; c--)
+						counters.add(in.readInt(), in.readInt());
+
+					CTiNLaR.put(label, counters);
+				}
+
+				CTiNLa.add(CTiNLaR);
+			}
+
+			n.setCTiNLa(CTiNLa);
+
+			if (Config.CTINLA_THRESHOLDS > 0) {
+				for (int r = 0; r < size; r++)
+					n.createCTiNLaThresholds(r);
+			}
+		}
+	}
+
+	/**
+	 * Write TiPLa, time instant -> label path -> nodes. The label paths are
+	 * written in text form so the ids are not part of the snapshot
+	 *
+	 * @param out
+	 * @param TiPLa
+	 * @param labelPaths
+	 * @throws IOException
+	 */
+	private static void writeTiPLa(SnapshotOutput out, Map<Integer, Map<Integer, Set<Node>>> TiPLa,
+			LabelPathDictionary labelPaths) throws IOException {
+		out.writeInt(TiPLa.size());
+
+		for (Entry<Integer, Map<Integer, Set<Node>>> entry : TiPLa.entrySet()) {
+			out.writeInt(entry.getKey());
+			out.writeInt(entry.getValue().size());
+
+			for (Entry<Integer, Set<Node>> path : entry.getValue().entrySet()) {
+				out.writeString(labelPaths.toString(path.getKey()));
+				out.writeInt(path.getValue().size());
+
+				for (Node n : path.getValue())
+					out.writeInt(n.getOrdinal());
+			}
+		}
+	}
+
+	/**
+	 * Read TiPLa written by writeTiPLa, the label paths take their ids from
+	 * labelPaths
+	 *
+	 * @param in
+	 * @param lvg
+	 * @param labelPaths
+	 * @return
+	 * @throws IOException
+	 */
+	private static Map<Integer, Map<Integer, Set<Node>>> readTiPLa(SnapshotInput in, Graph lvg,
+			LabelPathDictionary labelPaths) throws IOException {
+		Map<Integer, Map<Integer, Set<Node>>> TiPLa = new HashMap<>();
+		Map<Integer, Set<Node>> paths;
+		Set<Node> nodes;
+		int t, size, path;
+
+		for (int i = in.readInt(); i > 0; i--) {
+			t = in.readInt();
+			paths = new HashMap<>();
+
+			for (int p = in.readInt(); p > 0; p--) {
+				path = labelPaths.id(in.readString());
+				size = in.readInt();
+				nodes = new HashSet<>(size * 2);
+
+				for (int v = 0; v < size; v++)
+					nodes.add(lvg.getNodeByOrdinal(in.readInt()));
+
+				paths.put(path, nodes);
+			}
+
+			TiPLa.put(t, paths);
+		}
+
+		return TiPLa;
+	}
+
+	/**
+	 * Write label -> lifespan entries
+	 *
+	 * @param out
+	 * @param lifespans
+	 * @throws IOException
+	 */
+	private static void writeLifespans(SnapshotOutput out, Map<Integer, Lifespan> lifespans) throws IOException {
+		out.writeInt(lifespans.size());
+
+		for (Entry<Integer, Lifespan> entry : lifespans.entrySet()) {
+			out.writeInt(entry.getKey());
+			writeLifespan(out, entry.getValue());
+		}
+	}
+
+	/**
+	 * Read label -> lifespan entries
+	 *
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	private static Map<Integer, Lifespan> readLifespans(SnapshotInput in) throws IOException {
+		int size = in.readInt();
+		Map<Integer, Lifespan> lifespans = new HashMap<>(size * 2);
+
+		for (int i = 0; i < size; i++)
+			lifespans.put(in.readInt(), readLifespan(in));
+
+		return lifespans;
+	}
+
+	/**
+	 * Write a lifespan as the number of runs followed by start end pairs
+	 *
+	 * @param out
+	 * @param lifespan
+	 * @throws IOException
+	 */
+	private static void writeLifespan(SnapshotOutput out, Lifespan lifespan) throws IOException {
+		int runs = 0;
+
+		for (int s = lifespan.nextSetBit(0); s != -1; s = lifespan.nextSetBit(lifespan.nextClearBit(s)))
+			runs++;
+
+		out.writeInt(runs);
+
+		for (int s = lifespan.nextSetBit(0), e; s != -1; s = lifespan.nextSetBit(e)) {
+			e = lifespan.nextClearBit(s);
+			out.writeInt(s);
+			out.writeInt(e);
+		}
+	}
+
+	/**
+	 * Read a lifespan in the configured representation
+	 *
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	private static Lifespan readLifespan(SnapshotInput in) throws IOException {
+		Lifespan lifespan = Lifespan.create();
+
+		for (int runs = in.readInt(), s; runs > 0; runs--) {
+			s = in.readInt();
+			lifespan.set(s, in.readInt());
+		}
+
+		return lifespan;
+	}
+
+	/**
+	 * Write a guava bloom filter in its own format
+	 *
+	 * @param out
+	 * @param bloom
+	 * @throws IOException
+	 */
+	private static void writeBloom(SnapshotOutput out, BloomFilter<String> bloom) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		bloom.writeTo(bytes);
+		out.writeBytes(bytes.toByteArray());
+	}
+
+	/**
+	 * Read a guava bloom filter written by writeBloom
+	 *
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	private static BloomFilter<String> readBloom(SnapshotInput in) throws IOException {
+		return BloomFilter.readFrom(new ByteArrayInputStream(in.readBytes()), Funnels.stringFunnel(Charsets.UTF_8));
+	}
+
+	/**
+	 * Counting bloom filters do not expose their counters, so they are kept
+	 * with java serialization
+	 *
+	 * @param bloom
+	 * @return
+	 * @throws IOException
+	 */
+	private static byte[] serialize(CountingBloomFilterMemory<String> bloom) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(bloom);
+		}
+
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Read a counting bloom filter written by serialize
+	 *
+	 * @param bytes
+	 * @return
+	 * @throws IOException
+	 */
+	@SuppressWarnings("unchecked")
+	private static CountingBloomFilterMemory<String> deserialize(byte[] bytes) throws IOException {
+
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			return (CountingBloomFilterMemory<String>) in.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException(e);
+		}
+	}
+}
@@ -0,0 +1,341 @@
+package graph.version;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import system.Config;
+
+/**
+ * Lifespan kept as a sorted list of disjoint runs [start, end). When the runs
+ * need more memory than a bitset over the whole interval the lifespan falls back
+ * to a bitset
+ *
+ * @author ksemer
+ */
+public class IntervalLifespan extends Lifespan {
+
+	// =================================================================
+
+	private static final long serialVersionUID = 1L;
+
+	// start0 end0 start1 end1 ...
+	private int[] runs;
+
+	// used positions of runs
+	private int size;
+
+	// dense fallback, when it is set runs is null
+	private BitSet dense;
+
+	// =================================================================
+
+	/**
+	 * Constructor
+	 */
+	public IntervalLifespan() {
+		runs = new int[2];
+	}
+
+	/**
+	 * Constructor for already sorted and merged runs
+	 *
+	 * @param runs
+	 * @param size
+	 */
+	IntervalLifespan(int[] runs, int size) {
+		this.runs = runs;
+		this.size = size;
+	}
+
+	/**
+	 * Returns the index of the first run with end > t
+	 *
+	 * @param t
+	 * @return
+	 */
+	private int search(int t) {
+		int lo = 0, hi = size >>> 1, mid;
+
+		while (lo < hi) {
+			mid = (lo + hi) >>> 1;
+
+			if (runs[2 * mid + 1] > t)
+				hi = mid;
+			else
+				lo = mid + 1;
+		}
+
+		return lo;
+	}
+
+	@Override
+	public boolean get(int t) {
+		if (dense != null)
+			return dense.get(t);
+
+		int i = search(t);
+
+		return 2 * i < size && runs[2 * i] <= t;
+	}
+
+	@Override
+	public void set(int t) {
+		set(t, t + 1);
+	}
+
+	@Override
+	public void set(int start, int end) {
+
+		if (start >= end)
+			return;
+
+		if (dense != null) {
+			dense.set(start, end);
+			return;
+		}
+
+		// append or extend the last run, the common case while loading
+		if (size == 0 || start > runs[size - 1]) {
+			ensureCapacity(size + 2);
+			runs[size++] = start;
+			runs[size++] = end;
+		} else if (start >= runs[size - 2]) {
+			if (end > runs[size - 1])
+				runs[size - 1] = end;
+
+			return;
+		} else {
+			// first run touching start
+			int i = search(start - 1), j = i;
+
+			// last run touching end
+			while (2 * j < size && runs[2 * j] <= end)
+				j++;
+			j--;
+
+			if (i > j) {
+				// insert a new run in position i
+				ensureCapacity(size + 2);
+				System.arraycopy(runs, 2 * i, runs, 2 * i + 2, size - 2 * i);
+				runs[2 * i] = start;
+				runs[2 * i + 1] = end;
+				size += 2;
+			} else {
+				// merge runs i..j
+				runs[2 * i] = Math.min(start, runs[2 * i]);
+				runs[2 * i + 1] = Math.max(end, runs[2 * j + 1]);
+				System.arraycopy(runs, 2 * j + 2, runs, 2 * i + 2, size - 2 * j - 2);
+				size -= 2 * (j - i);
+			}
+		}
+
+		if (size > denseLimit())
+			toDense();
+	}
+
+	/**
+	 * Grow runs array
+	 *
+	 * @param capacity
+	 */
+	private void ensureCapacity(int capacity) {
+		if (runs.length < capacity)
+			runs = Arrays.copyOf(runs, Math.max(capacity, runs.length * 2));
+	}
+
+	/**
+	 * Number of run positions after which a bitset over the interval is smaller
+	 *
+	 * @return
+	 */
+	private static int denseLimit() {
+		return 2 * ((Config.MAXIMUM_INTERVAL + 63) >>> 6) + 6;
+	}
+
+	/**
+	 * Switch to the bitset representation
+	 */
+	private void toDense() {
+		dense = new BitSet(Config.MAXIMUM_INTERVAL);
+
+		for (int i = 0; i < size; i += 2)
+			dense.set(runs[i], runs[i + 1]);
+
+		runs = null;
+		size = 0;
+	}
+
+	@Override
+	public int nextSetBit(int from) {
+		if (dense != null)
+			return dense.nextSetBit(from);
+
+		int i = search(from);
+
+		if (2 * i == size)
+			return -1;
+
+		return Math.max(from, runs[2 * i]);
+	}
+
+	@Override
+	public int nextClearBit(int from) {
+		if (dense != null)
+			return dense.nextClearBit(from);
+
+		int i = search(from);
+
+		if (2 * i < size && runs[2 * i] <= from)
+			return runs[2 * i + 1];
+
+		return from;
+	}
+
+	@Override
+	public int cardinality() {
+		if (dense != null)
+			return dense.cardinality();
+
+		int card = 0;
+
+		for (int i = 0; i < size; i += 2)
+			card += runs[i + 1] - runs[i];
+
+		return card;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		if (dense != null)
+			return dense.isEmpty();
+
+		return size == 0;
+	}
+
+	@Override
+	public int length() {
+		if (dense != null)
+			return dense.length();
+
+		return size == 0 ? 0 : runs[size - 1];
+	}
+
+	@Override
+	public int cardinality(BitSet mask) {
+		if (dense != null)
+			return super.cardinality(mask);
+
+		int card = 0;
+
+		for (int i = 0; i < size; i += 2)
+			card += count(mask, runs[i], runs[i + 1]);
+
+		return card;
+	}
+
+	@Override
+	public int longestRun() {
+		if (dense != null)
+			return super.longestRun();
+
+		int max = 0;
+
+		for (int i = 0; i < size; i += 2) {
+			if (max < runs[i + 1] - runs[i])
+				max = runs[i + 1] - runs[i];
+		}
+
+		return max;
+	}
+
+	@Override
+	public void or(Lifespan other) {
+
+		if (dense != null || !(other instanceof IntervalLifespan) || ((IntervalLifespan) other).dense != null) {
+			super.or(other);
+			return;
+		}
+
+		IntervalLifespan o = (IntervalLifespan) other;
+
+		if (o.size == 0)
+			return;
+
+		// linear merge of the two sorted run lists
+		int[] merged = new int[size + o.size];
+		int i = 0, j = 0, m = 0, s, e;
+
+		while (i < size || j < o.size) {
+
+			if (j == o.size || (i < size && runs[i] <= o.runs[j])) {
+				s = runs[i];
+				e = runs[i + 1];
+				i += 2;
+			} else {
+				s = o.runs[j];
+				e = o.runs[j + 1];
+				j += 2;
+			}
+
+			if (m > 0 && s <= merged[m - 1]) {
+				if (e > merged[m - 1])
+					merged[m - 1] = e;
+			} else {
+				merged[m++] = s;
+				merged[m++] = e;
+			}
+		}
+
+		runs = merged;
+		size = m;
+
+		if (size > denseLimit())
+			toDense();
+	}
+
+	@Override
+	public void andInto(BitSet target) {
+		if (dense != null) {
+			target.and(dense);
+			return;
+		}
+
+		int prev = 0;
+
+		for (int i = 0; i < size; i += 2) {
+			target.clear(prev, runs[i]);
+			prev = runs[i + 1];
+		}
+
+		if (prev < target.length())
+			target.clear(prev, target.length());
+	}
+
+	@Override
+	public void andInto(long[] words, int n) {
+		if (dense != null) {
+			super.andInto(words, n);
+			return;
+		}
+
+		int prev = 0, limit = n << 6;
+
+		for (int i = 0; i < size && prev < limit; i += 2) {
+			clear(words, prev, Math.min(runs[i], limit));
+			prev = runs[i + 1];
+		}
+
+		clear(words, prev, limit);
+	}
+
+	@Override
+	public void orInto(BitSet target) {
+		if (dense != null) {
+			target.or(dense);
+			return;
+		}
+
+		for (int i = 0; i < size; i += 2)
+			target.set(runs[i], runs[i + 1]);
+	}
+}
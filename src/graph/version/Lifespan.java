@@ -0,0 +1,328 @@
+package graph.version;
+
+import java.io.Serializable;
+import java.util.BitSet;
+
+import system.Config;
+
+/**
+ * Lifespan of an edge or a label. Time instants are kept either as a list of
+ * contiguous runs (IntervalLifespan) or as a bitset (BitSetLifespan). The
+ * operations needed by the matching algorithms are expressed over runs, so
+ * their cost depends on the number of runs and not on the horizon
+ *
+ * @author ksemer
+ */
+public abstract class Lifespan implements Serializable {
+
+	// =================================================================
+
+	private static final long serialVersionUID = 1L;
+
+	// =================================================================
+
+	/**
+	 * Create an empty lifespan using the configured representation
+	 *
+	 * @return
+	 */
+	public static Lifespan create() {
+		if (Config.INTERVAL_LIFESPANS)
+			return new IntervalLifespan();
+
+		return new BitSetLifespan(Config.MAXIMUM_INTERVAL);
+	}
+
+	/**
+	 * Returns true if time instant t is active
+	 *
+	 * @param t
+	 * @return
+	 */
+	public abstract boolean get(int t);
+
+	/**
+	 * Set time instant t active
+	 *
+	 * @param t
+	 */
+	public abstract void set(int t);
+
+	/**
+	 * Set time instants from start to end - 1 active
+	 *
+	 * @param start
+	 * @param end
+	 */
+	public abstract void set(int start, int end);
+
+	/**
+	 * Returns the first active time instant >= from or -1
+	 *
+	 * @param from
+	 * @return
+	 */
+	public abstract int nextSetBit(int from);
+
+	/**
+	 * Returns the first inactive time instant >= from
+	 *
+	 * @param from
+	 * @return
+	 */
+	public abstract int nextClearBit(int from);
+
+	/**
+	 * Returns the number of active time instants
+	 *
+	 * @return
+	 */
+	public abstract int cardinality();
+
+	/**
+	 * Returns true if there is not any active time instant
+	 *
+	 * @return
+	 */
+	public abstract boolean isEmpty();
+
+	/**
+	 * Returns the highest active time instant + 1
+	 *
+	 * @return
+	 */
+	public abstract int length();
+
+	/**
+	 * Returns the number of active time instants that are also set in mask
+	 *
+	 * @param mask
+	 * @return
+	 */
+	public int cardinality(BitSet mask) {
+		int card = 0;
+
+		for (int s = nextSetBit(0), e; s != -1; s = nextSetBit(e)) {
+			e = nextClearBit(s);
+			card += count(mask, s, e);
+		}
+
+		return card;
+	}
+
+	/**
+	 * Returns the number of set bits of mask in range start to end - 1
+	 *
+	 * @param mask
+	 * @param start
+	 * @param end
+	 * @return
+	 */
+	static int count(BitSet mask, int start, int end) {
+		int card = 0;
+
+		for (int s = mask.nextSetBit(start), e; s != -1 && s < end; s = mask.nextSetBit(e)) {
+			e = Math.min(mask.nextClearBit(s), end);
+			card += e - s;
+		}
+
+		return card;
+	}
+
+	/**
+	 * Returns the length of the longest contiguous run of active time instants
+	 *
+	 * @return
+	 */
+	public int longestRun() {
+		int max = 0;
+
+		for (int s = nextSetBit(0), e; s != -1; s = nextSetBit(e)) {
+			e = nextClearBit(s);
+
+			if (max < e - s)
+				max = e - s;
+		}
+
+		return max;
+	}
+
+	/**
+	 * Returns the length of the longest contiguous run of set bits
+	 *
+	 * @param bits
+	 * @return
+	 */
+	public static int longestRun(BitSet bits) {
+		int max = 0;
+
+		for (int s = bits.nextSetBit(0), e; s != -1; s = bits.nextSetBit(e)) {
+			e = bits.nextClearBit(s);
+
+			if (max < e - s)
+				max = e - s;
+		}
+
+		return max;
+	}
+
+	/**
+	 * Returns the length of the longest contiguous run of set bits in the first
+	 * n words. Full and empty words cost O(1), mixed words are scanned run by
+	 * run
+	 *
+	 * @param words
+	 * @param n
+	 * @return
+	 */
+	public static int longestRun(long[] words, int n) {
+		int max = 0, cur = 0, low, bit, z, o;
+		long w, x;
+
+		for (int i = 0; i < n; i++) {
+			w = words[i];
+
+			if (w == -1L) {
+				cur += 64;
+				continue;
+			}
+
+			// ones at the bottom extend the current run
+			low = Long.numberOfTrailingZeros(~w);
+
+			if (max < cur + low)
+				max = cur + low;
+
+			// bit 0 of x is clear
+			x = w >>> low;
+			bit = low;
+			cur = 0;
+
+			while (x != 0) {
+				z = Long.numberOfTrailingZeros(x);
+				x >>>= z;
+				bit += z;
+
+				o = Long.numberOfTrailingZeros(~x);
+
+				// run reaching the top continues in the next word
+				if (bit + o == 64) {
+					cur = o;
+					break;
+				}
+
+				if (max < o)
+					max = o;
+
+				x >>>= o;
+				bit += o;
+			}
+		}
+
+		return Math.max(max, cur);
+	}
+
+	/**
+	 * Update this lifespan with the active time instants of other
+	 *
+	 * @param other
+	 */
+	public void or(Lifespan other) {
+		for (int s = other.nextSetBit(0), e; s != -1; s = other.nextSetBit(e)) {
+			e = other.nextClearBit(s);
+			set(s, e);
+		}
+	}
+
+	/**
+	 * target = target AND this
+	 *
+	 * @param target
+	 */
+	public void andInto(BitSet target) {
+		int prev = 0;
+
+		for (int s = nextSetBit(0), e; s != -1; s = nextSetBit(e)) {
+			e = nextClearBit(s);
+			target.clear(prev, s);
+			prev = e;
+		}
+
+		if (prev < target.length())
+			target.clear(prev, target.length());
+	}
+
+	/**
+	 * words = words AND this, only the first n words are updated
+	 *
+	 * @param words
+	 * @param n
+	 */
+	public void andInto(long[] words, int n) {
+		int prev = 0, limit = n << 6;
+
+		for (int s = nextSetBit(0), e; s != -1 && prev < limit; s = nextSetBit(e)) {
+			e = nextClearBit(s);
+			clear(words, prev, Math.min(s, limit));
+			prev = e;
+		}
+
+		clear(words, prev, limit);
+	}
+
+	/**
+	 * Clear bits from to to - 1 of words
+	 *
+	 * @param words
+	 * @param from
+	 * @param to
+	 */
+	static void clear(long[] words, int from, int to) {
+		if (from >= to)
+			return;
+
+		int first = from >>> 6, last = (to - 1) >>> 6;
+		long firstMask = -1L << from, lastMask = -1L >>> -to;
+
+		if (first == last) {
+			words[first] &= ~(firstMask & lastMask);
+			return;
+		}
+
+		words[first] &= ~firstMask;
+
+		for (int i = first + 1; i < last; i++)
+			words[i] = 0;
+
+		words[last] &= ~lastMask;
+	}
+
+	/**
+	 * target = target OR this
+	 *
+	 * @param target
+	 */
+	public void orInto(BitSet target) {
+		for (int s = nextSetBit(0), e; s != -1; s = nextSetBit(e)) {
+			e = nextClearBit(s);
+			target.set(s, e);
+		}
+	}
+
+	/**
+	 * Returns a new bitset with the active time instants
+	 *
+	 * @return
+	 */
+	public BitSet toBitSet() {
+		BitSet bits = new BitSet(length());
+		orInto(bits);
+
+		return bits;
+	}
+
+	@Override
+	public String toString() {
+		return toBitSet().toString();
+	}
+}
@@ -0,0 +1,777 @@
+package graph.version;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+import graph.version.index.LabelPostings;
+import system.Config;
+
+/**
+ * Read only version graph served from a memory mapped file. The adjacency, the
+ * edge and label lifespans and the label postings are kept in flat sections of
+ * the file and nodes, edges and lifespans are views created on access, so the
+ * graph does not occupy the heap. The file is created from a loaded Graph and
+ * it is ignored when it was built with other settings. The interval of the
+ * graph is kept after the settings and it is restored when the file is opened
+ *
+ * Layout after the header, offsets are element indexes:
+ *
+ * <pre>
+ * long adjOffsets[n + 1]           edges of ordinal v: adjOffsets[v] .. adjOffsets[v + 1] - 1
+ * long edgeRuns[E + 1]             runs of edge e: runs[edgeRuns[e]] .. runs[edgeRuns[e + 1] - 1]
+ * long labelOffsets[n + 1]         label entries of ordinal v
+ * long labelRuns[LE + 1]           runs of label entry l
+ * long postingOffsets[P + 1]       postings of posting key p
+ * int  ids[n], idOrder[n]          node ids and ordinals sorted by id
+ * int  targets[E], labelKeys[LE]   sorted per ordinal
+ * int  postingKeys[P]              sorted
+ * int  postingOrdinals[LE], postingEntries[LE], runs[R]
+ * </pre>
+ *
+ * @author ksemer
+ */
+public final class MappedGraph implements TemporalGraph {
+	// =====================================
+
+	// "DGPM"
+	private static final int MAGIC = 0x4447504D;
+
+	private static final int VERSION = 3;
+
+	// 1GB segments, values are aligned so they never cross a segment
+	private static final int SEGMENT_BITS = 30;
+
+	private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+	private final MappedByteBuffer[] segments;
+
+	private final int size;
+
+	private final int postingLabels;
+
+	// byte offsets of the sections
+	private final long adjOffsets, edgeRuns, labelOffsets, labelRuns, postingOffsets;
+
+	private final long ids, idOrder, targets, labelKeys, postingKeys, postingOrdinals, postingEntries, runs;
+
+	// =====================================
+
+	/**
+	 * Constructor
+	 *
+	 * @param segments
+	 * @param base
+	 *            byte offset of the counts after the header
+	 */
+	private MappedGraph(MappedByteBuffer[] segments, long base) {
+		this.segments = segments;
+
+		size = getInt(base);
+		postingLabels = getInt(base + 4);
+
+		// the number of run ints in base + 24 is not needed to locate the sections
+		long edges = getLong(base + 8), labelEntries = getLong(base + 16);
+
+		adjOffsets = base + 32;
+		edgeRuns = adjOffsets + (size + 1L) * Long.BYTES;
+		labelOffsets = edgeRuns + (edges + 1) * Long.BYTES;
+		labelRuns = labelOffsets + (size + 1L) * Long.BYTES;
+		postingOffsets = labelRuns + (labelEntries + 1) * Long.BYTES;
+
+		ids = postingOffsets + (postingLabels + 1L) * Long.BYTES;
+		idOrder = ids + (long) size * Integer.BYTES;
+		targets = idOrder + (long) size * Integer.BYTES;
+		labelKeys = targets + edges * Integer.BYTES;
+		postingKeys = labelKeys + labelEntries * Integer.BYTES;
+		postingOrdinals = postingKeys + (long) postingLabels * Integer.BYTES;
+		postingEntries = postingOrdinals + labelEntries * Integer.BYTES;
+		runs = postingEntries + labelEntries * Integer.BYTES;
+	}
+
+	/**
+	 * Write the graph to path
+	 *
+	 * @param lvg
+	 * @param path
+	 * @throws IOException
+	 */
+	public static void write(Graph lvg, String path) throws IOException {
+		long time = System.currentTimeMillis();
+		int size = lvg.size();
+		long edges = 0, labelEntries = 0, edgeRunInts = 0, runInts = 0, offset;
+		TreeMap<Integer, Integer> postingCounts = new TreeMap<>();
+		Node n;
+
+		for (int v = 0; v < size; v++) {
+			n = lvg.getNodeByOrdinal(v);
+			edges += n.getAdjacency().size();
+			labelEntries += n.getLabels().size();
+
+			for (Edge e : n.getAdjacency())
+				edgeRunInts += 2 * runs(e.getLifetime());
+
+			for (Entry label : labels(n)) {
+				runInts += 2 * runs(label.lifespan);
+				postingCounts.merge(label.key, 1, Integer::sum);
+			}
+		}
+
+		runInts += edgeRunInts;
+
+		try (SnapshotOutput out = new SnapshotOutput(path)) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeString(GraphSnapshot.settings());
+			out.writeInt(Config.MAXIMUM_INTERVAL);
+			out.align(Long.BYTES);
+
+			out.writeInt(size);
+			out.writeInt(postingCounts.size());
+			out.writeLong(edges);
+			out.writeLong(labelEntries);
+			out.writeLong(runInts);
+
+			// adjOffsets
+			offset = 0;
+
+			for (int v = 0; v < size; v++) {
+				out.writeLong(offset);
+				offset += lvg.getNodeByOrdinal(v).getAdjacency().size();
+			}
+
+			out.writeLong(offset);
+
+			// edgeRuns
+			offset = 0;
+
+			for (int v = 0; v < size; v++) {
+				for (Edge e : adjacency(lvg.getNodeByOrdinal(v))) {
+					out.writeLong(offset);
+					offset += 2 * runs(e.getLifetime());
+				}
+			}
+
+			out.writeLong(offset);
+
+			// labelOffsets
+			offset = 0;
+
+			for (int v = 0; v < size; v++) {
+				out.writeLong(offset);
+				offset += lvg.getNodeByOrdinal(v).getLabels().size();
+			}
+
+			out.writeLong(offset);
+
+			// labelRuns, label runs follow the edge runs
+			offset = edgeRunInts;
+
+			for (int v = 0; v < size; v++) {
+				for (Entry label : labels(lvg.getNodeByOrdinal(v))) {
+					out.writeLong(offset);
+					offset += 2 * runs(label.lifespan);
+				}
+			}
+
+			out.writeLong(offset);
+
+			// postingOffsets
+			offset = 0;
+
+			for (int count : postingCounts.values()) {
+				out.writeLong(offset);
+				offset += count;
+			}
+
+			out.writeLong(offset);
+
+			// ids and idOrder
+			Integer[] order = new Integer[size];
+
+			for (int v = 0; v < size; v++) {
+				out.writeInt(lvg.getNodeByOrdinal(v).getID());
+				order[v] = v;
+			}
+
+			Arrays.sort(order, (v1, v2) -> Integer.compare(lvg.getNodeByOrdinal(v1).getID(),
+					lvg.getNodeByOrdinal(v2).getID()));
+
+			for (int v : order)
+				out.writeInt(v);
+
+			// targets
+			for (int v = 0; v < size; v++) {
+				for (Edge e : adjacency(lvg.getNodeByOrdinal(v)))
+					out.writeInt(e.getTarget().getOrdinal());
+			}
+
+			// labelKeys
+			for (int v = 0; v < size; v++) {
+				for (Entry label : labels(lvg.getNodeByOrdinal(v)))
+					out.writeInt(label.key);
+			}
+
+			// postingKeys
+			for (int label : postingCounts.keySet())
+				out.writeInt(label);
+
+			// postingOrdinals and postingEntries, nodes are visited by ordinal so the
+			// postings of each label are sorted
+			int[] cursor = new int[postingCounts.size()], postings = new int[(int) labelEntries],
+					entries = new int[(int) labelEntries];
+			int[] postingLabels = new int[postingCounts.size()];
+			int p = 0, entry = 0, slot;
+
+			offset = 0;
+
+			for (Map.Entry<Integer, Integer> count : postingCounts.entrySet()) {
+				postingLabels[p] = count.getKey();
+				cursor[p++] = (int) offset;
+				offset += count.getValue();
+			}
+
+			for (int v = 0; v < size; v++) {
+				for (Entry label : labels(lvg.getNodeByOrdinal(v))) {
+					slot = cursor[Arrays.binarySearch(postingLabels, label.key)]++;
+					postings[slot] = v;
+					entries[slot] = entry++;
+				}
+			}
+
+			for (int ordinal : postings)
+				out.writeInt(ordinal);
+
+			for (int e : entries)
+				out.writeInt(e);
+
+			// runs
+			for (int v = 0; v < size; v++) {
+				for (Edge e : adjacency(lvg.getNodeByOrdinal(v)))
+					writeRuns(out, e.getLifetime());
+			}
+
+			for (int v = 0; v < size; v++) {
+				for (Entry label : labels(lvg.getNodeByOrdinal(v)))
+					writeRuns(out, label.lifespan);
+			}
+
+			out.commit();
+		}
+
+		System.out.println("Mapped graph write time: " + (System.currentTimeMillis() - time) + " (ms)");
+	}
+
+	/**
+	 * Map the graph stored in path
+	 *
+	 * @param path
+	 * @return null if there is not any mapped graph or it was built with other
+	 *         settings
+	 * @throws IOException
+	 */
+	public static MappedGraph open(String path) throws IOException {
+
+		if (!new File(path).isFile())
+			return null;
+
+		long base, size, from;
+		int interval;
+		MappedByteBuffer[] segments;
+
+		try (SnapshotInput in = new SnapshotInput(path)) {
+
+			if (in.readInt() != MAGIC || in.readInt() != VERSION
+					|| !in.readString().equals(GraphSnapshot.settings())) {
+				System.out.println("Mapped graph " + path + " was built with other settings");
+				return null;
+			}
+
+			interval = in.readInt();
+			base = (in.position() + Long.BYTES - 1) & -Long.BYTES;
+		}
+
+		System.out.println("Mapping graph " + path + "...");
+
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+			size = channel.size();
+			segments = new MappedByteBuffer[(int) ((size + SEGMENT_MASK) >>> SEGMENT_BITS)];
+
+			for (int s = 0; s < segments.length; s++) {
+				from = (long) s << SEGMENT_BITS;
+				segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, from, Math.min(SEGMENT_MASK + 1, size - from));
+			}
+		}
+
+		Config.MAXIMUM_INTERVAL = interval;
+
+		return new MappedGraph(segments, base);
+	}
+
+	/**
+	 * Return the edges of n sorted by target ordinal
+	 *
+	 * @param n
+	 * @return
+	 */
+	private static Edge[] adjacency(Node n) {
+		Edge[] row = n.getAdjacency().toArray(new Edge[0]);
+
+		Arrays.sort(row, (e1, e2) -> Integer.compare(e1.getTarget().getOrdinal(), e2.getTarget().getOrdinal()));
+
+		return row;
+	}
+
+	/**
+	 * Return the labels of n sorted by label
+	 *
+	 * @param n
+	 * @return
+	 */
+	private static Entry[] labels(Node n) {
+		Entry[] labels = new Entry[n.getLabels().size()];
+		int i = 0;
+
+		for (Map.Entry<Integer, Lifespan> entry : n.getLabels().entrySet())
+			labels[i++] = new Entry(entry.getKey(), entry.getValue());
+
+		Arrays.sort(labels, (l1, l2) -> Integer.compare(l1.key, l2.key));
+
+		return labels;
+	}
+
+	/**
+	 * Return the number of runs of lifespan
+	 *
+	 * @param lifespan
+	 * @return
+	 */
+	private static int runs(Lifespan lifespan) {
+		int runs = 0;
+
+		for (int s = lifespan.nextSetBit(0); s != -1; s = lifespan.nextSetBit(lifespan.nextClearBit(s)))
+			runs++;
+
+		return runs;
+	}
+
+	/**
+	 * Write the runs of lifespan
+	 *
+	 * @param out
+	 * @param lifespan
+	 * @throws IOException
+	 */
+	private static void writeRuns(SnapshotOutput out, Lifespan lifespan) throws IOException {
+		for (int s = lifespan.nextSetBit(0), e; s != -1; s = lifespan.nextSetBit(e)) {
+			e = lifespan.nextClearBit(s);
+			out.writeInt(s);
+			out.writeInt(e);
+		}
+	}
+
+	/**
+	 * Read the int in byte offset pos
+	 *
+	 * @param pos
+	 * @return
+	 */
+	private int getInt(long pos) {
+		return segments[(int) (pos >>> SEGMENT_BITS)].getInt((int) (pos & SEGMENT_MASK));
+	}
+
+	/**
+	 * Read the long in byte offset pos
+	 *
+	 * @param pos
+	 * @return
+	 */
+	private long getLong(long pos) {
+		return segments[(int) (pos >>> SEGMENT_BITS)].getLong((int) (pos & SEGMENT_MASK));
+	}
+
+	/**
+	 * Return element i of the int section
+	 *
+	 * @param section
+	 * @param i
+	 * @return
+	 */
+	private int intAt(long section, long i) {
+		return getInt(section + i * Integer.BYTES);
+	}
+
+	/**
+	 * Return element i of the long section
+	 *
+	 * @param section
+	 * @param i
+	 * @return
+	 */
+	private long longAt(long section, long i) {
+		return getLong(section + i * Long.BYTES);
+	}
+
+	/**
+	 * Return the index of key in the sorted elements from .. to - 1 of the int
+	 * section or -1
+	 *
+	 * @param section
+	 * @param from
+	 * @param to
+	 * @param key
+	 * @return
+	 */
+	private long search(long section, long from, long to, int key) {
+		long mid;
+		int value;
+
+		while (from < to) {
+			mid = (from + to) >>> 1;
+			value = intAt(section, mid);
+
+			if (value < key)
+				from = mid + 1;
+			else if (value > key)
+				to = mid;
+			else
+				return mid;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Return a read only view of the lifespan kept in runs from .. to - 1
+	 *
+	 * @param from
+	 * @param to
+	 * @return
+	 */
+	private Lifespan lifespan(long from, long to) {
+		return new RunView(from, to);
+	}
+
+	/**
+	 * Return the lifespan of label entry l
+	 *
+	 * @param l
+	 * @return
+	 */
+	private Lifespan labelLifespan(long l) {
+		return lifespan(longAt(labelRuns, l), longAt(labelRuns, l + 1));
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public TemporalNode getNode(int nodeID) {
+		int lo = 0, hi = size, mid, ordinal, id;
+
+		while (lo < hi) {
+			mid = (lo + hi) >>> 1;
+			ordinal = intAt(idOrder, mid);
+			id = intAt(ids, ordinal);
+
+			if (id < nodeID)
+				lo = mid + 1;
+			else if (id > nodeID)
+				hi = mid;
+			else
+				return new MappedNode(ordinal);
+		}
+
+		return null;
+	}
+
+	@Override
+	public TemporalNode getNodeByOrdinal(int ordinal) {
+		return new MappedNode(ordinal);
+	}
+
+	@Override
+	public LabelPostings getLabelPostings(int label) {
+		LabelPostings postings = new LabelPostings();
+		long p = search(postingKeys, 0, postingLabels, label);
+
+		if (p == -1)
+			return postings;
+
+		for (long i = longAt(postingOffsets, p), end = longAt(postingOffsets, p + 1); i < end; i++)
+			postings.add(intAt(postingOrdinals, i), labelLifespan(intAt(postingEntries, i)));
+
+		postings.trim();
+
+		return postings;
+	}
+
+	/**
+	 * Label and lifespan of a node, used while the file is written
+	 */
+	private static final class Entry {
+		private final int key;
+
+		private final Lifespan lifespan;
+
+		private Entry(int key, Lifespan lifespan) {
+			this.key = key;
+			this.lifespan = lifespan;
+		}
+	}
+
+	/**
+	 * View of the node with the given ordinal
+	 */
+	private final class MappedNode implements TemporalNode {
+		private final int ordinal;
+
+		private MappedNode(int ordinal) {
+			this.ordinal = ordinal;
+		}
+
+		@Override
+		public int getID() {
+			return intAt(ids, ordinal);
+		}
+
+		@Override
+		public int getOrdinal() {
+			return ordinal;
+		}
+
+		@Override
+		public Lifespan getLabel(int label) {
+			long l = search(labelKeys, longAt(labelOffsets, ordinal), longAt(labelOffsets, ordinal + 1), label);
+
+			return l == -1 ? null : labelLifespan(l);
+		}
+
+		@Override
+		public Map<Integer, Lifespan> getLabels() {
+			long from = longAt(labelOffsets, ordinal), to = longAt(labelOffsets, ordinal + 1);
+			Map<Integer, Lifespan> labels = new HashMap<>((int) (to - from) * 2);
+
+			for (long l = from; l < to; l++)
+				labels.put(intAt(labelKeys, l), labelLifespan(l));
+
+			return labels;
+		}
+
+		@Override
+		public Collection<TemporalEdge> getAdjacency() {
+			final long from = longAt(adjOffsets, ordinal), to = longAt(adjOffsets, ordinal + 1);
+
+			return new AbstractCollection<TemporalEdge>() {
+
+				@Override
+				public Iterator<TemporalEdge> iterator() {
+					return new Iterator<TemporalEdge>() {
+						private long e = from;
+
+						@Override
+						public boolean hasNext() {
+							return e < to;
+						}
+
+						@Override
+						public TemporalEdge next() {
+							if (e == to)
+								throw new NoSuchElementException();
+
+							return new MappedEdge(e++);
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return (int) (to - from);
+				}
+			};
+		}
+
+		@Override
+		public TemporalEdge getEdge(TemporalNode n) {
+			long e = search(targets, longAt(adjOffsets, ordinal), longAt(adjOffsets, ordinal + 1), n.getOrdinal());
+
+			return e == -1 ? null : new MappedEdge(e);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof MappedNode && ((MappedNode) o).ordinal == ordinal;
+		}
+
+		@Override
+		public int hashCode() {
+			return ordinal;
+		}
+	}
+
+	/**
+	 * View of edge e
+	 */
+	private final class MappedEdge implements TemporalEdge {
+		private final long e;
+
+		private MappedEdge(long e) {
+			this.e = e;
+		}
+
+		@Override
+		public TemporalNode getTarget() {
+			return new MappedNode(intAt(targets, e));
+		}
+
+		@Override
+		public Lifespan getLifetime() {
+			return lifespan(longAt(edgeRuns, e), longAt(edgeRuns, e + 1));
+		}
+	}
+
+	/**
+	 * Read only lifespan over the mapped runs from .. to - 1, the runs are read
+	 * from the file on each access and never copied to the heap
+	 */
+	private final class RunView extends Lifespan {
+
+		private static final long serialVersionUID = 1L;
+
+		private final long from, to;
+
+		/**
+		 * Constructor
+		 *
+		 * @param from
+		 * @param to
+		 */
+		private RunView(long from, long to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * Returns the position of the first run with end > t
+		 *
+		 * @param t
+		 * @return
+		 */
+		private long search(int t) {
+			long lo = 0, hi = (to - from) >>> 1, mid;
+
+			while (lo < hi) {
+				mid = (lo + hi) >>> 1;
+
+				if (intAt(runs, from + 2 * mid + 1) > t)
+					hi = mid;
+				else
+					lo = mid + 1;
+			}
+
+			return from + 2 * lo;
+		}
+
+		@Override
+		public boolean get(int t) {
+			long i = search(t);
+
+			return i < to && intAt(runs, i) <= t;
+		}
+
+		@Override
+		public void set(int t) {
+			throw new UnsupportedOperationException("The lifespans of a mapped graph can not be changed");
+		}
+
+		@Override
+		public void set(int start, int end) {
+			throw new UnsupportedOperationException("The lifespans of a mapped graph can not be changed");
+		}
+
+		@Override
+		public int nextSetBit(int t) {
+			long i = search(t);
+
+			return i == to ? -1 : Math.max(t, intAt(runs, i));
+		}
+
+		@Override
+		public int nextClearBit(int t) {
+			long i = search(t);
+
+			return i < to && intAt(runs, i) <= t ? intAt(runs, i + 1) : t;
+		}
+
+		@Override
+		public int cardinality() {
+			int card = 0;
+
+			for (long i = from; i < to; i += 2)
+				card += intAt(runs, i + 1) - intAt(runs, i);
+
+			return card;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return from == to;
+		}
+
+		@Override
+		public int length() {
+			return from == to ? 0 : intAt(runs, to - 1);
+		}
+
+		@Override
+		public int longestRun() {
+			int max = 0;
+
+			for (long i = from; i < to; i += 2) {
+				if (max < intAt(runs, i + 1) - intAt(runs, i))
+					max = intAt(runs, i + 1) - intAt(runs, i);
+			}
+
+			return max;
+		}
+
+		@Override
+		public void andInto(BitSet target) {
+			int prev = 0;
+
+			for (long i = from; i < to; i += 2) {
+				target.clear(prev, intAt(runs, i));
+				prev = intAt(runs, i + 1);
+			}
+
+			if (prev < target.length())
+				target.clear(prev, target.length());
+		}
+
+		@Override
+		public void andInto(long[] words, int n) {
+			int prev = 0, limit = n << 6;
+
+			for (long i = from; i < to && prev < limit; i += 2) {
+				clear(words, prev, Math.min(intAt(runs, i), limit));
+				prev = intAt(runs, i + 1);
+			}
+
+			clear(words, prev, limit);
+		}
+	}
+}
@@ -4,8 +4,8 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -15,6 +15,7 @@ import com.google.common.base.Charsets;
 import com.google.common.hash.BloomFilter;
 import com.google.common.hash.Funnels;
 
+import graph.version.index.TimeCounts;
 import orestes.bloomfilter.FilterBuilder;
 import orestes.bloomfilter.memory.CountingBloomFilterMemory;
 import system.Config;
@@ -24,7 +25,7 @@ import system.Config;
  * 
  * @author ksemer
  */
-public class Node implements Serializable {
+public class Node implements TemporalNode, Serializable {
 
 	// =================================================================
 
@@ -33,20 +34,26 @@ public class Node implements Serializable {
 	// node id
 	private int id;
 
+	// dense node ordinal assigned by the graph
+	private int ordinal;
+
 	// label -> [lifespan]
-	private Map<Integer, BitSet> labels;
+	private Map<Integer, Lifespan> labels;
 
 	// trg -> [Edge]
 	private Map<Node, Edge> adjacencies;
 
+	// frozen adjacency, when set adjacencies is null
+	private CSRGraph csr;
+
 	// r -> label -> [lifespan]
-	private List<Map<Integer, BitSet>> TiNLa;
+	private List<Map<Integer, Lifespan>> TiNLa;
 
 	// r -> [bloom -> (t l]
 	private List<BloomFilter<String>> TiNLaBloom;
 
 	// r -> label -> [t --> c]
-	private List<Map<Integer, Map<Integer, Integer>>> CTiNLa;
+	private List<Map<Integer, TimeCounts>> CTiNLa;
 
 	// r -> [bloom -> t l c]
 	private List<CountingBloomFilterMemory<String>> CTiNLaBloom;
@@ -63,17 +70,17 @@ public class Node implements Serializable {
 	 * Constructor
 	 * 
 	 * @param id
+	 * @param ordinal
 	 */
-	public Node(int id) {
+	public Node(int id, int ordinal) {
 
 		this.id = id;
+		this.ordinal = ordinal;
 		this.adjacencies = new HashMap<>();
 		this.labels = new HashMap<>();
 
-		if (Config.ENABLE_STAR_LABEL_PATTERNS) {
-			BitSet lifespan = new BitSet(Config.MAXIMUM_INTERVAL);
-			labels.put(Config.STAR_LABEL, lifespan);
-		}
+		if (Config.ENABLE_STAR_LABEL_PATTERNS)
+			labels.put(Config.STAR_LABEL, Lifespan.create());
 	}
 
 	/**
@@ -83,10 +90,12 @@ public class Node implements Serializable {
 	 * @param time
 	 */
 	public void addEdge(Node node, int time) {
+		checkNotFrozen();
+
 		Edge e = adjacencies.get(node);
 
 		if (e == null) {
-			e = new Edge(node, new BitSet(Config.MAXIMUM_INTERVAL));
+			e = new Edge(node, Lifespan.create());
 			adjacencies.put(node, e);
 		}
 
@@ -101,16 +110,59 @@ public class Node implements Serializable {
 	 * @param end
 	 */
 	public void addEdge(Node node, int start, int end) {
+		checkNotFrozen();
+
 		Edge e = adjacencies.get(node);
 
 		if (e == null) {
-			e = new Edge(node, new BitSet(Config.MAXIMUM_INTERVAL));
+			e = new Edge(node, Lifespan.create());
 			adjacencies.put(node, e);
 		}
 
 		e.updateLifetime(start, end);
 	}
 
+	/**
+	 * Replace the adjacency map with the frozen CSR adjacency
+	 * 
+	 * @param csr
+	 */
+	void freeze(CSRGraph csr) {
+		this.csr = csr;
+		this.adjacencies = null;
+	}
+
+	/**
+	 * Add an edge with the given lifespan, used when a snapshot is loaded or a
+	 * graph is built in bulk
+	 * 
+	 * @param node
+	 * @param lifespan
+	 */
+	void putEdge(Node node, Lifespan lifespan) {
+		checkNotFrozen();
+		adjacencies.put(node, new Edge(node, lifespan));
+	}
+
+	/**
+	 * Set the lifespan of label, used when a snapshot is loaded or a graph is
+	 * built in bulk
+	 * 
+	 * @param label
+	 * @param lifespan
+	 */
+	void putLabel(int label, Lifespan lifespan) {
+		labels.put(label, lifespan);
+	}
+
+	/**
+	 * Edges cannot be added after the graph has been frozen
+	 */
+	private void checkNotFrozen() {
+		if (csr != null)
+			throw new IllegalStateException("Node " + id + " belongs to a frozen graph");
+	}
+
 	/**
 	 * Update label lifespan
 	 * 
@@ -118,10 +170,10 @@ public class Node implements Serializable {
 	 * @param t
 	 */
 	public void updateLabelLifespan(int label, int t) {
-		BitSet lifespan;
+		Lifespan lifespan;
 
 		if ((lifespan = labels.get(label)) == null) {
-			lifespan = new BitSet(Config.MAXIMUM_INTERVAL);
+			lifespan = Lifespan.create();
 			labels.put(label, lifespan);
 		}
 
@@ -140,10 +192,10 @@ public class Node implements Serializable {
 	 * @param end
 	 */
 	public void updateLabelLifespan(int label, int start, int end) {
-		BitSet lifespan;
+		Lifespan lifespan;
 
 		if ((lifespan = labels.get(label)) == null) {
-			lifespan = new BitSet(Config.MAXIMUM_INTERVAL);
+			lifespan = Lifespan.create();
 			labels.put(label, lifespan);
 		}
 
@@ -154,6 +206,28 @@ public class Node implements Serializable {
 		}
 	}
 
+	/**
+	 * Update label lifespan with the range start to end - 1
+	 * 
+	 * @param label
+	 * @param start
+	 * @param end
+	 */
+	public void updateLabelRange(int label, int start, int end) {
+		Lifespan lifespan;
+
+		if ((lifespan = labels.get(label)) == null) {
+			lifespan = Lifespan.create();
+			labels.put(label, lifespan);
+		}
+
+		lifespan.set(start, end);
+
+		if (Config.ENABLE_STAR_LABEL_PATTERNS) {
+			labels.get(Config.STAR_LABEL).set(start, end);
+		}
+	}
+
 	/**
 	 * Initialize TiNLa index for radius r
 	 * 
@@ -164,7 +238,7 @@ public class Node implements Serializable {
 		if (TiNLa == null)
 			TiNLa = new ArrayList<>();
 
-		TiNLa.add(r, new HashMap<Integer, BitSet>());
+		TiNLa.add(r, new HashMap<Integer, Lifespan>());
 	}
 
 	/**
@@ -180,20 +254,58 @@ public class Node implements Serializable {
 		CTiNLa.add(r, new HashMap<>());
 	}
 
+	/**
+	 * Replace TiNLa of radius r with an empty index, used when the index of the
+	 * node is computed again
+	 * 
+	 * @param r
+	 */
+	public void resetTiNLa(int r) {
+
+		if (TiNLa == null || TiNLa.size() <= r)
+			initializeTiNLa(r);
+		else
+			TiNLa.set(r, new HashMap<Integer, Lifespan>());
+	}
+
+	/**
+	 * Replace CTiNLa of radius r with an empty index, used when the index of the
+	 * node is computed again
+	 * 
+	 * @param r
+	 */
+	public void resetCTiNLa(int r) {
+
+		if (CTiNLa == null || CTiNLa.size() <= r)
+			initializeCTiNLa(r);
+		else
+			CTiNLa.set(r, new HashMap<>());
+	}
+
+	/**
+	 * Remove TiNLa, CTiNLa and their blooms so that they can be created again
+	 */
+	public void clearTimeNeighborIndex() {
+		TiNLa = null;
+		TiNLaBloom = null;
+		CTiNLa = null;
+		CTiNLaBloom = null;
+	}
+
 	/**
 	 * Update TiNLa(r) labels contain info from an adjacent node of (this) node
 	 * 
 	 * @param r
 	 * @param label
 	 */
-	public void updateTiNLa(int r, Map<Integer, BitSet> labels) {
+	public void updateTiNLa(int r, Map<Integer, Lifespan> labels) {
 
 		int label;
-		BitSet lifespan, lifespanTrg;
-		Map<Integer, BitSet> TiNLaR = TiNLa.get(r);
+		Lifespan lifespan, lifespanTrg;
+		Map<Integer, Lifespan> TiNLaR = TiNLa.get(r);
 
 		// for each label
-		for (Entry<Integer, BitSet> entry : labels.entrySet()) {
+		for (Entry<Integer, Lifespan> entry : labels.entrySet()) {
 			// label
 			label = entry.getKey();
 
@@ -201,7 +313,7 @@ public class Node implements Serializable {
 			lifespanTrg = entry.getValue();
 
 			if ((lifespan = TiNLaR.get(label)) == null) {
-				lifespan = new BitSet(Config.MAXIMUM_INTERVAL);
+				lifespan = Lifespan.create();
 				TiNLaR.put(label, lifespan);
 			}
 
@@ -211,82 +323,138 @@ public class Node implements Serializable {
 	}
 
 	/**
-	 * Update CTiNLa in radius 1
+	 * Update TiNLa with the labels of a neighbor at the time instants where the
+	 * edge to the neighbor exists
 	 * 
 	 * @param r
 	 * @param labels
+	 * @param edge
 	 */
-	public void updateCTiNLa(int r, Map<Integer, BitSet> labels) {
+	public void updateTiNLa(int r, Map<Integer, Lifespan> labels, Lifespan edge) {
 
-		int t, label;
-		BitSet lifespan;
-		Integer tmpCounter;
-		Map<Integer, Integer> CTiNLa_l;
-		Map<Integer, Map<Integer, Integer>> CTiNLaR = CTiNLa.get(r);
+		Lifespan lifespan;
+		BitSet edgeLife = edge.toBitSet(), life;
+		Map<Integer, Lifespan> TiNLaR = TiNLa.get(r);
 
 		// for each label
-		for (Entry<Integer, BitSet> entry : labels.entrySet()) {
+		for (Entry<Integer, Lifespan> entry : labels.entrySet()) {
+			life = (BitSet) edgeLife.clone();
+			entry.getValue().andInto(life);
 
-			// label
-			label = entry.getKey();
+			if (life.isEmpty())
+				continue;
 
-			// label's lifespan
-			lifespan = entry.getValue();
+			if ((lifespan = TiNLaR.get(entry.getKey())) == null) {
+				lifespan = Lifespan.create();
+				TiNLaR.put(entry.getKey(), lifespan);
+			}
+
+			// update TiNLa index
+			for (int s = life.nextSetBit(0), e; s != -1; s = life.nextSetBit(e)) {
+				e = life.nextClearBit(s);
+				lifespan.set(s, e);
+			}
+		}
+	}
+
+	/**
+	 * Remove from TiNLa of radius r the time instants of each label that exist
+	 * in a smaller radius, used when TiNLa keeps deltas
+	 * 
+	 * @param r
+	 * @return true if time instants are left
+	 */
+	public boolean subtractTiNLa(int r) {
+
+		Map<Integer, Lifespan> TiNLaR = TiNLa.get(r);
+		Map<Integer, Lifespan> delta = new HashMap<>();
+		Lifespan previous, lifespan;
+		BitSet life;
 
-			if ((CTiNLa_l = CTiNLaR.get(label)) == null) {
-				CTiNLa_l = new HashMap<>();
-				CTiNLaR.put(label, CTiNLa_l);
+		for (Entry<Integer, Lifespan> entry : TiNLaR.entrySet()) {
+			life = entry.getValue().toBitSet();
+
+			for (int k = 0; k < r && !life.isEmpty(); k++) {
+				if ((previous = TiNLa.get(k).get(entry.getKey())) != null)
+					life.andNot(previous.toBitSet());
 			}
 
-			// for each active time instant update CTiNLa index
-			for (Iterator<Integer> it = lifespan.stream().iterator(); it.hasNext();) {
-				t = it.next();
+			if (life.isEmpty())
+				continue;
+
+			lifespan = Lifespan.create();
 
-				if ((tmpCounter = CTiNLa_l.get(t)) == null)
-					CTiNLa_l.put(t, 1);
-				else
-					CTiNLa_l.put(t, tmpCounter.intValue() + 1);
+			for (int s = life.nextSetBit(0), e; s != -1; s = life.nextSetBit(e)) {
+				e = life.nextClearBit(s);
+				lifespan.set(s, e);
 			}
+
+			delta.put(entry.getKey(), lifespan);
 		}
+
+		// most nodes reach no new time instant in larger radiuses
+		TiNLa.set(r, delta.isEmpty() ? Collections.<Integer, Lifespan>emptyMap() : delta);
+
+		return !delta.isEmpty();
 	}
 
 	/**
-	 * Update CTiNLa in radius > 1
+	 * Update CTiNLa in radius 1
 	 * 
 	 * @param r
-	 * @param trgCTiNLa
+	 * @param labels
 	 */
-	public void updateCTiNLaR(int r, Map<Integer, Map<Integer, Integer>> trgCTiNLa) {
+	public void updateCTiNLa(int r, Map<Integer, Lifespan> labels) {
 
-		int label, t;
-		Integer tmpCounter;
-		Map<Integer, Integer> CTiNLa_l;
-		Map<Integer, Integer> counterPerTime;
-		Map<Integer, Map<Integer, Integer>> CTiNLaR = CTiNLa.get(r);
+		TimeCounts counts;
+		Map<Integer, TimeCounts> CTiNLaR = CTiNLa.get(r);
 
 		// for each label
-		for (Entry<Integer, Map<Integer, Integer>> entry : trgCTiNLa.entrySet()) {
+		for (Entry<Integer, Lifespan> entry : labels.entrySet()) {
 
-			// label
-			label = entry.getKey();
+			if ((counts = CTiNLaR.get(entry.getKey())) == null) {
+				counts = new TimeCounts(Config.MAXIMUM_INTERVAL);
+				CTiNLaR.put(entry.getKey(), counts);
+			}
 
-			// per time instant the counter for the label
-			counterPerTime = entry.getValue();
+			// for each active time instant of the label update CTiNLa index
+			counts.add(entry.getValue());
+		}
+	}
 
-			if ((CTiNLa_l = CTiNLaR.get(label)) == null) {
-				CTiNLa_l = new HashMap<>();
-				CTiNLaR.put(label, CTiNLa_l);
-			}
+	/**
+	 * Create the threshold bitmaps of CTiNLa in radius r up to
+	 * CTiNLa_thresholds neighbors
+	 * 
+	 * @param r
+	 */
+	public void createCTiNLaThresholds(int r) {
+
+		for (TimeCounts counts : CTiNLa.get(r).values())
+			counts.createThresholds(Config.CTINLA_THRESHOLDS);
+	}
+
+	/**
+	 * Update CTiNLa in radius > 1
+	 * 
+	 * @param r
+	 * @param trgCTiNLa
+	 */
+	public void updateCTiNLaR(int r, Map<Integer, TimeCounts> trgCTiNLa) {
 
-			// for each active time instant update TiNLa index
-			for (Entry<Integer, Integer> et : counterPerTime.entrySet()) {
-				t = et.getKey();
+		TimeCounts counts;
+		Map<Integer, TimeCounts> CTiNLaR = CTiNLa.get(r);
 
-				if ((tmpCounter = CTiNLa_l.get(t)) == null)
-					CTiNLa_l.put(t, et.getValue());
-				else
-					CTiNLa_l.put(t, tmpCounter.intValue() + et.getValue());
+		// for each label
+		for (Entry<Integer, TimeCounts> entry : trgCTiNLa.entrySet()) {
+
+			if ((counts = CTiNLaR.get(entry.getKey())) == null) {
+				counts = new TimeCounts(Config.MAXIMUM_INTERVAL);
+				CTiNLaR.put(entry.getKey(), counts);
 			}
+
+			// per time instant add the counter of the label
+			counts.add(entry.getValue());
 		}
 	}
 
@@ -297,7 +465,7 @@ public class Node implements Serializable {
 	 */
 	public void createTiNLaBloom(int r) {
 
-		BitSet lifespan;
+		Lifespan lifespan;
 		int times = 0;
 
 		if (TiNLaBloom == null)
@@ -307,7 +475,7 @@ public class Node implements Serializable {
 		if (TiNLa.get(r).isEmpty())
 			return;
 
-		for (Entry<Integer, BitSet> entry : TiNLa.get(r).entrySet()) {
+		for (Entry<Integer, Lifespan> entry : TiNLa.get(r).entrySet()) {
 			lifespan = entry.getValue();
 
 			for (int t = lifespan.nextSetBit(0); t != -1; t = lifespan.nextSetBit(t + 1)) {
@@ -320,7 +488,7 @@ public class Node implements Serializable {
 		int label;
 		BloomFilter<String> bloom = TiNLaBloom.get(r);
 
-		for (Entry<Integer, BitSet> entry : TiNLa.get(r).entrySet()) {
+		for (Entry<Integer, Lifespan> entry : TiNLa.get(r).entrySet()) {
 
 			label = entry.getKey();
 			lifespan = entry.getValue();
@@ -347,15 +515,11 @@ public class Node implements Serializable {
 		if (CTiNLa.get(r).isEmpty())
 			return;
 
-		for (Entry<Integer, Map<Integer, Integer>> entry : CTiNLa.get(r).entrySet()) {
+		for (TimeCounts counts : CTiNLa.get(r).values()) {
+			times += counts.size();
 
-			times += entry.getValue().size();
-
-			for (Entry<Integer, Integer> entry1 : entry.getValue().entrySet()) {
-
-				if (max < entry1.getValue())
-					max = entry1.getValue();
-			}
+			if (max < counts.max())
+				max = counts.max();
 		}
 
 		int bloom_bits;
@@ -367,18 +531,14 @@ public class Node implements Serializable {
 
 		CTiNLaBloom.add(new CountingBloomFilterMemory<String>(new FilterBuilder(times, 0.01).countingBits(bloom_bits)));
 
-		int label, t;
 		CountingBloomFilterMemory<String> bloom = CTiNLaBloom.get(r);
+		TimeCounts counts;
 
-		for (Entry<Integer, Map<Integer, Integer>> entry : CTiNLa.get(r).entrySet()) {
+		for (Entry<Integer, TimeCounts> entry : CTiNLa.get(r).entrySet()) {
+			counts = entry.getValue();
 
-			label = entry.getKey();
-
-			for (Entry<Integer, Integer> entry1 : entry.getValue().entrySet()) {
-
-				t = entry1.getKey();
-				bloom.add(t + " " + label, entry1.getValue());
-			}
+			for (int t = counts.next(0); t != -1; t = counts.next(t + 1))
+				bloom.add(t + " " + entry.getKey(), counts.get(t));
 		}
 	}
 
@@ -414,7 +574,8 @@ public class Node implements Serializable {
 	}
 
 	/**
-	 * Return for Node the intersection of TiNLa(r) and given lifespan
+	 * Return for Node the intersection of TiNLa(r) and given lifespan. When TiNLa
+	 * keeps deltas the union of TiNLa(0) .. TiNLa(r) is intersected
 	 * 
 	 * @param r
 	 * @param label
@@ -423,12 +584,33 @@ public class Node implements Serializable {
 	 */
 	public BitSet getTiNLa(int r, int label, BitSet lifespan) {
 
-		BitSet life;
+		Lifespan life;
+
+		if (Config.TINLA_DELTA) {
+			BitSet reached = null;
+
+			// the time instants of the label within radius r
+			for (int k = 0; k <= r && k < TiNLa.size(); k++) {
+				if ((life = TiNLa.get(k).get(label)) != null) {
+					if (reached == null)
+						reached = new BitSet();
+
+					life.orInto(reached);
+				}
+			}
+
+			if (reached == null)
+				return null;
+
+			lifespan.and(reached);
+
+			return lifespan;
+		}
 
 		if ((life = TiNLa.get(r).get(label)) == null)
 			return null;
 
-		lifespan.and(life);
+		life.andInto(lifespan);
 
 		return lifespan;
 	}
@@ -438,7 +620,7 @@ public class Node implements Serializable {
 	 * 
 	 * @return
 	 */
-	public List<Map<Integer, BitSet>> getTiNLa() {
+	public List<Map<Integer, Lifespan>> getTiNLa() {
 		return TiNLa;
 	}
 
@@ -447,7 +629,7 @@ public class Node implements Serializable {
 	 * 
 	 * @return
 	 */
-	public List<Map<Integer, Map<Integer, Integer>>> getCTiNLa() {
+	public List<Map<Integer, TimeCounts>> getCTiNLa() {
 		return CTiNLa;
 	}
 
@@ -469,6 +651,60 @@ public class Node implements Serializable {
 		return CTiNLaBloom;
 	}
 
+	/**
+	 * Return TiPLaBloom index
+	 * 
+	 * @return
+	 */
+	BloomFilter<String> getTiPLaBloom() {
+		return TiPLaBloom;
+	}
+
+	/**
+	 * Set TiNLa index, used when a snapshot is loaded
+	 * 
+	 * @param TiNLa
+	 */
+	void setTiNLa(List<Map<Integer, Lifespan>> TiNLa) {
+		this.TiNLa = TiNLa;
+	}
+
+	/**
+	 * Set CTiNLa index, used when a snapshot is loaded
+	 * 
+	 * @param CTiNLa
+	 */
+	void setCTiNLa(List<Map<Integer, TimeCounts>> CTiNLa) {
+		this.CTiNLa = CTiNLa;
+	}
+
+	/**
+	 * Set TiNLaBloom index, used when a snapshot is loaded
+	 * 
+	 * @param TiNLaBloom
+	 */
+	void setTiNLaBloom(List<BloomFilter<String>> TiNLaBloom) {
+		this.TiNLaBloom = TiNLaBloom;
+	}
+
+	/**
+	 * Set CTiNLaBloom index, used when a snapshot is loaded
+	 * 
+	 * @param CTiNLaBloom
+	 */
+	void setCTiNLaBloom(List<CountingBloomFilterMemory<String>> CTiNLaBloom) {
+		this.CTiNLaBloom = CTiNLaBloom;
+	}
+
+	/**
+	 * Set TiPLaBloom index, used when a snapshot is loaded
+	 * 
+	 * @param TiPLaBloom
+	 */
+	void setTiPLaBloom(BloomFilter<String> TiPLaBloom) {
+		this.TiPLaBloom = TiPLaBloom;
+	}
+
 	/**
 	 * Returns the time instances where there are at least c neighborhoods with the
 	 * given label
@@ -481,21 +717,13 @@ public class Node implements Serializable {
 	 */
 	public BitSet getCTiNLa(int r, int label, int c, BitSet lifespan) {
 
-		Map<Integer, Integer> cT;
+		TimeCounts cT;
 
 		if ((cT = CTiNLa.get(r).get(label)) == null)
 			return null;
 
-		BitSet life = (BitSet) lifespan.clone();
-
-		for (int t = lifespan.nextSetBit(0); t != -1; t = lifespan.nextSetBit(t + 1)) {
-
-			// if node doesn't contain at least c neighbors then disable the time instant
-			if (cT.get(t) == null || cT.get(t) < c)
-				life.set(t, false);
-		}
-
-		return life;
+		// time instants where node contains at least c neighbors
+		return cT.atLeast(c, lifespan);
 	}
 
 	/**
@@ -617,10 +845,11 @@ public class Node implements Serializable {
 	}
 
 	/**
-	 * Initialize auxiliary TiPLa structure
+	 * Initialize auxiliary TiPLa structure and drop the previous TiPLaBloom
 	 */
 	public void initiliazeTiPLaAux() {
 		TiPLaAux = new HashMap<>();
+		TiPLaBloom = null;
 	}
 
 	/**
@@ -628,17 +857,29 @@ public class Node implements Serializable {
 	 * 
 	 * @return
 	 */
+	@Override
 	public int getID() {
 		return id;
 	}
 
+	/**
+	 * Returns node's dense ordinal
+	 * 
+	 * @return
+	 */
+	@Override
+	public int getOrdinal() {
+		return ordinal;
+	}
+
 	/**
 	 * Return label's lifespan
 	 * 
 	 * @param label
 	 * @return
 	 */
-	public BitSet getLabel(int label) {
+	@Override
+	public Lifespan getLabel(int label) {
 		return labels.get(label);
 	}
 
@@ -647,7 +888,8 @@ public class Node implements Serializable {
 	 * 
 	 * @return
 	 */
-	public Map<Integer, BitSet> getLabels() {
+	@Override
+	public Map<Integer, Lifespan> getLabels() {
 		return labels;
 	}
 
@@ -656,7 +898,11 @@ public class Node implements Serializable {
 	 * 
 	 * @return
 	 */
+	@Override
 	public Collection<Edge> getAdjacency() {
+		if (csr != null)
+			return csr.getAdjacency(ordinal);
+
 		return adjacencies.values();
 	}
 
@@ -666,7 +912,11 @@ public class Node implements Serializable {
 	 * @param n
 	 * @return
 	 */
-	public Edge getEdge(Node n) {
+	@Override
+	public Edge getEdge(TemporalNode n) {
+		if (csr != null)
+			return csr.getEdge(ordinal, n.getOrdinal());
+
 		return adjacencies.get(n);
 	}
 }
\ No newline at end of file
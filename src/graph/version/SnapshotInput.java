@@ -0,0 +1,128 @@
+package graph.version;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a snapshot file through read only memory mapped windows
+ *
+ * @author ksemer
+ */
+final class SnapshotInput implements Closeable {
+	// =====================================
+
+	private static final int WINDOW = 1 << 26;
+
+	private final FileChannel channel;
+
+	private final long size;
+
+	private MappedByteBuffer buffer;
+
+	// file offset of the current window
+	private long offset;
+
+	// =====================================
+
+	/**
+	 * Constructor
+	 *
+	 * @param path
+	 * @throws IOException
+	 */
+	SnapshotInput(String path) throws IOException {
+		channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+		size = channel.size();
+		buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(WINDOW, size));
+	}
+
+	/**
+	 * Map the next window if the current one has less than bytes left
+	 *
+	 * @param bytes
+	 * @throws IOException
+	 */
+	private void ensure(int bytes) throws IOException {
+		if (buffer.remaining() >= bytes)
+			return;
+
+		offset += buffer.position();
+
+		if (offset + bytes > size)
+			throw new EOFException("Truncated snapshot");
+
+		buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(Math.max(WINDOW, bytes), size - offset));
+	}
+
+	/**
+	 * Read an int
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	int readInt() throws IOException {
+		ensure(Integer.BYTES);
+		return buffer.getInt();
+	}
+
+	/**
+	 * Read a long
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	long readLong() throws IOException {
+		ensure(Long.BYTES);
+		return buffer.getLong();
+	}
+
+	/**
+	 * Read bytes written by SnapshotOutput.writeBytes
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	byte[] readBytes() throws IOException {
+		byte[] bytes = new byte[readInt()];
+		int len;
+
+		for (int off = 0; off < bytes.length; off += len) {
+			len = Math.min(bytes.length - off, WINDOW);
+			ensure(len);
+			buffer.get(bytes, off, len);
+		}
+
+		return bytes;
+	}
+
+	/**
+	 * Read a string written by SnapshotOutput.writeString
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	String readString() throws IOException {
+		return new String(readBytes(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Return the number of read bytes
+	 *
+	 * @return
+	 */
+	long position() {
+		return offset + buffer.position();
+	}
+
+	@Override
+	public void close() throws IOException {
+		buffer = null;
+		channel.close();
+	}
+}
@@ -0,0 +1,172 @@
+package graph.version;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes a snapshot file through memory mapped windows. A new window is mapped
+ * after the written bytes whenever the current one is full. The bytes go to a
+ * temporary file in the directory of the snapshot, which commit truncates to
+ * the written size and renames to the snapshot, so a failed or concurrent
+ * write never leaves a partial snapshot in place. Closing without commit
+ * deletes the temporary file
+ *
+ * @author ksemer
+ */
+final class SnapshotOutput implements Closeable {
+	// =====================================
+
+	private static final int WINDOW = 1 << 26;
+
+	private final Path path, temp;
+
+	private final FileChannel channel;
+
+	private MappedByteBuffer buffer;
+
+	// file offset of the current window
+	private long offset;
+
+	// =====================================
+
+	/**
+	 * Constructor
+	 *
+	 * @param path
+	 * @throws IOException
+	 */
+	SnapshotOutput(String path) throws IOException {
+		this.path = Paths.get(path).toAbsolutePath();
+		temp = Files.createTempFile(this.path.getParent(), this.path.getFileName().toString(), ".tmp");
+		channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, WINDOW);
+	}
+
+	/**
+	 * Map a new window if the current one has less than bytes left
+	 *
+	 * @param bytes
+	 * @throws IOException
+	 */
+	private void ensure(int bytes) throws IOException {
+		if (buffer.remaining() >= bytes)
+			return;
+
+		offset += buffer.position();
+		buffer.force();
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, offset, Math.max(WINDOW, bytes));
+	}
+
+	/**
+	 * Write an int
+	 *
+	 * @param v
+	 * @throws IOException
+	 */
+	void writeInt(int v) throws IOException {
+		ensure(Integer.BYTES);
+		buffer.putInt(v);
+	}
+
+	/**
+	 * Write a long
+	 *
+	 * @param v
+	 * @throws IOException
+	 */
+	void writeLong(long v) throws IOException {
+		ensure(Long.BYTES);
+		buffer.putLong(v);
+	}
+
+	/**
+	 * Write zero bytes until the position is a multiple of bytes
+	 *
+	 * @param bytes
+	 * @throws IOException
+	 */
+	void align(int bytes) throws IOException {
+		ensure(bytes);
+
+		while (position() % bytes != 0)
+			buffer.put((byte) 0);
+	}
+
+	/**
+	 * Return the number of written bytes
+	 *
+	 * @return
+	 */
+	long position() {
+		return offset + buffer.position();
+	}
+
+	/**
+	 * Write the length of bytes followed by bytes
+	 *
+	 * @param bytes
+	 * @throws IOException
+	 */
+	void writeBytes(byte[] bytes) throws IOException {
+		int len;
+
+		writeInt(bytes.length);
+
+		for (int off = 0; off < bytes.length; off += len) {
+			len = Math.min(bytes.length - off, WINDOW);
+			ensure(len);
+			buffer.put(bytes, off, len);
+		}
+	}
+
+	/**
+	 * Write a string in UTF-8
+	 *
+	 * @param s
+	 * @throws IOException
+	 */
+	void writeString(String s) throws IOException {
+		writeBytes(s.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Truncate the written file and rename it to the snapshot path
+	 *
+	 * @throws IOException
+	 */
+	void commit() throws IOException {
+		long size = position();
+
+		buffer.force();
+		buffer = null;
+		channel.truncate(size);
+		channel.close();
+
+		try {
+			Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			// the file system can not replace atomically
+			Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+
+		if (!channel.isOpen())
+			return;
+
+		// not committed, the partial file is removed
+		buffer = null;
+		channel.close();
+		Files.deleteIfExists(temp);
+	}
+}
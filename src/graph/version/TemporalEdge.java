@@ -0,0 +1,23 @@
+package graph.version;
+
+/**
+ * Read only view of an edge of a version graph
+ * 
+ * @author ksemer
+ */
+public interface TemporalEdge {
+
+	/**
+	 * Returns target
+	 * 
+	 * @return
+	 */
+	TemporalNode getTarget();
+
+	/**
+	 * Returns lifespan
+	 * 
+	 * @return
+	 */
+	Lifespan getLifetime();
+}
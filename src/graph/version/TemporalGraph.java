@@ -0,0 +1,44 @@
+package graph.version;
+
+import graph.version.index.LabelPostings;
+
+/**
+ * Read only view of a version graph used by the matching algorithms,
+ * implemented by the heap Graph and by MappedGraph
+ * 
+ * @author ksemer
+ */
+public interface TemporalGraph {
+
+	/**
+	 * Graph Size
+	 * 
+	 * @return
+	 */
+	int size();
+
+	/**
+	 * Get node with id = nodeID or null
+	 * 
+	 * @param nodeID
+	 * @return
+	 */
+	TemporalNode getNode(int nodeID);
+
+	/**
+	 * Get node with the given dense ordinal
+	 * 
+	 * @param ordinal
+	 * @return
+	 */
+	TemporalNode getNodeByOrdinal(int ordinal);
+
+	/**
+	 * Return the (node ordinal, label lifespan) postings of label sorted by
+	 * ordinal
+	 * 
+	 * @param label
+	 * @return
+	 */
+	LabelPostings getLabelPostings(int label);
+}
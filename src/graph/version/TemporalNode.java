@@ -0,0 +1,57 @@
+package graph.version;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Read only view of a node of a version graph, implemented by the heap Node and
+ * by the nodes of a MappedGraph
+ * 
+ * @author ksemer
+ */
+public interface TemporalNode {
+
+	/**
+	 * Returns node's id
+	 * 
+	 * @return
+	 */
+	int getID();
+
+	/**
+	 * Returns node's dense ordinal
+	 * 
+	 * @return
+	 */
+	int getOrdinal();
+
+	/**
+	 * Return label's lifespan or null
+	 * 
+	 * @param label
+	 * @return
+	 */
+	Lifespan getLabel(int label);
+
+	/**
+	 * Return label -> lifespan of the node
+	 * 
+	 * @return
+	 */
+	Map<Integer, Lifespan> getLabels();
+
+	/**
+	 * Return nodes's adjacency
+	 * 
+	 * @return
+	 */
+	Collection<? extends TemporalEdge> getAdjacency();
+
+	/**
+	 * Return edge to node n or null if it does not exist
+	 * 
+	 * @param n
+	 * @return
+	 */
+	TemporalEdge getEdge(TemporalNode n);
+}
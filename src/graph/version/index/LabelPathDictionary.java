@@ -0,0 +1,198 @@
+package graph.version.index;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary of the label paths of TiPLa. A label path is identified by an int
+ * id that is assigned to its prefix path and its last label, so a path is
+ * extended by one label with a single lookup instead of building and hashing
+ * the label path as a string. The text form of a path is its labels separated
+ * by spaces as in the pattern paths
+ *
+ * @author ksemer
+ */
+public class LabelPathDictionary implements Serializable {
+
+	// =================================================================
+
+	private static final long serialVersionUID = 1L;
+
+	// prefix of the paths with a single label
+	public static final int EMPTY = -1;
+
+	// (prefix, label) -> id
+	private Map<Long, Integer> ids;
+
+	// prefix and last label per id
+	private int[] prefixes, labels;
+
+	// number of paths
+	private volatile int size;
+
+	// =================================================================
+
+	/**
+	 * Constructor
+	 */
+	public LabelPathDictionary() {
+		ids = new ConcurrentHashMap<>();
+		prefixes = new int[16];
+		labels = new int[16];
+	}
+
+	/**
+	 * Return the id of the path prefix followed by label, a new id is assigned
+	 * to a new path
+	 *
+	 * @param prefix
+	 *            id of the prefix path or EMPTY
+	 * @param label
+	 * @return
+	 */
+	public int id(int prefix, int label) {
+		long key = key(prefix, label);
+		Integer id;
+
+		if ((id = ids.get(key)) != null)
+			return id;
+
+		synchronized (this) {
+
+			if ((id = ids.get(key)) != null)
+				return id;
+
+			if (size == prefixes.length) {
+				prefixes = Arrays.copyOf(prefixes, size * 2);
+				labels = Arrays.copyOf(labels, size * 2);
+			}
+
+			prefixes[size] = prefix;
+			labels[size] = label;
+			id = size;
+
+			ids.put(key, id);
+			size++;
+		}
+
+		return id;
+	}
+
+	/**
+	 * Return the id of the path prefix followed by label or -1 if it does not
+	 * exist
+	 *
+	 * @param prefix
+	 * @param label
+	 * @return
+	 */
+	public int find(int prefix, int label) {
+		Integer id = ids.get(key(prefix, label));
+
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Return the id of the label path in text form or -1 if it does not exist
+	 *
+	 * @param path
+	 * @return
+	 */
+	public int find(String path) {
+		int id = EMPTY;
+
+		for (String label : path.split(" ")) {
+			if ((id = find(id, Integer.parseInt(label))) == -1)
+				return -1;
+		}
+
+		return id;
+	}
+
+	/**
+	 * Return the ids of the label paths in text form, -1 for the paths that do
+	 * not exist
+	 *
+	 * @param paths
+	 * @return
+	 */
+	public int[] find(List<String> paths) {
+		int[] ids = new int[paths.size()];
+
+		for (int i = 0; i < ids.length; i++)
+			ids[i] = find(paths.get(i));
+
+		return ids;
+	}
+
+	/**
+	 * Return the id of the label path in text form, a new id is assigned to a
+	 * new path
+	 *
+	 * @param path
+	 * @return
+	 */
+	public int id(String path) {
+		int id = EMPTY;
+
+		for (String label : path.split(" "))
+			id = id(id, Integer.parseInt(label));
+
+		return id;
+	}
+
+	/**
+	 * Return the text form of the path with the given id
+	 *
+	 * @param id
+	 * @return
+	 */
+	public String toString(int id) {
+		int[] path;
+		int length = 0;
+
+		synchronized (this) {
+			for (int p = id; p != EMPTY; p = prefixes[p])
+				length++;
+
+			path = new int[length];
+
+			for (int p = id; p != EMPTY; p = prefixes[p])
+				path[--length] = labels[p];
+		}
+
+		StringBuilder text = new StringBuilder();
+
+		for (int i = 0; i < path.length; i++) {
+			if (i > 0)
+				text.append(' ');
+
+			text.append(path[i]);
+		}
+
+		return text.toString();
+	}
+
+	/**
+	 * Return the number of paths
+	 *
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Return the key of prefix and label
+	 *
+	 * @param prefix
+	 * @param label
+	 * @return
+	 */
+	private static long key(int prefix, int label) {
+		return ((long) prefix << 32) | (label & 0xFFFFFFFFL);
+	}
+}
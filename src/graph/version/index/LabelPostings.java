@@ -0,0 +1,91 @@
+package graph.version.index;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import graph.version.Lifespan;
+
+/**
+ * Postings of a label: the ordinals of the nodes that carry the label sorted in
+ * ascending order, each one with the lifespan of the label on that node
+ *
+ * @author ksemer
+ */
+public class LabelPostings implements Serializable {
+
+	// =================================================================
+
+	private static final long serialVersionUID = 1L;
+
+	// node ordinals
+	private int[] ordinals;
+
+	// label lifespan per node ordinal
+	private Lifespan[] lifespans;
+
+	// number of postings
+	private int size;
+
+	// =================================================================
+
+	/**
+	 * Constructor
+	 */
+	public LabelPostings() {
+		ordinals = new int[4];
+		lifespans = new Lifespan[4];
+	}
+
+	/**
+	 * Append a posting, ordinals must be added in ascending order
+	 *
+	 * @param ordinal
+	 * @param lifespan
+	 */
+	public void add(int ordinal, Lifespan lifespan) {
+		if (size == ordinals.length) {
+			ordinals = Arrays.copyOf(ordinals, size * 2);
+			lifespans = Arrays.copyOf(lifespans, size * 2);
+		}
+
+		ordinals[size] = ordinal;
+		lifespans[size++] = lifespan;
+	}
+
+	/**
+	 * Release unused capacity
+	 */
+	public void trim() {
+		ordinals = Arrays.copyOf(ordinals, size);
+		lifespans = Arrays.copyOf(lifespans, size);
+	}
+
+	/**
+	 * Return the number of postings
+	 *
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Return the node ordinal of posting i
+	 *
+	 * @param i
+	 * @return
+	 */
+	public int getOrdinal(int i) {
+		return ordinals[i];
+	}
+
+	/**
+	 * Return the label lifespan of posting i
+	 *
+	 * @param i
+	 * @return
+	 */
+	public Lifespan getLifespan(int i) {
+		return lifespans[i];
+	}
+}
@@ -0,0 +1,275 @@
+package graph.version.index;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Compressed bitmap of dense node ordinals. Ordinals are partitioned in chunks
+ * of 2^16 values by their high bits, each chunk is kept as a sorted char array
+ * while it has at most 4096 values and as a 1024 word bitmap otherwise
+ *
+ * @author ksemer
+ */
+public class NodeBitmap implements Serializable {
+
+	// =================================================================
+
+	private static final long serialVersionUID = 1L;
+
+	// max values of an array chunk
+	private static final int ARRAY_LIMIT = 4096;
+
+	// words of a bitmap chunk
+	private static final int BITMAP_WORDS = 1024;
+
+	// high bits of each chunk, sorted
+	private int[] keys;
+
+	// char[] or long[] chunk per key
+	private Object[] chunks;
+
+	// values per chunk
+	private int[] cards;
+
+	// number of chunks
+	private int size;
+
+	// number of values
+	private int cardinality;
+
+	// =================================================================
+
+	/**
+	 * Constructor
+	 */
+	public NodeBitmap() {
+		keys = new int[4];
+		chunks = new Object[4];
+		cards = new int[4];
+	}
+
+	/**
+	 * Add ordinal x
+	 *
+	 * @param x
+	 * @return true if x was not contained
+	 */
+	public boolean add(int x) {
+		int key = x >>> 16, i = chunkIndex(key);
+		char low = (char) x;
+
+		if (i < 0) {
+			i = -i - 1;
+			insertChunk(i, key, new char[4], 0);
+		}
+
+		Object chunk = chunks[i];
+
+		if (chunk instanceof long[]) {
+			long[] words = (long[]) chunk;
+			long mask = 1L << low;
+
+			if ((words[low >>> 6] & mask) != 0)
+				return false;
+
+			words[low >>> 6] |= mask;
+		} else {
+			char[] values = (char[]) chunk;
+			int pos = Arrays.binarySearch(values, 0, cards[i], low);
+
+			if (pos >= 0)
+				return false;
+
+			pos = -pos - 1;
+
+			if (cards[i] == ARRAY_LIMIT) {
+				long[] words = toWords(values, cards[i]);
+				words[low >>> 6] |= 1L << low;
+				chunks[i] = words;
+			} else {
+				if (cards[i] == values.length) {
+					values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, values.length * 2));
+					chunks[i] = values;
+				}
+
+				System.arraycopy(values, pos, values, pos + 1, cards[i] - pos);
+				values[pos] = low;
+			}
+		}
+
+		cards[i]++;
+		cardinality++;
+
+		return true;
+	}
+
+	/**
+	 * Returns true if ordinal x is contained
+	 *
+	 * @param x
+	 * @return
+	 */
+	public boolean contains(int x) {
+		int i = chunkIndex(x >>> 16);
+		char low = (char) x;
+
+		if (i < 0)
+			return false;
+
+		if (chunks[i] instanceof long[])
+			return (((long[]) chunks[i])[low >>> 6] & (1L << low)) != 0;
+
+		return Arrays.binarySearch((char[]) chunks[i], 0, cards[i], low) >= 0;
+	}
+
+	/**
+	 * Number of ordinals
+	 *
+	 * @return
+	 */
+	public int cardinality() {
+		return cardinality;
+	}
+
+	/**
+	 * Returns true if there is not any ordinal
+	 *
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return cardinality == 0;
+	}
+
+	/**
+	 * Returns the smallest ordinal or -1 if the bitmap is empty
+	 *
+	 * @return
+	 */
+	public int first() {
+		if (size == 0)
+			return -1;
+
+		if (chunks[0] instanceof long[]) {
+			long[] words = (long[]) chunks[0];
+			int word = 0;
+
+			while (words[word] == 0)
+				word++;
+
+			return (keys[0] << 16) | (word << 6) | Long.numberOfTrailingZeros(words[word]);
+		}
+
+		return (keys[0] << 16) | ((char[]) chunks[0])[0];
+	}
+
+	/**
+	 * Returns a primitive iterator over the ordinals in ascending order
+	 *
+	 * @return
+	 */
+	public PrimitiveIterator.OfInt iterator() {
+
+		return new PrimitiveIterator.OfInt() {
+			int chunk = 0, pos = 0, word = 0, remaining = cardinality;
+			long bits = firstWord(0);
+
+			@Override
+			public boolean hasNext() {
+				return remaining > 0;
+			}
+
+			@Override
+			public int nextInt() {
+				if (remaining == 0)
+					throw new NoSuchElementException();
+
+				int value;
+
+				if (chunks[chunk] instanceof long[]) {
+					long[] words = (long[]) chunks[chunk];
+
+					while (bits == 0)
+						bits = words[++word];
+
+					value = (keys[chunk] << 16) | (word << 6) | Long.numberOfTrailingZeros(bits);
+					bits &= bits - 1;
+				} else
+					value = (keys[chunk] << 16) | ((char[]) chunks[chunk])[pos];
+
+				// move to the next chunk
+				if (--remaining > 0 && ++pos == cards[chunk]) {
+					chunk++;
+					pos = 0;
+					word = 0;
+					bits = firstWord(chunk);
+				}
+
+				return value;
+			}
+		};
+	}
+
+	/**
+	 * Returns the first word of chunk i if it is a bitmap chunk
+	 *
+	 * @param i
+	 * @return
+	 */
+	private long firstWord(int i) {
+		return i < size && chunks[i] instanceof long[] ? ((long[]) chunks[i])[0] : 0;
+	}
+
+	/**
+	 * Binary search of key
+	 *
+	 * @param key
+	 * @return
+	 */
+	private int chunkIndex(int key) {
+		return Arrays.binarySearch(keys, 0, size, key);
+	}
+
+	/**
+	 * Insert a chunk in position i
+	 *
+	 * @param i
+	 * @param key
+	 * @param chunk
+	 * @param card
+	 */
+	private void insertChunk(int i, int key, Object chunk, int card) {
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, size * 2);
+			chunks = Arrays.copyOf(chunks, size * 2);
+			cards = Arrays.copyOf(cards, size * 2);
+		}
+
+		System.arraycopy(keys, i, keys, i + 1, size - i);
+		System.arraycopy(chunks, i, chunks, i + 1, size - i);
+		System.arraycopy(cards, i, cards, i + 1, size - i);
+
+		keys[i] = key;
+		chunks[i] = chunk;
+		cards[i] = card;
+		size++;
+	}
+
+	/**
+	 * Convert an array chunk to a bitmap chunk
+	 *
+	 * @param values
+	 * @param card
+	 * @return
+	 */
+	private static long[] toWords(char[] values, int card) {
+		long[] words = new long[BITMAP_WORDS];
+
+		for (int k = 0; k < card; k++)
+			words[values[k] >>> 6] |= 1L << values[k];
+
+		return words;
+	}
+
+}
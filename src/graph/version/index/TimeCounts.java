@@ -0,0 +1,310 @@
+package graph.version.index;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import graph.version.Lifespan;
+
+/**
+ * Counts of neighbors with a label per time instant, used by CTiNLa. The counts
+ * are kept in a byte array and are widened to a char and then to an int array
+ * when a count does not fit, so a label usually takes one byte per time
+ * instant instead of a map entry with boxed keys and counts. Optionally one
+ * bitmap per count threshold up to a cap is kept for the small counts of the
+ * pattern nodes
+ *
+ * @author ksemer
+ */
+public class TimeCounts implements Serializable {
+
+	// =================================================================
+
+	private static final long serialVersionUID = 1L;
+
+	// maximum count of a byte and a char array
+	private static final int BYTE_MAX = 0xFF, CHAR_MAX = 0xFFFF;
+
+	// the counts are kept in one of the arrays, the others are null
+	private byte[] bytes;
+	private char[] chars;
+	private int[] ints;
+
+	// largest count
+	private int max;
+
+	// time instants with count at least c + 1 per c up to a cap, null if not created
+	private BitSet[] thresholds;
+
+	// =================================================================
+
+	/**
+	 * Constructor
+	 *
+	 * @param length
+	 *            number of time instants
+	 */
+	public TimeCounts(int length) {
+		bytes = new byte[length];
+	}
+
+	/**
+	 * Return the count of time instant t
+	 *
+	 * @param t
+	 * @return
+	 */
+	public int get(int t) {
+		if (t >= length())
+			return 0;
+
+		if (bytes != null)
+			return bytes[t] & BYTE_MAX;
+
+		if (chars != null)
+			return chars[t];
+
+		return ints[t];
+	}
+
+	/**
+	 * Add c to the count of time instant t
+	 *
+	 * @param t
+	 * @param c
+	 */
+	public void add(int t, int c) {
+		int count = get(t) + c;
+
+		thresholds = null;
+
+		ensure(Math.max(max, count), t + 1);
+
+		if (bytes != null)
+			bytes[t] = (byte) count;
+		else if (chars != null)
+			chars[t] = (char) count;
+		else
+			ints[t] = count;
+
+		max = Math.max(max, count);
+	}
+
+	/**
+	 * Add one to the count of each time instant of lifespan
+	 *
+	 * @param lifespan
+	 */
+	public void add(Lifespan lifespan) {
+
+		if (lifespan.isEmpty())
+			return;
+
+		thresholds = null;
+		ensure(max + 1, lifespan.length());
+
+		for (int t = lifespan.nextSetBit(0); t != -1; t = lifespan.nextSetBit(t + 1)) {
+			if (bytes != null)
+				max = Math.max(max, ++bytes[t] & BYTE_MAX);
+			else if (chars != null)
+				max = Math.max(max, ++chars[t]);
+			else
+				max = Math.max(max, ++ints[t]);
+		}
+	}
+
+	/**
+	 * Add the counts of other per time instant
+	 *
+	 * @param other
+	 */
+	public void add(TimeCounts other) {
+		int n = other.length(), m = 0;
+
+		thresholds = null;
+		ensure(max + other.max, n);
+
+		// the width fits the sum of the largest counts so no count overflows,
+		// other may be wider than its largest count needs
+		if (bytes != null) {
+			for (int t = 0, count; t < n; t++) {
+				count = (bytes[t] & BYTE_MAX) + other.get(t);
+				bytes[t] = (byte) count;
+				m = Math.max(m, count);
+			}
+		} else if (chars != null) {
+			for (int t = 0; t < n; t++)
+				m = Math.max(m, chars[t] += other.get(t));
+		} else {
+			for (int t = 0; t < n; t++)
+				m = Math.max(m, ints[t] += other.get(t));
+		}
+
+		max = Math.max(max, m);
+	}
+
+	/**
+	 * Create the bitmaps of the time instants with count at least c for c = 1
+	 * .. cap, so that atLeast is answered with a single and for these counts
+	 *
+	 * @param cap
+	 */
+	public void createThresholds(int cap) {
+		int n = Math.min(cap, max);
+
+		thresholds = new BitSet[n];
+
+		for (int c = 0; c < n; c++)
+			thresholds[c] = new BitSet();
+
+		for (int t = next(0), count; t != -1; t = next(t + 1)) {
+			count = Math.min(get(t), n);
+
+			for (int c = 0; c < count; c++)
+				thresholds[c].set(t);
+		}
+	}
+
+	/**
+	 * Return the time instants of lifespan with count at least c
+	 *
+	 * @param c
+	 * @param lifespan
+	 * @return
+	 */
+	public BitSet atLeast(int c, BitSet lifespan) {
+		BitSet life;
+
+		// a time instant without neighbors is never returned
+		c = Math.max(c, 1);
+
+		if (c > max)
+			return new BitSet();
+
+		if (thresholds != null && c <= thresholds.length) {
+			life = (BitSet) lifespan.clone();
+			life.and(thresholds[c - 1]);
+		} else {
+			life = scan(c);
+			life.and(lifespan);
+		}
+
+		return life;
+	}
+
+	/**
+	 * Return the time instants with count at least c, c > 0
+	 *
+	 * @param c
+	 * @return
+	 */
+	private BitSet scan(int c) {
+		int n = length();
+		long[] words = new long[(n + 63) >>> 6];
+
+		// (c - 1 - count) >>> 31 is 1 when count >= c
+		if (bytes != null) {
+			for (int t = 0; t < n; t++)
+				words[t >>> 6] |= (long) ((c - 1 - (bytes[t] & BYTE_MAX)) >>> 31) << t;
+		} else if (chars != null) {
+			for (int t = 0; t < n; t++)
+				words[t >>> 6] |= (long) ((c - 1 - chars[t]) >>> 31) << t;
+		} else {
+			for (int t = 0; t < n; t++)
+				words[t >>> 6] |= (long) ((c - 1 - ints[t]) >>> 31) << t;
+		}
+
+		return BitSet.valueOf(words);
+	}
+
+	/**
+	 * Return the first time instant from from on with a positive count or -1
+	 *
+	 * @param from
+	 * @return
+	 */
+	public int next(int from) {
+		for (int t = from, n = length(); t < n; t++) {
+			if (get(t) != 0)
+				return t;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Return the number of time instants with a positive count
+	 *
+	 * @return
+	 */
+	public int size() {
+		int size = 0;
+
+		for (int t = next(0); t != -1; t = next(t + 1))
+			size++;
+
+		return size;
+	}
+
+	/**
+	 * Return the largest count
+	 *
+	 * @return
+	 */
+	public int max() {
+		return max;
+	}
+
+	/**
+	 * Return the number of time instants kept
+	 *
+	 * @return
+	 */
+	private int length() {
+		if (bytes != null)
+			return bytes.length;
+
+		if (chars != null)
+			return chars.length;
+
+		return ints.length;
+	}
+
+	/**
+	 * Widen the counts so that count fits and grow them to length time instants
+	 *
+	 * @param count
+	 * @param length
+	 */
+	private void ensure(int count, int length) {
+		int n = Math.max(length, length());
+
+		if (bytes != null && count > BYTE_MAX) {
+			chars = new char[n];
+
+			for (int t = 0; t < bytes.length; t++)
+				chars[t] = (char) (bytes[t] & BYTE_MAX);
+
+			bytes = null;
+		}
+
+		if (chars != null && count > CHAR_MAX) {
+			ints = new int[n];
+
+			for (int t = 0; t < chars.length; t++)
+				ints[t] = chars[t];
+
+			chars = null;
+		}
+
+		if (n == length())
+			return;
+
+		if (bytes != null)
+			bytes = Arrays.copyOf(bytes, n);
+		else if (chars != null)
+			chars = Arrays.copyOf(chars, n);
+		else
+			ints = Arrays.copyOf(ints, n);
+	}
+}
@@ -19,6 +19,7 @@ import java.util.concurrent.TimeUnit;
 
 import graph.version.Edge;
 import graph.version.Graph;
+import graph.version.Lifespan;
 import graph.version.Node;
 import system.Config;
 import utils.Storage;
@@ -32,7 +33,14 @@ public class TimePathIndex {
 
 	// ========================================================================
 
-	private Map<Integer, Map<String, Set<Node>>> TiPLa;
+	// time instant -> label path id -> nodes
+	private Map<Integer, Map<Integer, Set<Node>>> TiPLa;
+
+	// ids of the label paths
+	private LabelPathDictionary labelPaths;
+
+	// node -> (time instant, label path id) keys, null while TiPLa is created
+	private Map<Node, Set<Long>> pathKeys;
 
 	// ========================================================================
 
@@ -45,6 +53,7 @@ public class TimePathIndex {
 	public TimePathIndex() {
 
 		if (!Config.BLOOM_ENABLED) {
+			labelPaths = new LabelPathDictionary();
 			TiPLa = new ConcurrentHashMap<>();
 
 			for (int i = 0; i < Config.MAXIMUM_INTERVAL; i++)
@@ -52,6 +61,115 @@ public class TimePathIndex {
 		}
 	}
 
+	/**
+	 * Constructor for updating an existing TiPLa, a map is added for each new
+	 * time instant. pathKeys holds the keys of each node of TiPLa, it is filled
+	 * from TiPLa when it is empty and kept up to date by the update
+	 * 
+	 * @param TiPLa
+	 * @param labelPaths
+	 * @param pathKeys
+	 */
+	public TimePathIndex(Map<Integer, Map<Integer, Set<Node>>> TiPLa, LabelPathDictionary labelPaths,
+			Map<Node, Set<Long>> pathKeys) {
+		this.TiPLa = TiPLa;
+		this.labelPaths = labelPaths;
+		this.pathKeys = pathKeys;
+
+		if (!Config.BLOOM_ENABLED) {
+			for (int i = 0; i < Config.MAXIMUM_INTERVAL; i++)
+				TiPLa.putIfAbsent(i, new ConcurrentHashMap<>());
+		}
+	}
+
+	/**
+	 * Compute again the paths of the given nodes. The nodes are removed from the
+	 * path sets of their keys and their paths are traversed in the current graph
+	 * 
+	 * @param nodes
+	 * @return
+	 */
+	public Map<Integer, Map<Integer, Set<Node>>> updatePathIndex(Set<Node> nodes) {
+
+		if (Config.BLOOM_ENABLED) {
+			for (Node n : nodes) {
+				n.initiliazeTiPLaAux();
+				traversePath(n);
+				n.createTiPLaBloom();
+			}
+
+			return TiPLa;
+		}
+
+		if (pathKeys.isEmpty())
+			createPathKeys();
+
+		// a new time instant can also remove paths of previous ones, since a path
+		// that is extended is not stored itself
+		for (Node n : nodes)
+			removePaths(n);
+
+		for (Node n : nodes)
+			traversePath(n);
+
+		return TiPLa;
+	}
+
+	/**
+	 * Collect the keys of each node from TiPLa
+	 */
+	private void createPathKeys() {
+		Set<Long> keys;
+
+		for (Entry<Integer, Map<Integer, Set<Node>>> perTime : TiPLa.entrySet()) {
+			for (Entry<Integer, Set<Node>> entry : perTime.getValue().entrySet()) {
+				for (Node n : entry.getValue()) {
+
+					if ((keys = pathKeys.get(n)) == null) {
+						keys = new HashSet<>();
+						pathKeys.put(n, keys);
+					}
+
+					keys.add(key(perTime.getKey(), entry.getKey()));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Remove n from the path sets of its keys
+	 * 
+	 * @param n
+	 */
+	private void removePaths(Node n) {
+		Set<Long> keys = pathKeys.remove(n);
+		Map<Integer, Set<Node>> paths;
+		Set<Node> set;
+		int labelPath;
+
+		if (keys == null)
+			return;
+
+		for (long key : keys) {
+			paths = TiPLa.get((int) (key >>> 32));
+			labelPath = (int) key;
+
+			if ((set = paths.get(labelPath)) != null && set.remove(n) && set.isEmpty())
+				paths.remove(labelPath);
+		}
+	}
+
+	/**
+	 * Return the key of label path id at time instant t
+	 * 
+	 * @param t
+	 * @param labelPath
+	 * @return
+	 */
+	private static long key(int t, int labelPath) {
+		return ((long) t << 32) | (labelPath & 0xFFFFFFFFL);
+	}
+
 	/**
 	 * Create path index Return for each time instant all combinations of paths ->
 	 * nodes with that combination
@@ -61,7 +179,7 @@ public class TimePathIndex {
 	 * @throws IOException
 	 * @throws InterruptedException
 	 */
-	public Map<Integer, Map<String, Set<Node>>> createPathIndex(Graph g) throws IOException, InterruptedException {
+	public Map<Integer, Map<Integer, Set<Node>>> createPathIndex(Graph g) throws IOException, InterruptedException {
 
 		if (Config.BLOOM_ENABLED)
 			System.out.print("TiPLaBloom is running");
@@ -104,6 +222,15 @@ public class TimePathIndex {
 		return TiPLa;
 	}
 
+	/**
+	 * Return the dictionary of the label path ids of TiPLa
+	 * 
+	 * @return
+	 */
+	public LabelPathDictionary getLabelPaths() {
+		return labelPaths;
+	}
+
 	/**
 	 * Callable for computing all paths to maxDepth
 	 * 
@@ -164,13 +291,13 @@ public class TimePathIndex {
 				// if we are in src node we take as lifespan the edge's lifespan
 				if (info.father == null) {
 					addNew = true;
-					toBeVisited.add(new NInfo(e.getTarget(), info, (BitSet) e.getLifetime().clone(), info.depth + 1));
+					toBeVisited.add(new NInfo(e.getTarget(), info, e.getLifetime().toBitSet(), info.depth + 1));
 
 				} else if (!info.father.n.equals(e.getTarget())) {
 
 					// else we and the edge's lifespan with the info.lifespan
 					l = (BitSet) info.lifespan.clone();
-					l.and(e.getLifetime());
+					e.getLifetime().andInto(l);
 
 					if (!l.isEmpty()) {
 						addNew = true;
@@ -213,7 +340,7 @@ public class TimePathIndex {
 		if (Config.BLOOM_ENABLED)
 			rec_labelCompB(path, path.get(0), life, "", 0);
 		else
-			rec_labelComp(path, path.get(0), life, "", 0);
+			rec_labelComp(path, path.get(0), life, LabelPathDictionary.EMPTY, 0);
 	}
 
 	/**
@@ -233,14 +360,14 @@ public class TimePathIndex {
 		Set<String> paths;
 		Map<Integer, Set<String>> paths_per_t = src.getTiPLaAux();
 
-		for (Entry<Integer, BitSet> entry : n.getLabels().entrySet()) {
+		for (Entry<Integer, Lifespan> entry : n.getLabels().entrySet()) {
 			int l = entry.getKey();
 
 			if (life.isEmpty())
-				lifespan = (BitSet) entry.getValue().clone();
+				lifespan = entry.getValue().toBitSet();
 			else {
 				lifespan = (BitSet) life.clone();
-				lifespan.and(entry.getValue());
+				entry.getValue().andInto(lifespan);
 			}
 
 			if (!lifespan.isEmpty()) {
@@ -292,65 +419,58 @@ public class TimePathIndex {
 	 * @param path
 	 * @param src
 	 * @param life
-	 * @param label
+	 * @param prefix
+	 *            id of the label path up to depth - 1
 	 * @param depth
 	 */
-	private void rec_labelComp(List<Node> path, Node src, BitSet life, String label, int depth) {
+	private void rec_labelComp(List<Node> path, Node src, BitSet life, int prefix, int depth) {
 
 		Node n = path.get(depth);
 		BitSet lifespan;
-		String Path;
+		int labelPath;
 		Set<Node> set;
+		Set<Long> keys;
 
-		for (Entry<Integer, BitSet> entry : n.getLabels().entrySet()) {
+		for (Entry<Integer, Lifespan> entry : n.getLabels().entrySet()) {
 			int l = entry.getKey();
 
 			if (life.isEmpty())
-				lifespan = (BitSet) entry.getValue().clone();
+				lifespan = entry.getValue().toBitSet();
 			else {
 				lifespan = (BitSet) life.clone();
-				lifespan.and(entry.getValue());
+				entry.getValue().andInto(lifespan);
 			}
 
 			if (!lifespan.isEmpty()) {
 
-				if (depth == 0) {
-
-					// if we are in the last node defined by the depth
-					if (Config.ISDIRECTED) {
+				// the label path with l as the next label
+				labelPath = labelPaths.id(prefix, l);
 
-						for (int t = lifespan.nextSetBit(0); t != -1; t = lifespan.nextSetBit(t + 1)) {
+				// paths of a single label are kept only in directed graphs
+				if (depth > 0 || Config.ISDIRECTED) {
 
-							if ((set = TiPLa.get(t).get("" + l)) == null) {
-								set = new HashSet<>();
-								TiPLa.get(t).put("" + l, set);
-							}
+					for (int t = lifespan.nextSetBit(0); t != -1; t = lifespan.nextSetBit(t + 1)) {
 
-							set.add(src);
+						if ((set = TiPLa.get(t).get(labelPath)) == null) {
+							set = new HashSet<>();
+							TiPLa.get(t).put(labelPath, set);
 						}
-					}
 
-					if (depth + 1 != path.size())
-						rec_labelComp(path, src, lifespan, label + "" + l, depth + 1);
-				} else {
+						// the keys are kept only when TiPLa is updated
+						if (set.add(src) && pathKeys != null) {
 
-					// i is the next label in path
-					// we use integers to denote labels
-					Path = label + " " + l;
-
-					for (int t = lifespan.nextSetBit(0); t != -1; t = lifespan.nextSetBit(t + 1)) {
+							if ((keys = pathKeys.get(src)) == null) {
+								keys = new HashSet<>();
+								pathKeys.put(src, keys);
+							}
 
-						if ((set = TiPLa.get(t).get(Path)) == null) {
-							set = new HashSet<>();
-							TiPLa.get(t).put(Path, set);
+							keys.add(key(t, labelPath));
 						}
-
-						set.add(src);
 					}
-
-					if (depth + 1 != path.size())
-						rec_labelComp(path, src, lifespan, Path, depth + 1);
 				}
+
+				if (depth + 1 != path.size())
+					rec_labelComp(path, src, lifespan, labelPath, depth + 1);
 			}
 		}
 	}
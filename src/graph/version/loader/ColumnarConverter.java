@@ -0,0 +1,56 @@
+package graph.version.loader;
+
+import graph.version.Graph;
+import system.Config;
+
+/**
+ * Converts the text dataset of config/settings.properties to the columnar
+ * format read by LoaderColumnar. The dataset is loaded with the loader of its
+ * text format without any neighbor or path index
+ *
+ * Usage: ColumnarConverter output_path
+ *
+ * @author ksemer
+ */
+public class ColumnarConverter {
+
+	/**
+	 * Main
+	 *
+	 * @param args
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+
+		if (args.length != 1) {
+			System.out.println("Usage: ColumnarConverter output_path");
+			return;
+		}
+
+		Config.loadConfigs();
+		Config.TINLA_ENABLED = Config.CTINLA_ENABLED = Config.TIPLA_ENABLED = false;
+
+		String dataset = Config.PATH_DATASET.toLowerCase();
+		Graph lvg;
+
+		// for dblp dataset
+		if (dataset.contains("dblp"))
+			lvg = new LoaderDBLP().loadDataset();
+		// for yt dataset
+		else if (dataset.contains("yt"))
+			lvg = new LoaderYT().loadDataset();
+		else if (dataset.contains("wiki"))
+			lvg = new LoaderWikipedia().loadDataset();
+		else if (dataset.contains("synthetic"))
+			lvg = new LoaderSynthetic().loadDataset();
+		// for proteins
+		else
+			lvg = new LoaderProteins().loadDataset();
+
+		long time = System.currentTimeMillis();
+
+		LoaderColumnar.write(lvg, args[0]);
+
+		System.out.println("Columnar write time: " + (System.currentTimeMillis() - time) + " (ms)");
+	}
+}
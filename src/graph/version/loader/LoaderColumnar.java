@@ -0,0 +1,293 @@
+package graph.version.loader;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map.Entry;
+
+import graph.version.Edge;
+import graph.version.Graph;
+import graph.version.GraphBuilder;
+import graph.version.Lifespan;
+import graph.version.Node;
+import system.Config;
+import utils.Storage;
+
+/**
+ * Loader of the columnar temporal graph format. All values are big endian ints
+ * except the edge and label row counts that are longs
+ *
+ * <pre>
+ * int  magic "DGPC", version, interval, nodes
+ * long edges, labels
+ * int  ids[nodes]                                       node ids in insertion order
+ * int  src[edges], trg[edges], start[edges], end[edges] edge src -> trg alive in start .. end - 1
+ * int  node[labels], label[labels], start[labels], end[labels]
+ * </pre>
+ *
+ * Edges are stored with their direction, so an undirected graph has a row for
+ * each direction. The columns are read through memory mapped blocks of rows
+ * and the edges and labels are added as ranges to a GraphBuilder. A file is
+ * created from a text dataset with ColumnarConverter
+ *
+ * @author ksemer
+ */
+public class LoaderColumnar {
+	// =================================================================
+
+	// "DGPC"
+	static final int MAGIC = 0x44475043;
+
+	static final int VERSION = 1;
+
+	// bytes of the header
+	private static final int HEADER = 4 * Integer.BYTES + 2 * Long.BYTES;
+
+	// rows of a mapped block
+	private static final int BLOCK = 1 << 20;
+
+	// =================================================================
+
+	/**
+	 * Create a labeled version graph in memory from a columnar file
+	 *
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public Graph loadDataset() throws IOException, InterruptedException {
+
+		System.out.println("Creating Labeled Version Graph...");
+		long executionTime = System.currentTimeMillis();
+		long edges, labels, base;
+		int nodes, rows;
+		IntBuffer[] columns = new IntBuffer[4];
+
+		GraphBuilder builder = new GraphBuilder();
+
+		try (FileChannel channel = FileChannel.open(Paths.get(Config.PATH_DATASET), StandardOpenOption.READ)) {
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+
+			if (header.getInt() != MAGIC || header.getInt() != VERSION)
+				throw new IOException(Config.PATH_DATASET + " is not a columnar graph file");
+
+			Config.MAXIMUM_INTERVAL = header.getInt();
+			nodes = header.getInt();
+			edges = header.getLong();
+			labels = header.getLong();
+
+			System.out.println("Max Interval: " + Config.MAXIMUM_INTERVAL);
+
+			base = HEADER;
+
+			for (int row = 0; row < nodes; row += rows) {
+				rows = Math.min(BLOCK, nodes - row);
+				columns[0] = column(channel, base, row, rows);
+
+				for (int i = 0; i < rows; i++)
+					builder.addNode(columns[0].get(i));
+			}
+
+			base += (long) nodes * Integer.BYTES;
+
+			for (long row = 0; row < edges; row += rows) {
+				rows = (int) Math.min(BLOCK, edges - row);
+
+				for (int c = 0; c < columns.length; c++)
+					columns[c] = column(channel, base + c * edges * Integer.BYTES, row, rows);
+
+				for (int i = 0; i < rows; i++)
+					builder.addEdge(columns[0].get(i), columns[1].get(i), columns[2].get(i), columns[3].get(i));
+			}
+
+			base += 4 * edges * Integer.BYTES;
+
+			System.out.println("Loading attributes in memory...");
+
+			for (long row = 0; row < labels; row += rows) {
+				rows = (int) Math.min(BLOCK, labels - row);
+
+				for (int c = 0; c < columns.length; c++)
+					columns[c] = column(channel, base + c * labels * Integer.BYTES, row, rows);
+
+				for (int i = 0; i < rows; i++)
+					builder.addLabel(columns[0].get(i), columns[1].get(i), columns[2].get(i), columns[3].get(i));
+			}
+		}
+
+		Graph lvg = builder.build();
+
+		// For displaying memory usage
+		if (Config.SHOW_MEMORY) {
+			Runtime runtime = Runtime.getRuntime();
+
+			// Run the garbage collector
+			runtime.gc();
+
+			// Calculate the used memory
+			long memory = runtime.totalMemory() - runtime.freeMemory();
+
+			System.out.println("Used memory with ViLa: " + Storage.bytesToMegabytes(memory));
+		}
+
+		System.out.println("ViLa time: " + (System.currentTimeMillis() - executionTime) + " (ms)");
+
+		if (Config.TINLA_ENABLED || Config.CTINLA_ENABLED)
+			lvg.createTimeNeighborIndex();
+		else if (Config.TIPLA_ENABLED)
+			lvg.createTiPLa();
+
+		System.out.println("Loadtime of all: " + (System.currentTimeMillis() - executionTime) + " (ms)");
+
+		return lvg;
+	}
+
+	/**
+	 * Return true if path starts with the magic number of the columnar format
+	 *
+	 * @param path
+	 * @return
+	 * @throws IOException
+	 */
+	public static boolean isColumnar(String path) throws IOException {
+		ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES);
+
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+			while (magic.hasRemaining() && channel.read(magic) != -1)
+				;
+		}
+
+		return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+	}
+
+	/**
+	 * Map rows values of the column that starts in byte offset base
+	 *
+	 * @param channel
+	 * @param base
+	 * @param row
+	 * @param rows
+	 * @return
+	 * @throws IOException
+	 */
+	private static IntBuffer column(FileChannel channel, long base, long row, int rows) throws IOException {
+		return channel.map(FileChannel.MapMode.READ_ONLY, base + row * Integer.BYTES, (long) rows * Integer.BYTES)
+				.asIntBuffer();
+	}
+
+	/**
+	 * Write lvg to path in the columnar format
+	 *
+	 * @param lvg
+	 * @param path
+	 * @throws IOException
+	 */
+	public static void write(Graph lvg, String path) throws IOException {
+		long edges = 0, labels = 0;
+		Node n;
+
+		for (int v = 0; v < lvg.size(); v++) {
+			n = lvg.getNodeByOrdinal(v);
+
+			for (Edge e : n.getAdjacency())
+				edges += runs(e.getLifetime());
+
+			for (Entry<Integer, Lifespan> label : n.getLabels().entrySet()) {
+				if (!isStar(label.getKey()))
+					labels += runs(label.getValue());
+			}
+		}
+
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(Paths.get(path)), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(Config.MAXIMUM_INTERVAL);
+			out.writeInt(lvg.size());
+			out.writeLong(edges);
+			out.writeLong(labels);
+
+			for (int v = 0; v < lvg.size(); v++)
+				out.writeInt(lvg.getNodeByOrdinal(v).getID());
+
+			// one pass for each column
+			for (int c = 0; c < 4; c++) {
+				for (int v = 0; v < lvg.size(); v++) {
+					n = lvg.getNodeByOrdinal(v);
+
+					for (Edge e : n.getAdjacency())
+						writeRuns(out, c, n.getID(), e.getTarget().getID(), e.getLifetime());
+				}
+			}
+
+			for (int c = 0; c < 4; c++) {
+				for (int v = 0; v < lvg.size(); v++) {
+					n = lvg.getNodeByOrdinal(v);
+
+					for (Entry<Integer, Lifespan> label : n.getLabels().entrySet()) {
+						if (!isStar(label.getKey()))
+							writeRuns(out, c, n.getID(), label.getKey(), label.getValue());
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return true if label is the star label that the nodes create themselves
+	 *
+	 * @param label
+	 * @return
+	 */
+	private static boolean isStar(int label) {
+		return Config.ENABLE_STAR_LABEL_PATTERNS && label == Config.STAR_LABEL;
+	}
+
+	/**
+	 * Return the number of runs of lifespan
+	 *
+	 * @param lifespan
+	 * @return
+	 */
+	private static int runs(Lifespan lifespan) {
+		int runs = 0;
+
+		for (int s = lifespan.nextSetBit(0); s != -1; s = lifespan.nextSetBit(lifespan.nextClearBit(s)))
+			runs++;
+
+		return runs;
+	}
+
+	/**
+	 * Write column c of the rows (first, second, start, end) of the runs of
+	 * lifespan
+	 *
+	 * @param out
+	 * @param c
+	 * @param first
+	 * @param second
+	 * @param lifespan
+	 * @throws IOException
+	 */
+	private static void writeRuns(DataOutputStream out, int c, int first, int second, Lifespan lifespan)
+			throws IOException {
+
+		for (int s = lifespan.nextSetBit(0), e; s != -1; s = lifespan.nextSetBit(e)) {
+			e = lifespan.nextClearBit(s);
+
+			if (c == 0)
+				out.writeInt(first);
+			else if (c == 1)
+				out.writeInt(second);
+			else if (c == 2)
+				out.writeInt(s);
+			else
+				out.writeInt(e);
+		}
+	}
+}
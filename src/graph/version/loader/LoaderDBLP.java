@@ -7,12 +7,10 @@ import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 
 import graph.version.Graph;
-import graph.version.Node;
+import graph.version.GraphBuilder;
 
 /**
  * Loader of DBLP graph
@@ -39,34 +37,13 @@ public class LoaderDBLP {
 	public Graph loadDataset() throws IOException, InterruptedException {
 
 		System.out.println("Creating Labeled Version Graph...");
-		BufferedReader br = new BufferedReader(new FileReader(Config.PATH_DATASET));
-		String line = null;
-		String[] edge;
-		int n1_id, n2_id, time;
 		long executionTime = System.currentTimeMillis();
 
-		Graph lvg = new Graph();
-
-		while ((line = br.readLine()) != null) {
-			edge = line.split("\t");
-			n1_id = Integer.parseInt(edge[0]);
-			n2_id = Integer.parseInt(edge[1]);
-
-			// edge[2] has the year/time
-			time = convert(edge[2]);
-
-			lvg.addNode(n1_id);
-			lvg.addNode(n2_id);
+		GraphBuilder builder = new GraphBuilder();
 
-			// src -> trg time label
-			lvg.addEdge(n1_id, n2_id, time);
+		// lines are parsed in parallel and added in file order
+		ParallelLineParser.parse(Config.PATH_DATASET, false, lines -> addEdges(builder, lines));
 
-			if (!Config.ISDIRECTED)
-				// src -> trg time label
-				lvg.addEdge(n2_id, n1_id, time);
-		}
-		br.close();
-		
 		// For displaying memory usage
 		if (Config.SHOW_MEMORY) {
 			Runtime runtime = Runtime.getRuntime();
@@ -81,7 +58,9 @@ public class LoaderDBLP {
 		}
 
 		// load attributes
-		loadAttributes(lvg);
+		loadAttributes(builder);
+
+		Graph lvg = builder.build();
 
 		// For displaying memory usage
 		if (Config.SHOW_MEMORY) {
@@ -110,19 +89,47 @@ public class LoaderDBLP {
 		return lvg;
 	}
 
+	/**
+	 * Add the edges of the parsed lines nodeID nodeID year
+	 * 
+	 * @param builder
+	 * @param lines
+	 */
+	private void addEdges(GraphBuilder builder, int[] lines) {
+		int n1_id, n2_id, time;
+
+		for (int i = 0; i < lines.length; i += lines[i] + 1) {
+
+			if (lines[i] < 3)
+				continue;
+
+			n1_id = lines[i + 1];
+			n2_id = lines[i + 2];
+
+			// third value has the year/time
+			time = convert(lines[i + 3]);
+
+			// src -> trg time label
+			builder.addEdge(n1_id, n2_id, time, time + 1);
+
+			if (!Config.ISDIRECTED)
+				// src -> trg time label
+				builder.addEdge(n2_id, n1_id, time, time + 1);
+		}
+	}
+
 	/**
 	 * Load nodes attributes
 	 * 
-	 * @param lvg
+	 * @param builder
 	 * @throws IOException
 	 */
-	private void loadAttributes(Graph lvg) throws IOException {
+	private void loadAttributes(GraphBuilder builder) throws IOException {
 		System.out.println("Loading labels...");
 
 		BufferedReader br = new BufferedReader(new FileReader(Config.PATH_LABELS));
 		String line = null;
-		Node node;
-		int value;
+		int node, value;
 
 		// attributes for publications count
 		if ((line = br.readLine()).contains("Publications_count")) {
@@ -133,12 +140,8 @@ public class LoaderDBLP {
 				// has the attribute value per time instance of the interval
 				String[] attributes = token[1].split(",");
 
-				// get node
-				node = lvg.getNode(Integer.parseInt(token[0]));
-
-				// author without co-authors in a paper
-				if (node == null)
-					continue;
+				// authors without co-authors in a paper are dropped by the builder
+				node = Integer.parseInt(token[0]);
 
 				for (int t = 0; t < attributes.length; t++) {
 					value = Integer.parseInt(attributes[t]);
@@ -146,23 +149,17 @@ public class LoaderDBLP {
 					if (value == 0)
 						continue;
 
-					if (value <= BEGINNER) {
-						node.updateLabelLifespan(0, t);
-						lvg.udpateTiLa(t, 0, node);
-					} else if (value <= JUNIOR) {
-						node.updateLabelLifespan(1, t);
-						lvg.udpateTiLa(t, 1, node);
-					} else if (value <= SENIOR) {
-						node.updateLabelLifespan(2, t);
-						lvg.udpateTiLa(t, 2, node);
-					} else if (value >= PROF) {
-						node.updateLabelLifespan(3, t);
-						lvg.udpateTiLa(t, 3, node);
-					}
+					if (value <= BEGINNER)
+						builder.addLabel(node, 0, t, t + 1);
+					else if (value <= JUNIOR)
+						builder.addLabel(node, 1, t, t + 1);
+					else if (value <= SENIOR)
+						builder.addLabel(node, 2, t, t + 1);
+					else if (value >= PROF)
+						builder.addLabel(node, 3, t, t + 1);
 				}
 			}
 		} else if (line.contains("Conferences_count")) {
-			Set<Integer> conferences = new HashSet<>();
 
 			// attributes for conferences
 			while ((line = br.readLine()) != null) {
@@ -171,26 +168,18 @@ public class LoaderDBLP {
 				// has the attribute value per time instance of the interval
 				String[] node_conf = token[0].split(",");
 
-				// get node
-				node = lvg.getNode(Integer.parseInt(node_conf[0]));
-
-				// author without co-authors in a paper
-				if (node == null)
-					continue;
+				// authors without co-authors in a paper are dropped by the builder
+				node = Integer.parseInt(node_conf[0]);
 
 				// get conference id
 				int conf = Integer.parseInt(node_conf[1]);
 
-				conferences.add(conf);
-
 				// years that author published in conf
 				String[] years = token[1].split(",");
 
 				for (int t = 0; t < years.length; t++) {
 					value = Integer.parseInt(years[t]);
-
-					node.updateLabelLifespan(conf, value);
-					lvg.udpateTiLa(value, conf, node);
+					builder.addLabel(node, conf, value, value + 1);
 				}
 			}
 		}
@@ -204,7 +193,7 @@ public class LoaderDBLP {
 	 * @param size
 	 * @throws IOException
 	 */
-	private static void loadNames(int size) throws IOException {
+	public static void loadNames(int size) throws IOException {
 		System.out.println("Loading authors names in memory...");
 
 		BufferedReader br = new BufferedReader(new FileReader(PATH_AUTHORS_NAMES));
@@ -239,13 +228,12 @@ public class LoaderDBLP {
 	}
 
 	/**
-	 * Convert a string time format to an integer value that it will be used in
-	 * a BitSet
+	 * Convert a year to an integer value that it will be used in a BitSet
 	 * 
-	 * @param time
+	 * @param year
 	 * @return
 	 */
-	private static int convert(String time) {
-		return (Integer.parseInt(time) - 1959);
+	private static int convert(int year) {
+		return (year - 1959);
 	}
 }
\ No newline at end of file
@@ -25,7 +25,8 @@ public class LoaderProteins {
 
 	/**
 	 * Create a labeled version graph in memory from a given DataSet nodeID \t
-	 * nodeID \t time and TiLa index
+	 * nodeID \t time and node labels. The dataset is read once and the interval
+	 * grows with each graph instance
 	 * 
 	 * @throws IOException
 	 * @throws InterruptedException 
@@ -40,26 +41,18 @@ public class LoaderProteins {
 		int n1, n2, lID = 0, time = -1, label;
 		long executionTime = System.currentTimeMillis();
 		boolean nodes = false, edges = false;
-		int sizeOfNodes = 0, nID = 0, numberOfInstances = 0;
-
-		while ((line = br.readLine()) != null) {
-			// new graph instance
-			if (line.contains("#")) {
-				numberOfInstances++;
-			}
-		}
-		br.close();
-
-		Config.MAXIMUM_INTERVAL = numberOfInstances;
-		System.out.println("Max Interval: " + Config.MAXIMUM_INTERVAL);
+		int sizeOfNodes = 0, nID = 0;
 
 		Graph lvg = new Graph();
 
-		br = new BufferedReader(new FileReader(Config.PATH_DATASET));
 		while ((line = br.readLine()) != null) {
 			// new graph instance
 			if (line.contains("#")) {
 				time++;
+
+				// lifespans grow to the new time instant
+				Config.MAXIMUM_INTERVAL = time + 1;
+
 				sizeOfNodes = Integer.parseInt(br.readLine());
 				nID = 0;
 				nodes = true;
@@ -80,7 +73,6 @@ public class LoaderProteins {
 					label = labels.get(line);
 
 				node.updateLabelLifespan(label, time);
-				lvg.udpateTiLa(time, label, node);
 
 				sizeOfNodes--;
 
@@ -112,6 +104,7 @@ public class LoaderProteins {
 		}
 		br.close();
 
+		System.out.println("Max Interval: " + Config.MAXIMUM_INTERVAL);
 		System.out.println("Labels: " + labels.size());
 		System.out.println("Labels map:\n" + labels);
 
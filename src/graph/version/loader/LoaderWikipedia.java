@@ -9,7 +9,7 @@ import java.util.Map;
 import java.util.Set;
 
 import graph.version.Graph;
-import graph.version.Node;
+import graph.version.GraphBuilder;
 import system.Config;
 import utils.Storage;
 
@@ -32,22 +32,61 @@ public class LoaderWikipedia {
 	public Graph loadDataset() throws IOException, InterruptedException {
 
 		System.out.println("Creating Labeled Version Graph...");
-		BufferedReader br = new BufferedReader(new FileReader(Config.PATH_DATASET));
-		String line = null;
-		String[] edge;
-		int n1_id, n2_id, time;
 		long executionTime = System.currentTimeMillis();
 
-		Graph lvg = new Graph();
+		GraphBuilder builder = new GraphBuilder();
 
-		br.readLine();
-		while ((line = br.readLine()) != null) {
-			edge = line.split("\t");
-			n1_id = Integer.parseInt(edge[0]);
-			n2_id = Integer.parseInt(edge[1]);
+		// lines are parsed in parallel and added in file order
+		ParallelLineParser.parse(Config.PATH_DATASET, true, lines -> addEdges(builder, lines));
+
+		// load attributes
+		loadAttributes(builder);
+
+		Graph lvg = builder.build();
+
+		// For displaying memory usage
+		if (Config.SHOW_MEMORY) {
+			Runtime runtime = Runtime.getRuntime();
+
+			// Run the garbage collector
+			runtime.gc();
+
+			// Calculate the used memory
+			long memory = runtime.totalMemory() - runtime.freeMemory();
+			System.out.println("Used memory with ViLa: " + Storage.bytesToMegabytes(memory));
+		}
+
+		System.out.println("ViLa time: " + (System.currentTimeMillis() - executionTime) + " (ms)");
 
-			// edge[2] has the year/time
-			time = Integer.parseInt(edge[2]);
+		if (Config.TINLA_ENABLED || Config.CTINLA_ENABLED)
+			lvg.createTimeNeighborIndex();
+		else if (Config.TIPLA_ENABLED)
+			lvg.createTiPLa();
+
+		System.out.println("Loadtime of all: " + (System.currentTimeMillis() - executionTime) + " (ms)");
+
+		return lvg;
+	}
+
+	/**
+	 * Add the edges of the parsed lines nodeID nodeID time
+	 * 
+	 * @param builder
+	 * @param lines
+	 */
+	private void addEdges(GraphBuilder builder, int[] lines) {
+		int n1_id, n2_id, time;
+
+		for (int i = 0; i < lines.length; i += lines[i] + 1) {
+
+			if (lines[i] < 3)
+				continue;
+
+			n1_id = lines[i + 1];
+			n2_id = lines[i + 2];
+
+			// third value has the year/time
+			time = lines[i + 3];
 
 			if (n_min.containsKey(n1_id)) {
 				if (time < n_min.get(n1_id)) {
@@ -75,61 +114,30 @@ public class LoaderWikipedia {
 				n_max.put(n2_id, time);
 			}
 
-			lvg.addNode(n1_id);
-			lvg.addNode(n2_id);
-
-			lvg.addEdge(n1_id, n2_id, time, Config.MAXIMUM_INTERVAL);
+			builder.addEdge(n1_id, n2_id, time, Config.MAXIMUM_INTERVAL);
 			// lvg.addEdge(n1_id, n2_id, time);
 
 			if (!Config.ISDIRECTED)
 				// src -> trg time label
 				// lvg.addEdge(n2_id, n1_id, time);
-				lvg.addEdge(n1_id, n2_id, time, Config.MAXIMUM_INTERVAL);
+				builder.addEdge(n1_id, n2_id, time, Config.MAXIMUM_INTERVAL);
 		}
-		br.close();
-
-		// load attributes
-		loadAttributes(lvg);
-
-		// For displaying memory usage
-		if (Config.SHOW_MEMORY) {
-			Runtime runtime = Runtime.getRuntime();
-
-			// Run the garbage collector
-			runtime.gc();
-
-			// Calculate the used memory
-			long memory = runtime.totalMemory() - runtime.freeMemory();
-			System.out.println("Used memory with ViLa: " + Storage.bytesToMegabytes(memory));
-		}
-
-		System.out.println("ViLa time: " + (System.currentTimeMillis() - executionTime) + " (ms)");
-
-		if (Config.TINLA_ENABLED || Config.CTINLA_ENABLED)
-			lvg.createTimeNeighborIndex();
-		else if (Config.TIPLA_ENABLED)
-			lvg.createTiPLa();
-
-		System.out.println("Loadtime of all: " + (System.currentTimeMillis() - executionTime) + " (ms)");
-
-		return lvg;
 	}
 
 	/**
 	 * Load nodes attributes
 	 * 
-	 * @param vg
-	 * @param numberOfchanges
+	 * @param builder
 	 * @throws IOException
 	 */
-	private void loadAttributes(Graph lvg) throws IOException {
+	private void loadAttributes(GraphBuilder builder) throws IOException {
 		System.out.println("Loading attributes in memory...");
 
 		BufferedReader br = new BufferedReader(new FileReader(Config.PATH_LABELS));
 		String line = null;
 		String[] token;
-		Node node;
-		int label;
+		Integer firstTime;
+		int id, label, range;
 		Set<Integer> labels = new HashSet<>();
 
 		while ((line = br.readLine()) != null) {
@@ -140,24 +148,22 @@ public class LoaderWikipedia {
 			label = Integer.parseInt(token[1]);
 			labels.add(label);
 
-			// get node
-			node = lvg.getNode(Integer.parseInt(token[0]));
+			// nodes without edges are not in the graph
+			id = Integer.parseInt(token[0]);
 
-			if (node == null)
+			if ((firstTime = n_min.get(id)) == null)
 				continue;
 
-			int firstTime = n_min.get(node.getID());
-
-			int range = firstTime + (int) (firstTime * 0.2);
+			range = firstTime + (int) (firstTime * 0.2);
 
 			if (range > Config.MAXIMUM_INTERVAL)
 				range = Config.MAXIMUM_INTERVAL;
 
-			if (range > n_max.get(node.getID()))
-				range = n_max.get(node.getID());
+			if (range > n_max.get(id))
+				range = n_max.get(id);
 
-			node.updateLabelLifespan(label, firstTime, range);
-			lvg.udpateTiLa(firstTime, range, label, node);
+			// the label is alive from firstTime to range
+			builder.addLabel(id, label, firstTime, range + 1);
 		}
 		br.close();
 	}
@@ -3,11 +3,9 @@ package graph.version.loader;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
-import java.util.HashSet;
-import java.util.Set;
 
 import graph.version.Graph;
-import graph.version.Node;
+import graph.version.GraphBuilder;
 import system.Config;
 import utils.Storage;
 
@@ -31,37 +29,13 @@ public class LoaderYT {
 	public Graph loadDataset() throws IOException, InterruptedException {
 
 		System.out.println("Creating Labeled Version Graph...");
-		BufferedReader br = new BufferedReader(new FileReader(Config.PATH_DATASET));
-		String line = null;
-		String[] edge, time;
-		int n1_id, n2_id;
 		long executionTime = System.currentTimeMillis();
 
-		Graph lvg = new Graph();
-
-		br.readLine();
-		while ((line = br.readLine()) != null) {
-			edge = line.split("\t");
-			n1_id = Integer.parseInt(edge[0]);
-			n2_id = Integer.parseInt(edge[1]);
-
-			// edge[2] has the year/time
-			time = edge[2].split(",");
-
-			lvg.addNode(n1_id);
-			lvg.addNode(n2_id);
-
-			for (int t = Integer.parseInt(time[0]); t <= Integer.parseInt(time[1]); t++) {
+		GraphBuilder builder = new GraphBuilder();
 
-				lvg.addEdge(n1_id, n2_id, t);
+		// lines are parsed in parallel and added in file order
+		ParallelLineParser.parse(Config.PATH_DATASET, true, lines -> addEdges(builder, lines));
 
-				if (!Config.ISDIRECTED)
-					// src -> trg time label
-					lvg.addEdge(n2_id, n1_id, t);
-			}
-		}
-		br.close();
-		
 		// For displaying memory usage
 		if (Config.SHOW_MEMORY) {
 			Runtime runtime = Runtime.getRuntime();
@@ -76,7 +50,9 @@ public class LoaderYT {
 		}
 
 		// load attributes
-		loadAttributes(lvg);
+		loadAttributes(builder);
+
+		Graph lvg = builder.build();
 
 		// For displaying memory usage
 		if (Config.SHOW_MEMORY) {
@@ -104,21 +80,44 @@ public class LoaderYT {
 	}
 
 	/**
-	 * Load nodes attributes
+	 * Add the edges of the parsed lines nodeID nodeID start,end
+	 * 
+	 * @param builder
+	 * @param lines
+	 */
+	private void addEdges(GraphBuilder builder, int[] lines) {
+		int n1_id, n2_id;
+
+		for (int i = 0; i < lines.length; i += lines[i] + 1) {
+
+			if (lines[i] < 4)
+				continue;
+
+			n1_id = lines[i + 1];
+			n2_id = lines[i + 2];
+
+			// third and fourth values have the first and last time instant
+			builder.addEdge(n1_id, n2_id, lines[i + 3], lines[i + 4] + 1);
+
+			if (!Config.ISDIRECTED)
+				// src -> trg time label
+				builder.addEdge(n2_id, n1_id, lines[i + 3], lines[i + 4] + 1);
+		}
+	}
+
+	/**
+	 * Load nodes attributes, each label value is added as one range
 	 * 
-	 * @param vg
-	 * @param numberOfchanges
+	 * @param builder
 	 * @throws IOException
 	 */
-	private void loadAttributes(Graph lvg) throws IOException {
+	private void loadAttributes(GraphBuilder builder) throws IOException {
 		System.out.println("Loading attributes in memory...");
 
 		BufferedReader br = new BufferedReader(new FileReader(Config.PATH_LABELS));
 		String line = null;
 		String[] token, attributes;
-		Node node;
-		int label;
-		Set<Integer> labels = new HashSet<>();
+		int node, label, start;
 
 		while ((line = br.readLine()) != null) {
 
@@ -127,22 +126,21 @@ public class LoaderYT {
 			// has the attribute value per time instance of the interval
 			attributes = token[1].split(",");
 
-			// get node
-			node = lvg.getNode(Integer.parseInt(token[0]));
+			node = Integer.parseInt(token[0]);
+			label = Integer.parseInt(attributes[0]);
+			start = 0;
 
-			if (node == null)
-				continue;
-
-			int pos = 0;
-
-			for (int t = 0; t < Config.MAXIMUM_INTERVAL; t++) {
-				label = Integer.parseInt(attributes[pos]);
-				node.updateLabelLifespan(label, t);
-				lvg.udpateTiLa(t, label, node);
-				labels.add(label);
+			for (int t = 0, pos = 0; t < Config.MAXIMUM_INTERVAL; t++) {
 
 				if ((t + 1) % numberOfchanges == 0 && (pos + 1) != attributes.length)
 					pos++;
+
+				// the range of label ends when the next time instant has another value
+				if (t + 1 == Config.MAXIMUM_INTERVAL || Integer.parseInt(attributes[pos]) != label) {
+					builder.addLabel(node, label, start, t + 1);
+					label = Integer.parseInt(attributes[pos]);
+					start = t + 1;
+				}
 			}
 		}
 		br.close();
@@ -0,0 +1,176 @@
+package graph.version.loader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import system.Config;
+
+/**
+ * Parses a text file of integer lines on LoaderThreads threads. The file is
+ * split in byte ranges that end at line boundaries and each range is parsed
+ * from a memory mapped buffer into an int array without creating strings. The
+ * integers of a line are the digit runs of the line, so any other character is
+ * a separator, and a line is kept as its number of integers followed by the
+ * integers. The parsed ranges are passed to the loader in file order, so the
+ * graph is built in the same order as with a sequential read. At most two
+ * ranges per thread are mapped or parsed ahead of the loader, so the memory of
+ * the parsed lines does not grow with the file
+ *
+ * @author ksemer
+ */
+final class ParallelLineParser {
+	// =====================================
+
+	// maximum bytes of a range
+	private static final int RANGE = 1 << 26;
+
+	// =====================================
+
+	private ParallelLineParser() {
+	}
+
+	/**
+	 * Parse path and pass the lines of each range in file order to ranges
+	 *
+	 * @param path
+	 * @param skipHeader
+	 *            true if the first line is not parsed
+	 * @param ranges
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	static void parse(String path, boolean skipHeader, Consumer<int[]> ranges)
+			throws IOException, InterruptedException {
+		int threads = Math.max(1, Config.LOADER_THREADS);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		Deque<Future<int[]>> parsed = new ArrayDeque<>();
+
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+			long size = channel.size();
+			int count = (int) Math.max(Config.LOADER_THREADS, (size + RANGE - 1) / RANGE);
+			long[] bounds = new long[count + 1];
+
+			bounds[0] = skipHeader ? nextLine(channel, 0) : 0;
+			bounds[count] = size;
+
+			for (int r = 1; r < count; r++)
+				bounds[r] = Math.max(bounds[r - 1], nextLine(channel, size / count * r));
+
+			for (int r = 0; r < count || !parsed.isEmpty();) {
+
+				// the next range is submitted only after the loader took one
+				for (; r < count && parsed.size() < 2 * threads; r++) {
+
+					if (bounds[r] == bounds[r + 1])
+						continue;
+
+					MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, bounds[r],
+							bounds[r + 1] - bounds[r]);
+
+					parsed.add(executor.submit(() -> parse(buffer)));
+				}
+
+				if (!parsed.isEmpty())
+					ranges.accept(parsed.poll().get());
+			}
+
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+
+			throw new IOException("Failed to parse " + path, e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Return the offset of the first line that starts after offset from
+	 *
+	 * @param channel
+	 * @param from
+	 * @return
+	 * @throws IOException
+	 */
+	private static long nextLine(FileChannel channel, long from) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(1 << 12);
+		long pos = from;
+		int read;
+
+		while ((read = channel.read(buffer, pos)) > 0) {
+
+			for (int i = 0; i < read; i++) {
+				if (buffer.get(i) == '\n')
+					return pos + i + 1;
+			}
+
+			pos += read;
+			buffer.clear();
+		}
+
+		return channel.size();
+	}
+
+	/**
+	 * Parse the lines of buffer, lines without integers are skipped
+	 *
+	 * @param buffer
+	 * @return
+	 */
+	private static int[] parse(ByteBuffer buffer) {
+		// grows on demand, a range of short lines needs about limit / 4 ints
+		int[] lines = new int[Math.max(16, buffer.limit() / 16)];
+		int size = 0, head = 0, value = 0, end = buffer.limit();
+		boolean number = false, negative = false;
+		byte b;
+
+		for (int i = 0; i <= end; i++) {
+			b = i < end ? buffer.get(i) : (byte) '\n';
+
+			if (b >= '0' && b <= '9') {
+				if (!number) {
+					number = true;
+					value = 0;
+
+					// a new line starts with its counter
+					if (head == size) {
+						if (size + 2 > lines.length)
+							lines = Arrays.copyOf(lines, lines.length * 2);
+
+						lines[size++] = 0;
+					}
+				}
+
+				value = value * 10 + (b - '0');
+			} else {
+				if (number) {
+					if (size == lines.length)
+						lines = Arrays.copyOf(lines, lines.length * 2);
+
+					lines[size++] = negative ? -value : value;
+					lines[head]++;
+					number = false;
+				}
+
+				negative = b == '-';
+
+				if (b == '\n')
+					head = size;
+			}
+		}
+
+		return Arrays.copyOf(lines, size);
+	}
+}
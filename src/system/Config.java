@@ -29,6 +29,15 @@ public final class Config {
 	// path of file that stores all objects
 	public static String PATH_OBJECT;
 
+	// binary snapshot of the loaded graph and index
+	public static String PATH_SNAPSHOT;
+
+	// path of the memory mapped read only graph
+	public static String PATH_MAPPED_GRAPH;
+
+	// freeze the loaded graph adjacency in CSR arrays
+	public static boolean FREEZE_GRAPH;
+
 	// path of graph dataset
 	public static String PATH_DATASET;
 
@@ -44,6 +53,15 @@ public final class Config {
 	// number of threads
 	public static int THREADS;
 
+	// number of threads that parse the dataset
+	public static int LOADER_THREADS;
+
+	// number of workers that search a single query
+	public static int SEARCH_THREADS;
+
+	// search levels that are split in parallel tasks
+	public static int PARALLEL_SEARCH_DEPTH;
+
 	// dataset direction
 	public static boolean ISDIRECTED;
 
@@ -56,9 +74,16 @@ public final class Config {
 	// Run durable algorithm
 	public static boolean RUN_DURABLE_QUERIES;
 
+	// keep lifespans as lists of intervals instead of bitsets
+	public static boolean INTERVAL_LIFESPANS;
+
 	// maximum interval of graph lifespan
 	public static int MAXIMUM_INTERVAL;
 
+	// maximum interval as configured, the proteins and columnar loaders change
+	// MAXIMUM_INTERVAL to the interval of the dataset
+	public static int CONFIGURED_INTERVAL;
+
 	// to ignore nodes with les than at least lifespans
 	public static int AT_LEAST;
 
@@ -77,6 +102,15 @@ public final class Config {
 	// maximum matches that we want to get for debug purpose in DurableQueries
 	public static int MAX_MATCHES;
 
+	// write the matches of DurableQueries to disk while they are found
+	public static boolean STREAM_MATCHES;
+
+	// write the matches in the binary result format instead of text
+	public static boolean BINARY_RESULTS;
+
+	// match signatures kept in memory per query, more are spilled to disk
+	public static int SIGNATURE_LIMIT;
+
 	// time limit in seconds for algorithm's execution
 	public static int TIME_LIMIT;
 
@@ -104,9 +138,18 @@ public final class Config {
 	// radius for TiNLa
 	public static int TINLA_R;
 
+	// TiNLa radius r keeps only the time instants first reached in radius r
+	public static boolean TINLA_DELTA;
+
+	// TiNLa intersects each hop with the lifespan of the edge
+	public static boolean TINLA_EDGES;
+
 	// radius for CTiNLa
 	public static int CTINLA_R;
 
+	// maximum count with a threshold bitmap in CTiNLa
+	public static int CTINLA_THRESHOLDS;
+
 	// accept pattern queries with star labels
 	public static boolean ENABLE_STAR_LABEL_PATTERNS;
 
@@ -136,12 +179,20 @@ public final class Config {
 			is.close();
 
 			PATH_OBJECT = Settings.getProperty("ObjectPath", "");
+			PATH_SNAPSHOT = Settings.getProperty("SnapshotPath", "");
+			PATH_MAPPED_GRAPH = Settings.getProperty("MappedGraphPath", "");
 			PATH_DATASET = Settings.getProperty("DataPath", "");
 			PATH_LABELS = Settings.getProperty("LabelPath", "");
 			PATH_OUTPUT = Settings.getProperty("OutputPath", "");
 			PATH_QUERY = Settings.getProperty("QueryPath", "");
 
+			FREEZE_GRAPH = Boolean.parseBoolean(Settings.getProperty("FreezeGraph", "false"));
+
 			THREADS = Integer.parseInt(Settings.getProperty("Threads", "1"));
+			LOADER_THREADS = Integer.parseInt(Settings.getProperty("LoaderThreads",
+					String.valueOf(Runtime.getRuntime().availableProcessors())));
+			SEARCH_THREADS = Integer.parseInt(Settings.getProperty("SearchThreads", "1"));
+			PARALLEL_SEARCH_DEPTH = Integer.parseInt(Settings.getProperty("ParallelSearchDepth", "2"));
 
 			ISDIRECTED = Boolean.parseBoolean(Settings.getProperty("Directed", "false"));
 
@@ -163,11 +214,18 @@ public final class Config {
 			K = Integer.parseInt(Settings.getProperty("k", "1"));
 			ADAPTIVE_THETA = Double.parseDouble(Settings.getProperty("adaptiveTheta", "0.5"));
 			TINLA_R = Integer.parseInt(Settings.getProperty("TiNLa_r", "1"));
+			TINLA_DELTA = Boolean.parseBoolean(Settings.getProperty("TiNLa_delta", "false"));
+			TINLA_EDGES = Boolean.parseBoolean(Settings.getProperty("TiNLa_edges", "false"));
 			CTINLA_R = Integer.parseInt(Settings.getProperty("CTiNLa_r", "1"));
+			CTINLA_THRESHOLDS = Integer.parseInt(Settings.getProperty("CTiNLa_thresholds", "0"));
 			MAX_MATCHES = Integer.parseInt(Settings.getProperty("MaxMatches", "-1"));
+			STREAM_MATCHES = Boolean.parseBoolean(Settings.getProperty("StreamMatches", "false"));
+			BINARY_RESULTS = Boolean.parseBoolean(Settings.getProperty("BinaryResults", "false"));
+			SIGNATURE_LIMIT = Integer.parseInt(Settings.getProperty("SignatureLimit", "1048576"));
 			TIME_LIMIT = Integer.parseInt(Settings.getProperty("TimeLimit", "3600"));
 			TIPLA_MAX_DEPTH = Integer.parseInt(Settings.getProperty("TiPLa_depth", "2"));
-			MAXIMUM_INTERVAL = Integer.parseInt(Settings.getProperty("MaximumInterval", "-1"));
+			INTERVAL_LIFESPANS = Boolean.parseBoolean(Settings.getProperty("IntervalLifespans", "false"));
+			MAXIMUM_INTERVAL = CONFIGURED_INTERVAL = Integer.parseInt(Settings.getProperty("MaximumInterval", "-1"));
 			AT_LEAST = Integer.parseInt(Settings.getProperty("AtLeastLifespan", "0"));
 
 			ENABLE_STAR_LABEL_PATTERNS = Boolean.parseBoolean(Settings.getProperty("EnableStarLabels", "false"));
@@ -193,12 +251,18 @@ public final class Config {
 			} else if (TINLA_ENABLED && TINLA_R == 0) {
 				_log.log(Level.SEVERE, "TiNLa settings are wrong", new Exception());
 				stop = true;
+			} else if (TINLA_ENABLED && TINLA_DELTA && BLOOM_ENABLED) {
+				_log.log(Level.SEVERE, "TiNLaBloom does not support TiNLa_delta", new Exception());
+				stop = true;
 			} else if (TIPLA_ENABLED && TIPLA_MAX_DEPTH == 0) {
 				_log.log(Level.SEVERE, "TiPLa settings are wrong", new Exception());
 				stop = true;
 			} else if ((TIPLA_ENABLED && (TINLA_ENABLED || CTINLA_ENABLED)) || (TINLA_ENABLED && CTINLA_ENABLED)) {
 				_log.log(Level.SEVERE, "Only one index must be enabled", new Exception());
 				stop = true;
+			} else if (!PATH_MAPPED_GRAPH.isEmpty() && (TINLA_ENABLED || CTINLA_ENABLED || TIPLA_ENABLED)) {
+				_log.log(Level.SEVERE, "The mapped graph does not keep TiNLa, CTiNLa and TiPLa", new Exception());
+				stop = true;
 			}
 
 			if (stop)
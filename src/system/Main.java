@@ -3,6 +3,10 @@ package system;
 import java.util.BitSet;
 
 import graph.version.Graph;
+import graph.version.GraphSnapshot;
+import graph.version.MappedGraph;
+import graph.version.TemporalGraph;
+import graph.version.loader.LoaderColumnar;
 import graph.version.loader.LoaderDBLP;
 import graph.version.loader.LoaderProteins;
 import graph.version.loader.LoaderWikipedia;
@@ -23,21 +27,33 @@ public class Main {
 	 */
 	public static void main(String[] args) throws Exception {
 		Config.loadConfigs();
-		Graph lvg;
+		TemporalGraph lvg = null;
+		Graph graph;
 
 		String dataset = Config.PATH_DATASET.toLowerCase();
 
-		// for dblp dataset
-		if (dataset.contains("dblp"))
-			lvg = new LoaderDBLP().loadDataset();
-		// for yt dataset
-		else if (dataset.contains("yt"))
-			lvg = new LoaderYT().loadDataset();
-		else if (dataset.contains("wiki"))
-			lvg = new LoaderWikipedia().loadDataset();
-		// for proteins
-		else
-			lvg = new LoaderProteins().loadDataset();
+		if (!Config.PATH_MAPPED_GRAPH.isEmpty() && (lvg = MappedGraph.open(Config.PATH_MAPPED_GRAPH)) != null) {
+
+			// authors names are used in the output of dblp matches
+			if (dataset.contains("dblp"))
+				LoaderDBLP.loadNames(lvg.size());
+		} else {
+			graph = loadGraph(dataset);
+
+			if (!Config.PATH_MAPPED_GRAPH.isEmpty()) {
+				MappedGraph.write(graph, Config.PATH_MAPPED_GRAPH);
+
+				// the heap graph is released and the queries are served from the file
+				graph = null;
+				lvg = MappedGraph.open(Config.PATH_MAPPED_GRAPH);
+			} else {
+				// graphs of the bulk loaders are already frozen
+				if (Config.FREEZE_GRAPH)
+					graph.freeze();
+
+				lvg = graph;
+			}
+		}
 
 		if (Config.RUN_DURABLE_QUERIES || Config.RUN_TOPK_QUERIES) {
 
@@ -47,4 +63,42 @@ public class Main {
 			new Query(lvg, iQ).run();
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Load the dataset from the snapshot or with the dataset loader
+	 * 
+	 * @param dataset
+	 * @return
+	 * @throws Exception
+	 */
+	private static Graph loadGraph(String dataset) throws Exception {
+		Graph lvg = null;
+
+		if (!Config.PATH_SNAPSHOT.isEmpty() && (lvg = GraphSnapshot.load(Config.PATH_SNAPSHOT)) != null) {
+
+			// authors names are used in the output of dblp matches
+			if (dataset.contains("dblp"))
+				LoaderDBLP.loadNames(lvg.size());
+		} else {
+			// for datasets converted to the columnar format
+			if (LoaderColumnar.isColumnar(Config.PATH_DATASET))
+				lvg = new LoaderColumnar().loadDataset();
+			// for dblp dataset
+			else if (dataset.contains("dblp"))
+				lvg = new LoaderDBLP().loadDataset();
+			// for yt dataset
+			else if (dataset.contains("yt"))
+				lvg = new LoaderYT().loadDataset();
+			else if (dataset.contains("wiki"))
+				lvg = new LoaderWikipedia().loadDataset();
+			// for proteins
+			else
+				lvg = new LoaderProteins().loadDataset();
+
+			if (!Config.PATH_SNAPSHOT.isEmpty())
+				GraphSnapshot.write(lvg, Config.PATH_SNAPSHOT);
+		}
+
+		return lvg;
+	}
+}
@@ -11,7 +11,7 @@ import java.util.concurrent.Executors;
 import algorithm.DurableMatching;
 import algorithm.DurableTopkMatching;
 import graph.pattern.PatternGraph;
-import graph.version.Graph;
+import graph.version.TemporalGraph;
 import utils.Storage;
 
 /**
@@ -23,7 +23,7 @@ public class Query {
 
 	// =================================================================
 
-	private Graph lvg;
+	private TemporalGraph lvg;
 	private BitSet iQ;
 
 	// =================================================================
@@ -36,7 +36,7 @@ public class Query {
 	 * 
 	 * @throws IOException
 	 */
-	public Query(Graph lvg, BitSet iQ) throws IOException {
+	public Query(TemporalGraph lvg, BitSet iQ) throws IOException {
 		this.lvg = lvg;
 		this.iQ = iQ;
 	}
@@ -143,7 +143,7 @@ public class Query {
 	 * @param rankingStrategy
 	 * @return
 	 */
-	private Callable<?> setCallableDurQ(Graph lvg, PatternGraph pg, BitSet iQ, int rankingStrategy) {
+	private Callable<?> setCallableDurQ(TemporalGraph lvg, PatternGraph pg, BitSet iQ, int rankingStrategy) {
 		Callable<?> c = () -> {
 			try {
 				new DurableMatching(lvg, pg, iQ, Config.CONTIGUOUS_MATCHES, rankingStrategy);
@@ -165,7 +165,7 @@ public class Query {
 	 * @param rankingStrategy
 	 * @return
 	 */
-	private Callable<?> setCallableTopkQ(Graph lvg, PatternGraph pg, BitSet iQ, int rankingStrategy) {
+	private Callable<?> setCallableTopkQ(TemporalGraph lvg, PatternGraph pg, BitSet iQ, int rankingStrategy) {
 		Callable<?> c = () -> {
 			try {
 				new DurableTopkMatching(lvg, pg, iQ, Config.CONTIGUOUS_MATCHES, Config.K, rankingStrategy);
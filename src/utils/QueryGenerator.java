@@ -1,7 +1,6 @@
 package utils;
 
 import java.util.ArrayList;
-import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -13,6 +12,7 @@ import java.util.Map.Entry;
 import graph.pattern.PatternGraph;
 import graph.pattern.PatternNode;
 import graph.version.Edge;
+import graph.version.Lifespan;
 import graph.version.Node;
 import system.Config;
 
@@ -75,9 +75,9 @@ public class QueryGenerator {
 	 */
 	private static int getMaxLabel(Node src) {
 		int max = 0, label = 0;
-		BitSet lifespan;
+		Lifespan lifespan;
 
-		for (Entry<Integer, BitSet> entry : src.getLabels().entrySet()) {
+		for (Entry<Integer, Lifespan> entry : src.getLabels().entrySet()) {
 			lifespan = entry.getValue();
 
 			if (lifespan.cardinality() > max) {